@@ -0,0 +1,46 @@
+package com.korniienko.kalah.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korniienko.kalah.security.jwt.JwtAuthenticationEntryPoint;
+import com.korniienko.kalah.security.jwt.JwtFastPathFilter;
+import com.korniienko.kalah.security.jwt.JwtTokenProvider;
+import com.korniienko.kalah.security.ratelimit.RateLimitFilter;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Minimal request pipeline for the game endpoints: {@link SecurityConfig} ignores {@code /games/**} in this profile
+ * and the requests pass only {@link JwtFastPathFilter} and {@link RateLimitFilter}, registered as plain servlet filters.
+ * The token is trusted until it expires, a user deleted meanwhile keeps playing.
+ */
+@Configuration
+@Profile(FastPathConfig.PROFILE)
+public class FastPathConfig {
+
+    public static final String PROFILE = "fast-path";
+
+    private static final String GAMES_URL_PATTERN = "/games/*";
+
+    @Bean
+    public FilterRegistrationBean<JwtFastPathFilter> jwtFastPathFilter(JwtTokenProvider jwtTokenProvider,
+                                                                       JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint) {
+        final FilterRegistrationBean<JwtFastPathFilter> registration =
+                new FilterRegistrationBean<>(new JwtFastPathFilter(jwtTokenProvider, jwtAuthenticationEntryPoint));
+        registration.addUrlPatterns(GAMES_URL_PATTERN);
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 2);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> fastPathRateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper) {
+        final FilterRegistrationBean<RateLimitFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitFilter(rateLimiter, objectMapper));
+        registration.addUrlPatterns(GAMES_URL_PATTERN);
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
@@ -0,0 +1,38 @@
+package com.korniienko.kalah.configuration;
+
+import com.korniienko.kalah.security.password.PasswordProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * New passwords are hashed with the encoder selected by {@code kalah.password.encoder}, the hash is prefixed with the
+ * encoder id (e.g. {@code {bcrypt}}), so existing hashes keep working when the encoder or its cost is changed.
+ * Hashes without a prefix are bcrypt hashes stored before the encoder was configurable.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+    @Bean
+    public PasswordEncoder passwordEncoder(PasswordProperties passwordProperties) {
+        final BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(passwordProperties.getBcryptStrength());
+        final Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder("", passwordProperties.getPbkdf2Iterations(), 256));
+        encoders.put("argon2", new Argon2PasswordEncoder(16, 32, 1,
+                passwordProperties.getArgon2MemoryKb(), passwordProperties.getArgon2Iterations()));
+        if (!encoders.containsKey(passwordProperties.getEncoder())) {
+            throw new IllegalArgumentException(String.format("Unknown password encoder [%s].", passwordProperties.getEncoder()));
+        }
+        final DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(passwordProperties.getEncoder(), encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return passwordEncoder;
+    }
+}
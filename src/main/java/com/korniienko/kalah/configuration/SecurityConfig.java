@@ -1,18 +1,22 @@
 package com.korniienko.kalah.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.korniienko.kalah.security.jwt.JwtAuthenticationEntryPoint;
 import com.korniienko.kalah.security.jwt.JwtTokenAuthenticationFilter;
 import com.korniienko.kalah.security.jwt.JwtTokenProvider;
+import com.korniienko.kalah.security.ratelimit.RateLimitFilter;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
@@ -21,11 +25,18 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
 
     @Autowired
-    public SecurityConfig(JwtTokenProvider jwtTokenProvider, JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint) {
+    public SecurityConfig(JwtTokenProvider jwtTokenProvider, JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint,
+                          RateLimiter rateLimiter, ObjectMapper objectMapper, Environment environment) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.jwtAuthenticationEntryPoint = jwtAuthenticationEntryPoint;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.environment = environment;
     }
 
     @Bean
@@ -34,9 +45,11 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         return super.authenticationManagerBean();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Override
+    public void configure(WebSecurity web) {
+        if (environment.acceptsProfiles(Profiles.of(FastPathConfig.PROFILE))) {
+            web.ignoring().antMatchers("/games/**");
+        }
     }
 
     @Override
@@ -61,7 +74,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                         "/webjars/**").permitAll()
                 .anyRequest().authenticated()
                 .and()
-                .addFilterBefore(new JwtTokenAuthenticationFilter(jwtTokenProvider), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(new JwtTokenAuthenticationFilter(jwtTokenProvider), UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(new RateLimitFilter(rateLimiter, objectMapper), JwtTokenAuthenticationFilter.class);
 
         //Added for H2 Console to work with spring security, to be removed in production code, when switch to normal DB
         http.headers().frameOptions().disable();
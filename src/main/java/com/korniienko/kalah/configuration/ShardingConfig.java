@@ -0,0 +1,83 @@
+package com.korniienko.kalah.configuration;
+
+import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.dao.sharding.ConsistentHashRing;
+import com.korniienko.kalah.dao.sharding.ShardRoutingDataSource;
+import com.korniienko.kalah.dao.sharding.ShardRoutingInterceptor;
+import com.korniienko.kalah.dao.sharding.ShardRoutingJpaRepositoryFactoryBean;
+import com.korniienko.kalah.dao.sharding.ShardingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores games in several databases, games are distributed by id with consistent hashing.
+ * Users and everything else stay in the home shard (shard 0), {@code GameService} keeps using {@link GameRepository}
+ * which routes every call to the right shards.
+ */
+@Slf4j
+@Configuration
+@Profile("sharding")
+@EnableJpaRepositories(basePackageClasses = GameRepository.class, repositoryFactoryBeanClass = ShardRoutingJpaRepositoryFactoryBean.class)
+public class ShardingConfig {
+
+    private final ShardingProperties shardingProperties;
+
+    @Autowired
+    public ShardingConfig(ShardingProperties shardingProperties) {
+        this.shardingProperties = shardingProperties;
+    }
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        final List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < shardingProperties.getShardCount(); i++) {
+            shards.add(dataSourceProperties.initializeDataSourceBuilder()
+                    .url(String.format(shardingProperties.getUrlTemplate(), i))
+                    .build());
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    public ConsistentHashRing consistentHashRing() {
+        return new ConsistentHashRing(shardingProperties.getShardCount(), shardingProperties.getVirtualNodes());
+    }
+
+    @Bean
+    public ShardRoutingInterceptor shardRoutingInterceptor(ConsistentHashRing consistentHashRing, ShardRoutingDataSource dataSource) {
+        return new ShardRoutingInterceptor(consistentHashRing, dataSource.getShards());
+    }
+
+    /**
+     * Hibernate creates the schema in the home shard only, it is copied to the other shards with H2 {@code SCRIPT}.
+     * Every shard gets its own range of the shared sequence, so pit ids stay unique across shards.
+     * A non-embedded database would have each shard migrated separately instead.
+     */
+    @Bean
+    public SmartInitializingSingleton shardSchemaReplicator(ShardRoutingDataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        return () -> {
+            final List<DataSource> shards = dataSource.getShards();
+            final List<String> schema = new JdbcTemplate(shards.get(0)).queryForList("SCRIPT NODATA", String.class);
+            for (int i = 1; i < shards.size(); i++) {
+                final JdbcTemplate shard = new JdbcTemplate(shards.get(i));
+                schema.forEach(shard::execute);
+                shard.execute(String.format("ALTER SEQUENCE hibernate_sequence RESTART WITH %d", ((long) i << 40) + 1));
+            }
+            log.info("Schema replicated to [{}] game shards.", shards.size() - 1);
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.korniienko.kalah.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Logs the startup time and the slowest beans once the application is ready.
+ * The time of a bean is measured from its instantiation to the end of its initialization, it includes the beans
+ * created on the way as dependencies. Beans left to lazy initialization are created later and are not reported.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kalah.startup-report.enabled", havingValue = "true")
+public class StartupTimingReporter implements InstantiationAwareBeanPostProcessor, ApplicationListener<ApplicationReadyEvent> {
+
+    private final int topBeans;
+    private final Map<String, Long> startNanos = new ConcurrentHashMap<>();
+    private final Map<String, Long> initNanos = new ConcurrentHashMap<>();
+
+    public StartupTimingReporter(@Value("${kalah.startup-report.top-beans:20}") int topBeans) {
+        this.topBeans = topBeans;
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        startNanos.put(beanName, System.nanoTime());
+        return null;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        final Long start = startNanos.remove(beanName);
+        if (start != null) {
+            initNanos.put(beanName, System.nanoTime() - start);
+        }
+        return bean;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        final long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("Application ready in [{}] ms, [{}] beans created, the slowest: {}",
+                uptimeMillis, initNanos.size(), slowestBeans().stream()
+                        .map(bean -> String.format("%s=%dms", bean.getKey(), TimeUnit.NANOSECONDS.toMillis(bean.getValue())))
+                        .collect(Collectors.joining(", ")));
+    }
+
+    List<Map.Entry<String, Long>> slowestBeans() {
+        return initNanos.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(topBeans)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,32 @@
+package com.korniienko.kalah.controller;
+
+import com.korniienko.kalah.dto.PositionStatsDto;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.analytics.PositionAnalytics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "/analytics")
+public class AnalyticsController {
+
+    private final PositionAnalytics positionAnalytics;
+
+    @Autowired
+    public AnalyticsController(PositionAnalytics positionAnalytics) {
+        this.positionAnalytics = positionAnalytics;
+    }
+
+    @GetMapping("/positions")
+    public ResponseEntity<PositionStatsDto> position(@RequestParam("board") int[] board, @RequestParam("turn") Pit.Part turn) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(positionAnalytics.stats(board, turn));
+    }
+}
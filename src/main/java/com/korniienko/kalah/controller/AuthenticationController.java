@@ -3,6 +3,7 @@ package com.korniienko.kalah.controller;
 import com.korniienko.kalah.dto.UserCredentialsDto;
 import com.korniienko.kalah.dto.UserTokenDto;
 import com.korniienko.kalah.security.jwt.JwtTokenProvider;
+import com.korniienko.kalah.security.password.PasswordHashingExecutor;
 import com.korniienko.kalah.service.MyUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -10,6 +11,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -30,19 +32,23 @@ public class AuthenticationController {
 
     private final MyUserDetailsService userDetailsService;
 
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
     @Autowired
-    public AuthenticationController(AuthenticationManager authenticationManager, JwtTokenProvider jwtTokenProvider, MyUserDetailsService userDetailsService) {
+    public AuthenticationController(AuthenticationManager authenticationManager, JwtTokenProvider jwtTokenProvider,
+                                    MyUserDetailsService userDetailsService, PasswordHashingExecutor passwordHashingExecutor) {
         this.authenticationManager = authenticationManager;
         this.jwtTokenProvider = jwtTokenProvider;
         this.userDetailsService = userDetailsService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
     }
 
     @PostMapping("/login")
     public ResponseEntity<UserTokenDto> login(@RequestBody UserCredentialsDto data) {
         String username = data.getUsername();
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, data.getPassword()));
-        final UserDetails user = userDetailsService.loadUserByUsername(username);
-        final List<String> authorities = user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
+        final Authentication authentication = passwordHashingExecutor.execute(() ->
+                authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, data.getPassword())));
+        final List<String> authorities = authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
         String token = jwtTokenProvider.createToken(username, authorities);
         return ResponseEntity
                 .status(HttpStatus.OK)
@@ -53,8 +59,7 @@ public class AuthenticationController {
     @PostMapping("/signup")
     public ResponseEntity<UserTokenDto> signup(@RequestBody UserCredentialsDto data) {
         String username = data.getUsername();
-        final UserDetails user = userDetailsService.addUser(data);
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, data.getPassword()));
+        final UserDetails user = passwordHashingExecutor.execute(() -> userDetailsService.addUser(data));
         final List<String> authorities = user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
         String token = jwtTokenProvider.createToken(username, authorities);
         return ResponseEntity
@@ -0,0 +1,48 @@
+package com.korniienko.kalah.controller;
+
+import com.korniienko.kalah.service.export.ExportProperties;
+import com.korniienko.kalah.service.export.GameExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+@RestController
+@RequestMapping(path = "/exports")
+public class ExportController {
+
+    private final GameExportService gameExportService;
+    private final ExportProperties exportProperties;
+
+    @Autowired
+    public ExportController(GameExportService gameExportService, ExportProperties exportProperties) {
+        this.gameExportService = gameExportService;
+        this.exportProperties = exportProperties;
+    }
+
+    /**
+     * The export is streamed on an async thread with its own timeout {@code kalah.export.timeout-millis},
+     * other async requests keep the default one.
+     */
+    @GetMapping("/games")
+    public WebAsyncTask<Void> exportGames(@RequestParam(name = "compressed", defaultValue = "true") boolean compressed,
+                                          HttpServletResponse response) {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"games.kgx\"");
+        return new WebAsyncTask<>(exportProperties.getTimeoutMillis(), () -> {
+            final ServletOutputStream out = response.getOutputStream();
+            gameExportService.export(out, compressed);
+            out.flush();
+            return null;
+        });
+    }
+}
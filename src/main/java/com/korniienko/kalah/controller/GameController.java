@@ -2,29 +2,57 @@ package com.korniienko.kalah.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korniienko.kalah.dto.GameDeltaDto;
 import com.korniienko.kalah.dto.GameDto;
 import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.dto.LegalMovesDto;
+import com.korniienko.kalah.dto.SimulationDto;
+import com.korniienko.kalah.model.User;
+import com.korniienko.kalah.security.jwt.JwtFastPathFilter;
 import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.GameVersionCache;
+import com.korniienko.kalah.service.HttpCacheProperties;
+import com.korniienko.kalah.service.MyUserDetailsService;
+import com.korniienko.kalah.service.idempotency.IdempotencyCache;
+import com.korniienko.kalah.service.mailbox.GameMailboxes;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import java.security.Principal;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping(path = "/games")
 public class GameController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final GameService gameService;
+    private final GameMailboxes gameMailboxes;
     private final ObjectMapper objectMapper;
+    private final GameVersionCache gameVersionCache;
+    private final IdempotencyCache idempotencyCache;
+    private final MyUserDetailsService userDetailsService;
+    private final CacheControl finishedCacheControl;
 
     @Autowired
-    public GameController(GameService gameService, ObjectMapper objectMapper) {
+    public GameController(GameService gameService, GameMailboxes gameMailboxes, ObjectMapper objectMapper,
+                          GameVersionCache gameVersionCache, HttpCacheProperties httpCacheProperties,
+                          IdempotencyCache idempotencyCache, MyUserDetailsService userDetailsService) {
         this.gameService = gameService;
+        this.userDetailsService = userDetailsService;
+        this.gameMailboxes = gameMailboxes;
         this.objectMapper = objectMapper;
+        this.gameVersionCache = gameVersionCache;
+        this.idempotencyCache = idempotencyCache;
+        this.finishedCacheControl = CacheControl.maxAge(httpCacheProperties.getFinishedMaxAgeSeconds(), TimeUnit.SECONDS).cachePublic();
     }
 
     @PostMapping
@@ -37,25 +65,145 @@ public class GameController {
                 .body(objectMapper.valueToTree(game));
     }
 
+    /**
+     * A retry with the same {@code Idempotency-Key} is answered with the response of the first request, the move is
+     * not played again. A game with players assigned accepts the move only from the player of the side to move.
+     */
     @PutMapping("/{gameId}/pits/{pitId}")
-    public ResponseEntity<GameStatusDto> move(@PathVariable("gameId") Long gameId, @PathVariable("pitId") Integer pitId) {
-        final GameStatusDto gameStatusDto = gameService.makeMove(gameId, pitId);
+    public ResponseEntity<GameStatusDto> move(@PathVariable("gameId") Long gameId, @PathVariable("pitId") Integer pitId,
+                                              @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                              HttpServletRequest request) {
+        final GameStatusDto gameStatusDto = idempotencyCache.execute(gameId, idempotencyKey, "move " + pitId, () -> {
+            final Long playerId = playerIdOf(request);
+            return gameMailboxes.execute(gameId, () -> gameService.makeMove(gameId, pitId, () -> playerId));
+        });
+        remember(gameId, gameStatusDto.getVersion(), gameStatusDto.isFinished());
+        return ok(gameStatusDto.getVersion()).body(gameStatusDto);
+    }
+
+    @PutMapping(path = "/{gameId}/pits/{pitId}", params = "delta=true")
+    public ResponseEntity<GameDeltaDto> moveDelta(@PathVariable("gameId") Long gameId, @PathVariable("pitId") Integer pitId,
+                                                  @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                  HttpServletRequest request) {
+        final GameDeltaDto gameDeltaDto = idempotencyCache.execute(gameId, idempotencyKey, "move delta " + pitId, () -> {
+            final Long playerId = playerIdOf(request);
+            return gameMailboxes.execute(gameId, () -> gameService.makeMoveDelta(gameId, pitId, () -> playerId));
+        });
+        remember(gameId, gameDeltaDto.getVersion(), gameDeltaDto.getGameOver() != null);
+        return ok(gameDeltaDto.getVersion()).body(gameDeltaDto);
+    }
+
+    /**
+     * The response carries the game version as {@code ETag}, a request with the current version in {@code If-None-Match}
+     * is answered with 304 and no body. If this instance knows the current version the game is not read at all.
+     * Finished games never change and are cacheable for {@code kalah.http-cache.finished-max-age-seconds}.
+     */
+    @GetMapping("/{gameId}/status")
+    public ResponseEntity<GameStatusDto> status(@PathVariable("gameId") Long gameId,
+                                                @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        final GameVersionCache.GameVersion known = gameVersionCache.get(gameId);
+        if (known != null && matches(ifNoneMatch, eTagOf(known.getVersion()))) {
+            return notModified(eTagOf(known.getVersion()), cacheControlOf(known.isFinished()));
+        }
+        final GameStatusDto gameStatusDto = gameService.status(gameId);
+        if (gameStatusDto.getVersion() == null) {
+            return ok(null).body(gameStatusDto);
+        }
+        remember(gameId, gameStatusDto.getVersion(), gameStatusDto.isFinished());
+        final CacheControl cacheControl = cacheControlOf(gameStatusDto.isFinished());
+        if (matches(ifNoneMatch, eTagOf(gameStatusDto.getVersion()))) {
+            return notModified(eTagOf(gameStatusDto.getVersion()), cacheControl);
+        }
+        return ok(gameStatusDto.getVersion()).cacheControl(cacheControl).body(gameStatusDto);
+    }
+
+    /**
+     * Dry run of the moves, the body is the list of pits to play in order. The game is not changed.
+     */
+    @PostMapping("/{gameId}/simulate")
+    public ResponseEntity<SimulationDto> simulate(@PathVariable("gameId") Long gameId, @RequestBody List<Integer> pits) {
         return ResponseEntity.status(HttpStatus.OK)
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(gameStatusDto);
+                .body(gameService.simulate(gameId, pits));
     }
 
-    @GetMapping("/{gameId}/status")
-    public ResponseEntity<GameStatusDto> status(@PathVariable("gameId") Long gameId) {
+    @GetMapping("/{gameId}/moves")
+    public ResponseEntity<LegalMovesDto> legalMoves(@PathVariable("gameId") Long gameId) {
         return ResponseEntity.status(HttpStatus.OK)
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(gameService.status(gameId));
+                .body(gameService.legalMoves(gameId));
     }
 
+    /**
+     * The {@code ETag} of the list is a hash of the listed game ids, the body is not serialized to compute it.
+     */
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public List<GameDto> listGames(HttpServletRequest request) {
-        return gameService.listGames(request.getRequestURL().toString());
+    public ResponseEntity<List<GameDto>> listGames(HttpServletRequest request,
+                                                   @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        final String requestUrl = request.getRequestURL().toString();
+        final List<GameDto> games = gameService.listGames(requestUrl);
+        long hash = requestUrl.hashCode();
+        for (GameDto game : games) {
+            hash = 31 * hash + game.getId();
+        }
+        final String eTag = "\"" + games.size() + "-" + Long.toHexString(hash) + "\"";
+        if (matches(ifNoneMatch, eTag)) {
+            return notModified(eTag, CacheControl.noCache());
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(games);
+    }
+
+    /**
+     * The user is taken from the {@code fast-path} request attribute or from the authenticated principal, so it is
+     * resolved on the request thread before the move is handed to the mailbox of the game.
+     */
+    private Long playerIdOf(HttpServletRequest request) {
+        final Object fastPathUsername = request.getAttribute(JwtFastPathFilter.USERNAME_ATTRIBUTE);
+        final Principal principal = request.getUserPrincipal();
+        final String username = fastPathUsername != null ? (String) fastPathUsername : principal != null ? principal.getName() : null;
+        if (username == null) {
+            return null;
+        }
+        return ((User) userDetailsService.loadUserByUsername(username)).getId();
+    }
+
+    private void remember(Long gameId, Long version, boolean finished) {
+        if (version != null) {
+            gameVersionCache.put(gameId, version, finished);
+        }
+    }
+
+    private CacheControl cacheControlOf(boolean finished) {
+        return finished ? finishedCacheControl : CacheControl.noCache();
+    }
+
+    private ResponseEntity.BodyBuilder ok(Long version) {
+        final ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON);
+        return version != null ? response.eTag(eTagOf(version)) : response;
+    }
+
+    private <T> ResponseEntity<T> notModified(String eTag, CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
     }
 
+    private String eTagOf(long version) {
+        return "\"" + version + "\"";
+    }
+
+    private boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            final String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,31 @@
+package com.korniienko.kalah.controller;
+
+import com.korniienko.kalah.dto.LeaderboardDto;
+import com.korniienko.kalah.service.rating.RatingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "/leaderboard")
+public class LeaderboardController {
+
+    private final RatingService ratingService;
+
+    @Autowired
+    public LeaderboardController(RatingService ratingService) {
+        this.ratingService = ratingService;
+    }
+
+    @GetMapping
+    public ResponseEntity<LeaderboardDto> leaderboard(@RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ratingService.leaderboard(limit));
+    }
+}
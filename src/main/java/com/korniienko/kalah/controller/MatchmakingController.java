@@ -0,0 +1,55 @@
+package com.korniienko.kalah.controller;
+
+import com.korniienko.kalah.dto.MatchmakingDto;
+import com.korniienko.kalah.model.User;
+import com.korniienko.kalah.service.MyUserDetailsService;
+import com.korniienko.kalah.service.matchmaking.MatchmakingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.security.Principal;
+
+@RestController
+@RequestMapping(path = "/matchmaking")
+public class MatchmakingController {
+
+    private final MatchmakingService matchmakingService;
+    private final MyUserDetailsService userDetailsService;
+
+    @Autowired
+    public MatchmakingController(MatchmakingService matchmakingService, MyUserDetailsService userDetailsService) {
+        this.matchmakingService = matchmakingService;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @PostMapping
+    public ResponseEntity<MatchmakingDto> join(Principal principal) {
+        final String gamesUrl = ServletUriComponentsBuilder.fromCurrentContextPath().path("/games").toUriString();
+        final MatchmakingDto matchmaking = matchmakingService.join(userIdOf(principal), gamesUrl);
+        return ResponseEntity.status(matchmaking.getGame() != null ? HttpStatus.CREATED : HttpStatus.ACCEPTED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(matchmaking);
+    }
+
+    @GetMapping
+    public ResponseEntity<MatchmakingDto> status(Principal principal) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(matchmakingService.status(userIdOf(principal)));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<MatchmakingDto> leave(Principal principal) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(matchmakingService.leave(userIdOf(principal)));
+    }
+
+    private Long userIdOf(Principal principal) {
+        return ((User) userDetailsService.loadUserByUsername(principal.getName())).getId();
+    }
+}
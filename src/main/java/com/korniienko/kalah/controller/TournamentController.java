@@ -0,0 +1,38 @@
+package com.korniienko.kalah.controller;
+
+import com.korniienko.kalah.dto.TournamentDto;
+import com.korniienko.kalah.dto.TournamentRequestDto;
+import com.korniienko.kalah.service.tournament.TournamentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+@RestController
+@RequestMapping(path = "/tournaments")
+public class TournamentController {
+
+    private final TournamentService tournamentService;
+
+    @Autowired
+    public TournamentController(TournamentService tournamentService) {
+        this.tournamentService = tournamentService;
+    }
+
+    @PostMapping
+    public ResponseEntity<TournamentDto> newTournament(@RequestBody TournamentRequestDto request) {
+        final String gamesUrl = ServletUriComponentsBuilder.fromCurrentContextPath().path("/games").toUriString();
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(tournamentService.create(request, gamesUrl));
+    }
+
+    @GetMapping("/{tournamentId}")
+    public ResponseEntity<TournamentDto> progress(@PathVariable("tournamentId") Long tournamentId) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(tournamentService.progress(tournamentId));
+    }
+}
@@ -0,0 +1,15 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+/**
+ * Read-only projection of an archived game used by the export, nothing is attached to the persistence context.
+ */
+@Value
+public class ArchivedGameExportView {
+    Long id;
+    byte[] board;
+    Pit.Part winner;
+    boolean draw;
+}
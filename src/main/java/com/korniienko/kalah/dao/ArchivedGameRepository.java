@@ -0,0 +1,16 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.ArchivedGame;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ArchivedGameRepository extends JpaRepository<ArchivedGame, Long> {
+
+    @Query("select new com.korniienko.kalah.dao.ArchivedGameExportView(a.id, a.board, a.winner, a.draw) " +
+            "from ArchivedGame a where a.id > :afterId order by a.id")
+    List<ArchivedGameExportView> findExportViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
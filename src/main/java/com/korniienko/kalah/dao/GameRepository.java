@@ -1,7 +1,64 @@
 package com.korniienko.kalah.dao;
 
 import com.korniienko.kalah.model.Game;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
 
 public interface GameRepository extends JpaRepository<Game, Long> {
+
+    @Override
+    @EntityGraph(attributePaths = "pits")
+    Optional<Game> findById(Long id);
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = READ_ONLY, value = "true"))
+    @Query("select new com.korniienko.kalah.dao.PitStatusView(p.index, p.weight, g.turn, g.winner, g.draw, g.gameOver, g.version) " +
+            "from Pit p join p.game g where g.id = :gameId order by p.index")
+    List<PitStatusView> findStatusById(@Param("gameId") Long gameId);
+
+    @Query("select g.id from Game g order by g.id")
+    List<Long> findAllIds();
+
+    @Query("select g.id from Game g where g.gameOver = true order by g.id")
+    List<Long> findFinishedGameIds(Pageable pageable);
+
+    /**
+     * The page goes first, so with sharding the ids are collected from every shard.
+     */
+    @Query("select g.id from Game g where g.id > :afterId order by g.id")
+    List<Long> findGameIdsAfter(Pageable pageable, @Param("afterId") Long afterId);
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = READ_ONLY, value = "true"))
+    @Query("select new com.korniienko.kalah.dao.PitExportView(g.id, p.index, p.weight, g.winner, g.draw, g.gameOver, " +
+            "g.southPlayerId, g.northPlayerId) from Pit p join p.game g where g.id in :gameIds order by g.id, p.index")
+    List<PitExportView> findExportViewsByIds(@Param("gameIds") Collection<Long> gameIds);
+
+    @QueryHints(@QueryHint(name = READ_ONLY, value = "true"))
+    @Query("select new com.korniienko.kalah.dao.PitArchiveView(g.id, p.index, p.weight, g.winner, g.draw, g.version) " +
+            "from Pit p join p.game g where g.id in :gameIds order by g.id, p.index")
+    List<PitArchiveView> findArchiveViewsByIds(@Param("gameIds") Collection<Long> gameIds);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Pit p where p.game.id in :gameIds")
+    void deletePitsByGameIds(@Param("gameIds") Collection<Long> gameIds);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Game g where g.id in :gameIds")
+    void deleteGamesByIds(@Param("gameIds") Collection<Long> gameIds);
 }
@@ -0,0 +1,50 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.service.events.GameEvent;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Storage of live games used by {@code GameService}.
+ * Updates are optimistic: {@link #update(Game)} stores the game only if it was not changed since it was loaded
+ * (compared by {@link Game#getVersion()}) and returns {@code false} otherwise, so the caller can reload and retry.
+ * A successful update sets the new version on the game, versions of a game only grow.
+ */
+public interface GameStore {
+
+    Game create(Game game);
+
+    Optional<Game> findById(Long gameId);
+
+    boolean update(Game game);
+
+    List<Long> findAllIds();
+
+    List<PitStatusView> findStatusById(Long gameId);
+
+    /**
+     * Same as {@link #create(Game)}, a store with an outbox also stores the events built from the created game,
+     * in the same transaction.
+     */
+    default Game create(Game game, Function<Game, List<GameEvent>> events) {
+        return create(game);
+    }
+
+    /**
+     * Same as {@link #update(Game)}, a store with an outbox also stores the events built from the updated game,
+     * in the same transaction and only if the game is stored.
+     */
+    default boolean update(Game game, Function<Game, List<GameEvent>> events) {
+        return update(game);
+    }
+
+    /**
+     * Stores a game recovered from a journal, unless the stored game has the same or a newer version.
+     */
+    default void restore(Game game) {
+        throw new UnsupportedOperationException(String.format("[%s] cannot restore games from a journal.", getClass().getSimpleName()));
+    }
+}
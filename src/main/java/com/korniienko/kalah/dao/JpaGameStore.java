@@ -0,0 +1,107 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.service.events.GameEvent;
+import com.korniienko.kalah.service.outbox.EventOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Stores games with JPA. With the outbox enabled a game and its events are stored in one transaction, the game is
+ * flushed first so a concurrent change is detected before the events are written.
+ */
+@Repository
+@Profile("!in-memory & !off-heap")
+public class JpaGameStore implements GameStore {
+
+    private final GameRepository gameRepository;
+    private final EventOutbox eventOutbox;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Store without an outbox.
+     */
+    public JpaGameStore(GameRepository gameRepository) {
+        this.gameRepository = gameRepository;
+        this.eventOutbox = null;
+        this.transactionTemplate = null;
+    }
+
+    @Autowired
+    public JpaGameStore(GameRepository gameRepository, EventOutbox eventOutbox, PlatformTransactionManager transactionManager) {
+        this.gameRepository = gameRepository;
+        this.eventOutbox = eventOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Game create(Game game) {
+        return gameRepository.save(game);
+    }
+
+    @Override
+    public Optional<Game> findById(Long gameId) {
+        return gameRepository.findById(gameId);
+    }
+
+    @Override
+    public boolean update(Game game) {
+        try {
+            game.setVersion(gameRepository.save(game).getVersion());
+            return true;
+        } catch (OptimisticLockingFailureException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Game create(Game game, Function<Game, List<GameEvent>> events) {
+        if (!outboxEnabled()) {
+            return create(game);
+        }
+        return transactionTemplate.execute(status -> {
+            final Game created = gameRepository.save(game);
+            eventOutbox.append(events.apply(created));
+            return created;
+        });
+    }
+
+    @Override
+    public boolean update(Game game, Function<Game, List<GameEvent>> events) {
+        if (!outboxEnabled()) {
+            return update(game);
+        }
+        return transactionTemplate.execute(status -> {
+            try {
+                game.setVersion(gameRepository.saveAndFlush(game).getVersion());
+            } catch (OptimisticLockingFailureException e) {
+                status.setRollbackOnly();
+                return false;
+            }
+            eventOutbox.append(events.apply(game));
+            return true;
+        });
+    }
+
+    @Override
+    public List<Long> findAllIds() {
+        return gameRepository.findAllIds();
+    }
+
+    @Override
+    public List<PitStatusView> findStatusById(Long gameId) {
+        return gameRepository.findStatusById(gameId);
+    }
+
+    private boolean outboxEnabled() {
+        return eventOutbox != null && eventOutbox.isEnabled();
+    }
+}
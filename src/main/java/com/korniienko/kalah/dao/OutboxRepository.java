@@ -0,0 +1,29 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
+
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = READ_ONLY, value = "true"))
+    @Query("select e from OutboxEvent e order by e.id")
+    List<OutboxEvent> findOldest(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,17 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+/**
+ * Read-only projection of a single pit with the result and the version of its game, used to archive finished games.
+ */
+@Value
+public class PitArchiveView {
+    Long gameId;
+    Integer index;
+    Integer weight;
+    Pit.Part winner;
+    boolean draw;
+    Long version;
+}
@@ -0,0 +1,19 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+/**
+ * Read-only projection of a single pit with the result and the players of its game, used to export live games.
+ */
+@Value
+public class PitExportView {
+    Long gameId;
+    Integer index;
+    Integer weight;
+    Pit.Part winner;
+    boolean draw;
+    boolean gameOver;
+    Long southPlayerId;
+    Long northPlayerId;
+}
@@ -0,0 +1,19 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+/**
+ * Read-only projection of a single pit together with the flags of its game.
+ * Built directly from the query result, so nothing is attached to the persistence context.
+ */
+@Value
+public class PitStatusView {
+    Integer index;
+    Integer weight;
+    Pit.Part turn;
+    Pit.Part winner;
+    boolean draw;
+    boolean gameOver;
+    Long version;
+}
@@ -2,9 +2,15 @@ package com.korniienko.kalah.dao;
 
 import com.korniienko.kalah.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByUsername(String username);
+
+    @Query("select distinct u from User u left join fetch u.roles where u.username = :username")
+    Optional<User> findByUsername(@Param("username") String username);
+
+    boolean existsByUsername(String username);
 }
@@ -0,0 +1,15 @@
+package com.korniienko.kalah.dao.journal;
+
+import com.korniienko.kalah.model.Game;
+
+/**
+ * Records every accepted change of a game after it is stored in the {@code GameStore}.
+ * A method returns when the change is durable, so it can be acknowledged to the player. Other requests may see the
+ * change in the store before that, a crash in between loses a change which was not acknowledged.
+ */
+public interface MoveJournal {
+
+    void created(Game game);
+
+    void moved(Game game, Integer pitIndex);
+}
@@ -0,0 +1,39 @@
+package com.korniienko.kalah.dao.journal;
+
+import com.korniienko.kalah.model.Game;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Used unless {@link WriteAheadLog} is enabled for one of the in-memory stores, the JPA store is durable on its own.
+ */
+@Component
+@Conditional(NoOpMoveJournal.WithoutWriteAheadLog.class)
+public class NoOpMoveJournal implements MoveJournal {
+
+    @Override
+    public void created(Game game) {
+    }
+
+    @Override
+    public void moved(Game game, Integer pitIndex) {
+    }
+
+    static class WithoutWriteAheadLog extends AnyNestedCondition {
+
+        WithoutWriteAheadLog() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(name = "kalah.wal.enabled", havingValue = "false", matchIfMissing = true)
+        static class Disabled {
+        }
+
+        @Profile("!in-memory & !off-heap")
+        static class DurableStore {
+        }
+    }
+}
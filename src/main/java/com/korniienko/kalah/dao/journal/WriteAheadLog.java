@@ -0,0 +1,462 @@
+package com.korniienko.kalah.dao.journal;
+
+import com.korniienko.kalah.dao.GameStore;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of game changes in segment files ({@code wal-N.log}) of fixed-size records:
+ * the record type, the pit index, the game id and version, the resulting board, the player ids and a CRC32 of the record.
+ * Every segment and snapshot starts with a magic number and the format version, a file of another format stops the
+ * replay on start instead of being read as records of this one.
+ * <p>
+ * Appending threads add records to a shared batch and wait, a single flusher thread writes the batch, fsyncs it and
+ * releases all its waiters at once (group commit), {@code kalah.wal.fsync-window-millis} is how long a batch collects
+ * records before it is written. Full segments are rotated, when there are more than
+ * {@code kalah.wal.compact-after-segments} of them the state of the {@link GameStore} is written to a snapshot
+ * ({@code snapshot-N.log}) which replaces all segments before segment N.
+ * <p>
+ * On start the latest snapshot and the segments after it are replayed into the {@link GameStore}, a record with a
+ * wrong checksum ends a segment (a write torn by a crash). Replay relies on {@link GameStore#restore(Game)} keeping
+ * the newest version of a game, so records may be applied more than once. Only the in-memory stores restore games,
+ * so the log is used only with the {@code in-memory} and {@code off-heap} profiles.
+ * <p>
+ * A record is appended after the store accepted the change, because the record carries the version the store assigned.
+ * So the log is not write-ahead of the store: other requests may see a change before it is on disk, and a crash in
+ * between loses it. The change is acknowledged to its player only when it is on disk.
+ */
+@Slf4j
+@Component
+@Profile("in-memory | off-heap")
+@ConditionalOnProperty(name = "kalah.wal.enabled", havingValue = "true")
+public class WriteAheadLog implements MoveJournal, DisposableBean {
+
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 52;
+    private static final int MAGIC = 0x4B57414C;
+    private static final int FORMAT_VERSION = 2;
+    private static final int BOARD_OFFSET = 16;
+    private static final int BOARD_SIZE = 16;
+    private static final int PLAYERS_OFFSET = BOARD_OFFSET + BOARD_SIZE;
+    private static final long NO_PLAYER = 0;
+    private static final int CHECKSUM_OFFSET = RECORD_SIZE - Integer.BYTES;
+    private static final int PITS_SIZE = 14;
+    private static final int SOUTH_KALAH_INDEX = 7;
+    private static final int NORTH_KALAH_INDEX = 14;
+
+    private static final byte CREATED = 1;
+    private static final byte MOVED = 2;
+    private static final byte SNAPSHOT = 3;
+
+    private static final int NORTH_TURN = 1;
+    private static final int HAS_WINNER = 1 << 1;
+    private static final int NORTH_WINNER = 1 << 2;
+    private static final int DRAW = 1 << 3;
+    private static final int GAME_OVER = 1 << 4;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.log");
+
+    private final GameStore gameStore;
+    private final WriteAheadLogProperties properties;
+    private final Path directory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private ByteBuffer pending;
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private volatile boolean running = true;
+
+    private ByteBuffer flushing;
+    private FileChannel segment;
+    private int segmentIndex;
+
+    private final Thread flusher;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile int compactedUpTo;
+
+    @Autowired
+    public WriteAheadLog(GameStore gameStore, WriteAheadLogProperties properties) {
+        this.gameStore = gameStore;
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+        this.pending = ByteBuffer.allocateDirect(properties.getMaxBatchRecords() * RECORD_SIZE);
+        this.flushing = ByteBuffer.allocateDirect(properties.getMaxBatchRecords() * RECORD_SIZE);
+        try {
+            recover();
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot recover write-ahead log in [%s].", directory), e);
+        }
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "wal-compactor"));
+        this.flusher = daemon(this::flushLoop, "wal-flusher");
+        this.flusher.start();
+    }
+
+    @Override
+    public void created(Game game) {
+        append(CREATED, game, 0);
+    }
+
+    @Override
+    public void moved(Game game, Integer pitIndex) {
+        append(MOVED, game, pitIndex);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        compactor.shutdown();
+        compactor.awaitTermination(10, TimeUnit.SECONDS);
+        segment.close();
+    }
+
+    private void append(byte type, Game game, int pitIndex) {
+        lock.lock();
+        try {
+            while (pending.remaining() < RECORD_SIZE && failure == null) {
+                notFull.awaitUninterruptibly();
+            }
+            checkNotFailed();
+            encode(pending, type, game, pitIndex);
+            final long sequence = ++appendedSequence;
+            notEmpty.signal();
+            while (durableSequence < sequence && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            checkNotFailed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log is not writable.", failure);
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            while (awaitRecords()) {
+                if (running && properties.getFsyncWindowMillis() > 0) {
+                    Thread.sleep(properties.getFsyncWindowMillis());
+                }
+                final long batchEnd = swapBatch();
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    segment.write(flushing);
+                }
+                segment.force(false);
+                flushing.clear();
+                markDurable(batchEnd);
+                if (segment.size() >= properties.getSegmentBytes()) {
+                    rotateSegment();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Write-ahead log failed, moves are not accepted anymore.", e);
+            lock.lock();
+            try {
+                failure = e;
+                notFull.signalAll();
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean awaitRecords() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pending.position() == 0 && running) {
+                notEmpty.await();
+            }
+            return pending.position() > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long swapBatch() {
+        lock.lock();
+        try {
+            final ByteBuffer batch = pending;
+            pending = flushing;
+            flushing = batch;
+            notFull.signalAll();
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markDurable(long sequence) {
+        lock.lock();
+        try {
+            durableSequence = sequence;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rotateSegment() throws IOException {
+        segment.close();
+        segmentIndex++;
+        openSegment();
+        if (segmentIndex - compactedUpTo > properties.getCompactAfterSegments() && compacting.compareAndSet(false, true)) {
+            final int compactUpTo = segmentIndex;
+            compactor.execute(() -> {
+                try {
+                    compact(compactUpTo);
+                } catch (IOException e) {
+                    log.warn("Write-ahead log compaction failed, segments are kept.", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segment = FileChannel.open(segmentPath(segmentIndex),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        writeHeader(header);
+        writeFully(segment, header);
+    }
+
+    /**
+     * Writes all games of the store to {@code snapshot-N.log} and removes the segments before segment N.
+     * Every change in those segments was applied to the store before it was appended, so the snapshot already has it.
+     */
+    void compact(int upToSegment) throws IOException {
+        final Path temporary = directory.resolve(String.format("snapshot-%d.tmp", upToSegment));
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(properties.getMaxBatchRecords() * RECORD_SIZE);
+        long games = 0;
+        try (FileChannel snapshot = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(buffer);
+            for (Long gameId : gameStore.findAllIds()) {
+                final Game game = gameStore.findById(gameId).orElse(null);
+                if (game == null) {
+                    continue;
+                }
+                if (buffer.remaining() < RECORD_SIZE) {
+                    writeFully(snapshot, buffer);
+                }
+                encode(buffer, SNAPSHOT, game, 0);
+                games++;
+            }
+            writeFully(snapshot, buffer);
+            snapshot.force(true);
+        }
+        Files.move(temporary, directory.resolve(String.format("snapshot-%d.log", upToSegment)), StandardCopyOption.ATOMIC_MOVE);
+        for (Path file : list(SEGMENT_NAME).headMap(upToSegment).values()) {
+            Files.delete(file);
+        }
+        for (Path file : list(SNAPSHOT_NAME).headMap(upToSegment).values()) {
+            Files.delete(file);
+        }
+        compactedUpTo = upToSegment;
+        log.info("Write-ahead log compacted into a snapshot of [{}] games before segment [{}].", games, upToSegment);
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        final TreeMap<Integer, Path> snapshots = list(SNAPSHOT_NAME);
+        final TreeMap<Integer, Path> segments = list(SEGMENT_NAME);
+        long records = 0;
+        int firstSegment = 0;
+        if (!snapshots.isEmpty()) {
+            firstSegment = snapshots.lastKey();
+            records += replay(snapshots.lastEntry().getValue());
+        }
+        for (Path file : segments.tailMap(firstSegment).values()) {
+            records += replay(file);
+        }
+        final int lastSnapshot = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        final int lastSegment = segments.isEmpty() ? -1 : segments.lastKey();
+        segmentIndex = Math.max(lastSnapshot, lastSegment + 1);
+        compactedUpTo = snapshots.isEmpty() && !segments.isEmpty() ? segments.firstKey() : firstSegment;
+        log.info("Replayed [{}] write-ahead log records, new segment is [{}].", records, segmentIndex);
+    }
+
+    private long replay(Path file) throws IOException {
+        final List<Game> games = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                log.warn("Write-ahead log [{}] ends before its header, it is skipped.", file);
+                return 0;
+            }
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IllegalStateException(String.format("Write-ahead log [%s] is not of the format [%d].", file, FORMAT_VERSION));
+            }
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(properties.getMaxBatchRecords() * RECORD_SIZE);
+            while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    final Game game = decode(buffer);
+                    if (game == null) {
+                        log.warn("Write-ahead log [{}] ends with a torn record, the rest of it is skipped.", file);
+                        games.forEach(gameStore::restore);
+                        return games.size();
+                    }
+                    games.add(game);
+                }
+                if (buffer.hasRemaining() && channel.position() == channel.size()) {
+                    log.warn("Write-ahead log [{}] ends with an incomplete record, it is skipped.", file);
+                    break;
+                }
+                buffer.compact();
+            }
+        }
+        games.forEach(gameStore::restore);
+        return games.size();
+    }
+
+    static void encode(ByteBuffer buffer, byte type, Game game, int pitIndex) {
+        final int start = buffer.position();
+        int flags = game.getTurn() == Pit.Part.NORTH ? NORTH_TURN : 0;
+        if (game.getWinner() != null) {
+            flags |= HAS_WINNER | (game.getWinner() == Pit.Part.NORTH ? NORTH_WINNER : 0);
+        }
+        flags |= (game.isDraw() ? DRAW : 0) | (game.isGameOver() ? GAME_OVER : 0);
+        buffer.put(type).put((byte) pitIndex).put((byte) flags).put((byte) 0);
+        buffer.putLong(game.getId());
+        buffer.putInt(game.getVersion() == null ? 0 : game.getVersion().intValue());
+        final byte[] board = new byte[BOARD_SIZE];
+        for (Pit pit : game.getPits()) {
+            board[pit.getIndex() - 1] = pit.getWeight().byteValue();
+        }
+        buffer.put(board);
+        buffer.putLong(game.getSouthPlayerId() == null ? NO_PLAYER : game.getSouthPlayerId());
+        buffer.putLong(game.getNorthPlayerId() == null ? NO_PLAYER : game.getNorthPlayerId());
+        buffer.putInt(checksum(buffer, start));
+    }
+
+    static Game decode(ByteBuffer buffer) {
+        final int start = buffer.position();
+        if (buffer.getInt(start + CHECKSUM_OFFSET) != checksum(buffer, start)) {
+            return null;
+        }
+        buffer.get();
+        buffer.get();
+        final int flags = buffer.get();
+        buffer.get();
+        final Game game = new Game();
+        game.setId(buffer.getLong());
+        game.setVersion((long) buffer.getInt());
+        game.setTurn((flags & NORTH_TURN) != 0 ? Pit.Part.NORTH : Pit.Part.SOUTH);
+        if ((flags & HAS_WINNER) != 0) {
+            game.setWinner((flags & NORTH_WINNER) != 0 ? Pit.Part.NORTH : Pit.Part.SOUTH);
+        }
+        game.setDraw((flags & DRAW) != 0);
+        game.setGameOver((flags & GAME_OVER) != 0);
+        final long southPlayer = buffer.getLong(start + PLAYERS_OFFSET);
+        final long northPlayer = buffer.getLong(start + PLAYERS_OFFSET + Long.BYTES);
+        game.setSouthPlayerId(southPlayer == NO_PLAYER ? null : southPlayer);
+        game.setNorthPlayerId(northPlayer == NO_PLAYER ? null : northPlayer);
+        final List<Pit> pits = new ArrayList<>(PITS_SIZE);
+        for (int i = 1; i <= PITS_SIZE; i++) {
+            final boolean isKalah = i == SOUTH_KALAH_INDEX || i == NORTH_KALAH_INDEX;
+            final Pit.Part part = i <= SOUTH_KALAH_INDEX ? Pit.Part.SOUTH : Pit.Part.NORTH;
+            pits.add(new Pit(game, i, isKalah, part, (int) buffer.get(start + BOARD_OFFSET + i - 1)));
+        }
+        game.setPits(pits);
+        buffer.position(start + RECORD_SIZE);
+        return game;
+    }
+
+    private static int checksum(ByteBuffer buffer, int start) {
+        final ByteBuffer record = buffer.duplicate();
+        record.limit(start + CHECKSUM_OFFSET);
+        record.position(start);
+        final CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private TreeMap<Integer, Path> list(Pattern pattern) throws IOException {
+        final TreeMap<Integer, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(file -> {
+                final Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Integer.parseInt(matcher.group(1)), file);
+                }
+            });
+        }
+        return files;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("wal-%d.log", index));
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
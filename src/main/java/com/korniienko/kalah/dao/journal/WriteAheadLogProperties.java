@@ -0,0 +1,23 @@
+package com.korniienko.kalah.dao.journal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.wal")
+@Data
+public class WriteAheadLogProperties {
+
+    private boolean enabled = false;
+
+    private String directory = "data/wal";
+
+    private long fsyncWindowMillis = 2;
+
+    private int maxBatchRecords = 4096;
+
+    private long segmentBytes = 64L * 1024 * 1024;
+
+    private int compactAfterSegments = 4;
+}
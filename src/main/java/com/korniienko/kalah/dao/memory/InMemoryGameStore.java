@@ -0,0 +1,118 @@
+package com.korniienko.kalah.dao.memory;
+
+import com.korniienko.kalah.dao.GameStore;
+import com.korniienko.kalah.dao.PitStatusView;
+import com.korniienko.kalah.model.Game;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps games in memory only, for short-lived games which do not need to survive a restart.
+ * Game ids are dense, so the id itself is the slot index in chunks of {@link AtomicReferenceArray}, no hashing and
+ * no boxed keys are involved. Every slot holds an immutable {@link PackedGame}, updates replace it with
+ * compare-and-set, no locks are taken.
+ */
+@Repository
+@Profile("in-memory")
+public class InMemoryGameStore implements GameStore {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 15;
+
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicReferenceArray<AtomicReferenceArray<PackedGame>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    @Override
+    public Game create(Game game) {
+        final long gameId = lastId.incrementAndGet();
+        if (gameId >= (long) MAX_CHUNKS * CHUNK_SIZE) {
+            throw new IllegalStateException(String.format("In-memory game store is full, cannot create game [%d].", gameId));
+        }
+        chunkOf(gameId).set(offsetOf(gameId), PackedGame.of(game, 0));
+        game.setId(gameId);
+        game.setVersion(0L);
+        return game;
+    }
+
+    @Override
+    public Optional<Game> findById(Long gameId) {
+        return Optional.ofNullable(find(gameId)).map(packedGame -> packedGame.toGame(gameId));
+    }
+
+    @Override
+    public boolean update(Game game) {
+        final PackedGame current = find(game.getId());
+        if (current == null || game.getVersion() == null || current.version != game.getVersion()) {
+            return false;
+        }
+        final PackedGame updated = PackedGame.of(game, current.version + 1);
+        if (chunkOf(game.getId()).compareAndSet(offsetOf(game.getId()), current, updated)) {
+            game.setVersion(updated.version);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void restore(Game game) {
+        final long gameId = game.getId();
+        lastId.accumulateAndGet(gameId, Math::max);
+        final AtomicReferenceArray<PackedGame> chunk = chunkOf(gameId);
+        final PackedGame restored = PackedGame.of(game, game.getVersion());
+        PackedGame current;
+        do {
+            current = chunk.get(offsetOf(gameId));
+            if (current != null && current.version >= restored.version) {
+                return;
+            }
+        } while (!chunk.compareAndSet(offsetOf(gameId), current, restored));
+    }
+
+    @Override
+    public List<Long> findAllIds() {
+        final long last = lastId.get();
+        final List<Long> gameIds = new ArrayList<>();
+        for (long gameId = 1; gameId <= last; gameId++) {
+            if (find(gameId) != null) {
+                gameIds.add(gameId);
+            }
+        }
+        return gameIds;
+    }
+
+    @Override
+    public List<PitStatusView> findStatusById(Long gameId) {
+        final PackedGame packedGame = find(gameId);
+        return packedGame == null ? Collections.emptyList() : packedGame.toStatusViews();
+    }
+
+    private PackedGame find(Long gameId) {
+        if (gameId == null || gameId < 1 || gameId > lastId.get()) {
+            return null;
+        }
+        final AtomicReferenceArray<PackedGame> chunk = chunks.get((int) (gameId >>> CHUNK_BITS));
+        return chunk == null ? null : chunk.get(offsetOf(gameId));
+    }
+
+    private AtomicReferenceArray<PackedGame> chunkOf(long gameId) {
+        final int chunkIndex = (int) (gameId >>> CHUNK_BITS);
+        AtomicReferenceArray<PackedGame> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunks.compareAndSet(chunkIndex, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = chunks.get(chunkIndex);
+        }
+        return chunk;
+    }
+
+    private static int offsetOf(long gameId) {
+        return (int) (gameId & (CHUNK_SIZE - 1));
+    }
+}
@@ -0,0 +1,314 @@
+package com.korniienko.kalah.dao.memory;
+
+import com.korniienko.kalah.dao.GameStore;
+import com.korniienko.kalah.dao.PitStatusView;
+import com.korniienko.kalah.model.Game;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps games off-heap in memory-mapped segment files, nothing but the segment buffers lives on the Java heap.
+ * <p>
+ * Every game owns two fixed 40-byte record slots at an offset computed from its id. A record is a {@link PackedGame}
+ * (pits and flags in 16 bytes, the player ids in 16 bytes), the game version and a CRC32 of all of them. Updates go to the slot not holding the current
+ * version, so a write torn by a crash leaves the previous version intact, readers take the slot with a valid checksum
+ * and the highest version. On start the segments are scanned to restore the last game id.
+ * <p>
+ * A segment starts with a header of a magic number, the format version, the record size and the games per segment.
+ * A segment with another header is refused on start, records of another layout are never read as games.
+ * <p>
+ * Mapped pages survive a crash of the process, not of the machine, a write-ahead log is needed for that.
+ */
+@Slf4j
+@Repository
+@Profile("off-heap")
+public class OffHeapGameStore implements GameStore, DisposableBean {
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 40;
+    private static final int MAGIC = 0x4B47414D;
+    private static final int FORMAT_VERSION = 2;
+    private static final int SLOTS_PER_GAME = 2;
+    private static final int PLAYERS_OFFSET = 16;
+    private static final int VERSION_OFFSET = 32;
+    private static final int CHECKSUM_OFFSET = 36;
+    private static final int MAX_SEGMENTS = 1 << 12;
+    private static final int LOCK_STRIPES = 1 << 10;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("games-(\\d+)\\.dat");
+
+    private final Path directory;
+    private final int gamesPerSegment;
+    private final AtomicReferenceArray<MappedByteBuffer> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+    private final StampedLock[] locks = new StampedLock[LOCK_STRIPES];
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Autowired
+    public OffHeapGameStore(OffHeapStoreProperties properties) {
+        this.directory = Paths.get(properties.getDirectory());
+        this.gamesPerSegment = properties.getGamesPerSegment();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new StampedLock();
+        }
+        recover();
+    }
+
+    @Override
+    public Game create(Game game) {
+        final long gameId = lastId.incrementAndGet();
+        final StampedLock lock = lockOf(gameId);
+        final long stamp = lock.writeLock();
+        try {
+            write(gameId, PackedGame.of(game, 0));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        game.setId(gameId);
+        game.setVersion(0L);
+        return game;
+    }
+
+    @Override
+    public Optional<Game> findById(Long gameId) {
+        return Optional.ofNullable(find(gameId)).map(packedGame -> packedGame.toGame(gameId));
+    }
+
+    @Override
+    public boolean update(Game game) {
+        if (game.getVersion() == null || !exists(game.getId())) {
+            return false;
+        }
+        final StampedLock lock = lockOf(game.getId());
+        final long stamp = lock.writeLock();
+        try {
+            final PackedGame current = read(game.getId());
+            if (current == null || current.version != game.getVersion()) {
+                return false;
+            }
+            write(game.getId(), PackedGame.of(game, current.version + 1));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        game.setVersion(game.getVersion() + 1);
+        return true;
+    }
+
+    @Override
+    public void restore(Game game) {
+        final long gameId = game.getId();
+        final StampedLock lock = lockOf(gameId);
+        final long stamp = lock.writeLock();
+        try {
+            final PackedGame current = exists(gameId) ? read(gameId) : null;
+            if (current == null || current.version < game.getVersion()) {
+                write(gameId, PackedGame.of(game, game.getVersion()));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        lastId.accumulateAndGet(gameId, Math::max);
+    }
+
+    @Override
+    public List<Long> findAllIds() {
+        final long last = lastId.get();
+        final List<Long> gameIds = new ArrayList<>();
+        for (long gameId = 1; gameId <= last; gameId++) {
+            if (find(gameId) != null) {
+                gameIds.add(gameId);
+            }
+        }
+        return gameIds;
+    }
+
+    @Override
+    public List<PitStatusView> findStatusById(Long gameId) {
+        final PackedGame packedGame = find(gameId);
+        return packedGame == null ? Collections.emptyList() : packedGame.toStatusViews();
+    }
+
+    @Override
+    public void destroy() {
+        for (int i = 0; i < MAX_SEGMENTS; i++) {
+            final MappedByteBuffer segment = segments.get(i);
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    private PackedGame find(Long gameId) {
+        if (!exists(gameId)) {
+            return null;
+        }
+        final StampedLock lock = lockOf(gameId);
+        long stamp = lock.tryOptimisticRead();
+        PackedGame packedGame = read(gameId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                packedGame = read(gameId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return packedGame;
+    }
+
+    private boolean exists(Long gameId) {
+        return gameId != null && gameId >= 1 && gameId <= lastId.get();
+    }
+
+    private PackedGame read(long gameId) {
+        final MappedByteBuffer segment = segmentOf(gameId);
+        final int offset = offsetOf(gameId);
+        final PackedGame first = readSlot(segment, offset);
+        final PackedGame second = readSlot(segment, offset + RECORD_SIZE);
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return first.version > second.version ? first : second;
+    }
+
+    private void write(long gameId, PackedGame packedGame) {
+        final MappedByteBuffer segment = segmentOf(gameId);
+        final int offset = offsetOf(gameId) + (int) (packedGame.version & 1) * RECORD_SIZE;
+        segment.putLong(offset, packedGame.lowPits());
+        segment.putLong(offset + Long.BYTES, packedGame.highPits());
+        segment.putLong(offset + PLAYERS_OFFSET, packedGame.southPlayer());
+        segment.putLong(offset + PLAYERS_OFFSET + Long.BYTES, packedGame.northPlayer());
+        segment.putInt(offset + VERSION_OFFSET, (int) packedGame.version);
+        segment.putInt(offset + CHECKSUM_OFFSET, checksum(segment, offset));
+    }
+
+    private static PackedGame readSlot(MappedByteBuffer segment, int offset) {
+        if (segment.getInt(offset + CHECKSUM_OFFSET) != checksum(segment, offset)) {
+            return null;
+        }
+        return new PackedGame(segment.getInt(offset + VERSION_OFFSET),
+                segment.getLong(offset), segment.getLong(offset + Long.BYTES),
+                segment.getLong(offset + PLAYERS_OFFSET), segment.getLong(offset + PLAYERS_OFFSET + Long.BYTES));
+    }
+
+    private static int checksum(MappedByteBuffer segment, int offset) {
+        final CRC32 crc = new CRC32();
+        for (int i = 0; i < CHECKSUM_OFFSET; i += Integer.BYTES) {
+            final int value = segment.getInt(offset + i);
+            crc.update(value);
+            crc.update(value >>> 8);
+            crc.update(value >>> 16);
+            crc.update(value >>> 24);
+        }
+        return (int) crc.getValue();
+    }
+
+    private int offsetOf(long gameId) {
+        return HEADER_SIZE + (int) (gameId % gamesPerSegment) * SLOTS_PER_GAME * RECORD_SIZE;
+    }
+
+    private StampedLock lockOf(long gameId) {
+        return locks[(int) (gameId & (LOCK_STRIPES - 1))];
+    }
+
+    private MappedByteBuffer segmentOf(long gameId) {
+        final int segmentIndex = (int) (gameId / gamesPerSegment);
+        final MappedByteBuffer segment = segments.get(segmentIndex);
+        return segment != null ? segment : mapSegment(segmentIndex);
+    }
+
+    private synchronized MappedByteBuffer mapSegment(int segmentIndex) {
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        if (segment == null) {
+            final Path file = directory.resolve(String.format("games-%05d.dat", segmentIndex));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final boolean created = channel.size() == 0;
+                if (!created) {
+                    checkHeader(channel, file);
+                }
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) gamesPerSegment * SLOTS_PER_GAME * RECORD_SIZE);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                if (created) {
+                    writeHeader(segment);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Cannot map game segment [%s].", file), e);
+            }
+            segments.set(segmentIndex, segment);
+        }
+        return segment;
+    }
+
+    private void writeHeader(ByteBuffer header) {
+        header.putInt(0, MAGIC);
+        header.putInt(Integer.BYTES, FORMAT_VERSION);
+        header.putInt(2 * Integer.BYTES, RECORD_SIZE);
+        header.putInt(3 * Integer.BYTES, gamesPerSegment);
+    }
+
+    private void checkHeader(FileChannel channel, Path file) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer expected = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader(expected);
+        channel.read(header, 0);
+        header.clear();
+        if (!header.equals(expected)) {
+            throw new IllegalStateException(String.format("Game segment [%s] is not of the format [%d] with [%d] games per segment.",
+                    file, FORMAT_VERSION, gamesPerSegment));
+        }
+    }
+
+    private void recover() {
+        try {
+            Files.createDirectories(directory);
+            final List<Integer> segmentIndexes = new ArrayList<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> {
+                    final Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        segmentIndexes.add(Integer.parseInt(matcher.group(1)));
+                    }
+                });
+            }
+            long maxId = 0;
+            long games = 0;
+            for (int segmentIndex : segmentIndexes) {
+                final MappedByteBuffer segment = mapSegment(segmentIndex);
+                for (int i = 0; i < gamesPerSegment; i++) {
+                    final int offset = HEADER_SIZE + i * SLOTS_PER_GAME * RECORD_SIZE;
+                    if (readSlot(segment, offset) != null || readSlot(segment, offset + RECORD_SIZE) != null) {
+                        maxId = Math.max(maxId, (long) segmentIndex * gamesPerSegment + i);
+                        games++;
+                    }
+                }
+            }
+            lastId.set(maxId);
+            log.info("Recovered [{}] games from [{}] off-heap segments, last game id is [{}].", games, segmentIndexes.size(), maxId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot open off-heap game store in [%s].", directory), e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.korniienko.kalah.dao.memory;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.off-heap")
+@Data
+public class OffHeapStoreProperties {
+
+    private String directory = "data/games";
+
+    private int gamesPerSegment = 1 << 20;
+}
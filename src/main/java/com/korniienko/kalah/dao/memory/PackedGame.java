@@ -0,0 +1,142 @@
+package com.korniienko.kalah.dao.memory;
+
+import com.korniienko.kalah.dao.PitStatusView;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable game state packed into two longs: one byte per pit (pits 1-8 in {@code lowPits}, pits 9-14 in the
+ * lower six bytes of {@code highPits}) and the game flags in the seventh byte of {@code highPits}.
+ * The player ids are kept aside, {@link #NO_PLAYER} stands for a game without a player.
+ */
+final class PackedGame {
+
+    static final int PITS_SIZE = 14;
+    private static final int SOUTH_KALAH_INDEX = 7;
+    private static final int NORTH_KALAH_INDEX = 14;
+    private static final int LOW_PITS = 8;
+    private static final int FLAGS_SHIFT = 48;
+
+    private static final long NORTH_TURN = 1;
+    private static final long HAS_WINNER = 1 << 1;
+    private static final long NORTH_WINNER = 1 << 2;
+    private static final long DRAW = 1 << 3;
+    private static final long GAME_OVER = 1 << 4;
+
+    static final long NO_PLAYER = 0;
+
+    final long version;
+    private final long lowPits;
+    private final long highPits;
+    private final long southPlayer;
+    private final long northPlayer;
+
+    PackedGame(long version, long lowPits, long highPits, long southPlayer, long northPlayer) {
+        this.version = version;
+        this.lowPits = lowPits;
+        this.highPits = highPits;
+        this.southPlayer = southPlayer;
+        this.northPlayer = northPlayer;
+    }
+
+    static PackedGame of(Game game, long version) {
+        long lowPits = 0;
+        long highPits = 0;
+        for (Pit pit : game.getPits()) {
+            final int position = pit.getIndex() - 1;
+            final long weight = pit.getWeight() & 0xFF;
+            if (position < LOW_PITS) {
+                lowPits |= weight << (position * Byte.SIZE);
+            } else {
+                highPits |= weight << ((position - LOW_PITS) * Byte.SIZE);
+            }
+        }
+        long flags = game.getTurn() == Pit.Part.NORTH ? NORTH_TURN : 0;
+        if (game.getWinner() != null) {
+            flags |= HAS_WINNER | (game.getWinner() == Pit.Part.NORTH ? NORTH_WINNER : 0);
+        }
+        flags |= (game.isDraw() ? DRAW : 0) | (game.isGameOver() ? GAME_OVER : 0);
+        return new PackedGame(version, lowPits, highPits | flags << FLAGS_SHIFT,
+                playerOf(game.getSouthPlayerId()), playerOf(game.getNorthPlayerId()));
+    }
+
+    long lowPits() {
+        return lowPits;
+    }
+
+    long highPits() {
+        return highPits;
+    }
+
+    long southPlayer() {
+        return southPlayer;
+    }
+
+    long northPlayer() {
+        return northPlayer;
+    }
+
+    int weight(int index) {
+        final int position = index - 1;
+        return position < LOW_PITS
+                ? (int) (lowPits >>> (position * Byte.SIZE)) & 0xFF
+                : (int) (highPits >>> ((position - LOW_PITS) * Byte.SIZE)) & 0xFF;
+    }
+
+    Pit.Part turn() {
+        return hasFlag(NORTH_TURN) ? Pit.Part.NORTH : Pit.Part.SOUTH;
+    }
+
+    Pit.Part winner() {
+        if (!hasFlag(HAS_WINNER)) {
+            return null;
+        }
+        return hasFlag(NORTH_WINNER) ? Pit.Part.NORTH : Pit.Part.SOUTH;
+    }
+
+    boolean draw() {
+        return hasFlag(DRAW);
+    }
+
+    boolean gameOver() {
+        return hasFlag(GAME_OVER);
+    }
+
+    Game toGame(long gameId) {
+        final Game game = new Game();
+        game.setId(gameId);
+        game.setVersion(version);
+        game.setTurn(turn());
+        game.setWinner(winner());
+        game.setDraw(draw());
+        game.setGameOver(gameOver());
+        game.setSouthPlayerId(southPlayer == NO_PLAYER ? null : southPlayer);
+        game.setNorthPlayerId(northPlayer == NO_PLAYER ? null : northPlayer);
+        final List<Pit> pits = new ArrayList<>(PITS_SIZE);
+        for (int i = 1; i <= PITS_SIZE; i++) {
+            final boolean isKalah = i == SOUTH_KALAH_INDEX || i == NORTH_KALAH_INDEX;
+            pits.add(new Pit(game, i, isKalah, i <= SOUTH_KALAH_INDEX ? Pit.Part.SOUTH : Pit.Part.NORTH, weight(i)));
+        }
+        game.setPits(pits);
+        return game;
+    }
+
+    List<PitStatusView> toStatusViews() {
+        final List<PitStatusView> views = new ArrayList<>(PITS_SIZE);
+        for (int i = 1; i <= PITS_SIZE; i++) {
+            views.add(new PitStatusView(i, weight(i), turn(), winner(), draw(), gameOver(), version));
+        }
+        return views;
+    }
+
+    private static long playerOf(Long playerId) {
+        return playerId == null ? NO_PLAYER : playerId;
+    }
+
+    private boolean hasFlag(long flag) {
+        return (highPits >>> FLAGS_SHIFT & flag) != 0;
+    }
+}
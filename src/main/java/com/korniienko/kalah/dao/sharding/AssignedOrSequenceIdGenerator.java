@@ -0,0 +1,20 @@
+package com.korniienko.kalah.dao.sharding;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.io.Serializable;
+
+/**
+ * Sequence generator which keeps an id assigned before persisting, games get their id up front when sharding
+ * is enabled because the id decides the shard the game is stored in.
+ */
+public class AssignedOrSequenceIdGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        final Serializable id = session.getEntityPersister(null, object).getIdentifier(object, session);
+        return id != null ? id : super.generate(session, object);
+    }
+}
@@ -0,0 +1,48 @@
+package com.korniienko.kalah.dao.sharding;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Maps game ids to shard numbers with consistent hashing, every shard owns a number of virtual nodes on the ring.
+ * The ring is immutable after construction and safe to share between threads.
+ */
+public class ConsistentHashRing {
+
+    private static final long NODE_SALT = 0x9e3779b97f4a7c15L;
+
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+    private final int shardCount;
+
+    public ConsistentHashRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Shard count and virtual nodes amount should be positive.");
+        }
+        this.shardCount = shardCount;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(mix(mix(((long) shard << 32) | node) ^ NODE_SALT), shard);
+            }
+        }
+    }
+
+    public int shardFor(long key) {
+        final Map.Entry<Long, Integer> entry = ring.ceilingEntry(mix(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,31 @@
+package com.korniienko.kalah.dao.sharding;
+
+/**
+ * Holds the shard selected for the current thread, read by {@link ShardRoutingDataSource} when a connection is taken.
+ * No shard selected means the home shard, which also stores everything that is not a game.
+ */
+final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+
+    static Integer enter(int shard) {
+        final Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
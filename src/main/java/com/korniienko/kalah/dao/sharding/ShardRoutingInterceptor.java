@@ -0,0 +1,190 @@
+package com.korniienko.kalah.dao.sharding;
+
+import com.korniienko.kalah.model.Game;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes repository calls to shards: calls keyed by a game id or a game go to the shard owning that id,
+ * calls with a collection of ids or games are split per shard, everything else is executed on all shards
+ * in parallel and the results are merged. Calls made while a shard is already selected are not routed again.
+ * A {@link Pageable} list query returns up to one page from every shard.
+ * <p>
+ * Routed calls must not run inside an outer transaction, the connection of such transaction is already bound
+ * to a shard and would be reused.
+ */
+@Slf4j
+public class ShardRoutingInterceptor implements MethodInterceptor, DisposableBean {
+
+    private final ConsistentHashRing ring;
+    private final List<DataSource> shards;
+    private final ExecutorService scatterExecutor;
+    private volatile AtomicLong gameIds;
+
+    public ShardRoutingInterceptor(ConsistentHashRing ring, List<DataSource> shards) {
+        this.ring = ring;
+        this.shards = shards;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.scatterExecutor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            final Thread thread = new Thread(runnable, "shard-scatter-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        final Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class || ShardContext.current() != null) {
+            return invocation.proceed();
+        }
+        final Object[] arguments = invocation.getArguments();
+        final Object key = arguments.length > 0 ? arguments[0] : null;
+        if (key instanceof Long) {
+            return onShard(ring.shardFor((Long) key), invocation);
+        } else if (key instanceof Game) {
+            return onShard(shardOf((Game) key), invocation);
+        } else if (key instanceof Iterable) {
+            return splitByShard(invocation, (Iterable<?>) key);
+        }
+        final boolean mergesList = List.class.isAssignableFrom(method.getReturnType());
+        for (Object argument : arguments) {
+            if (argument instanceof Sort || argument instanceof Pageable && !mergesList) {
+                throw new UnsupportedOperationException(String.format("Paged or sorted [%s] is not supported on sharded games.", method.getName()));
+            }
+        }
+        return scatter(invocation, Collections.nCopies(shards.size(), arguments));
+    }
+
+    @Override
+    public void destroy() {
+        scatterExecutor.shutdownNow();
+    }
+
+    int shardOf(Game game) {
+        if (game.getId() == null) {
+            game.setId(nextGameId());
+        }
+        return ring.shardFor(game.getId());
+    }
+
+    private Object onShard(int shard, MethodInvocation invocation) throws Throwable {
+        final Integer previous = ShardContext.enter(shard);
+        try {
+            return invocation.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    private Object splitByShard(MethodInvocation invocation, Iterable<?> keys) throws Throwable {
+        final List<List<Object>> keysByShard = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            keysByShard.add(new ArrayList<>());
+        }
+        for (Object key : keys) {
+            final int shard = key instanceof Game ? shardOf((Game) key) : ring.shardFor((Long) key);
+            keysByShard.get(shard).add(key);
+        }
+        final List<Object[]> argumentsByShard = new ArrayList<>();
+        for (List<Object> shardKeys : keysByShard) {
+            final Object[] arguments = invocation.getArguments().clone();
+            arguments[0] = shardKeys;
+            argumentsByShard.add(shardKeys.isEmpty() ? null : arguments);
+        }
+        return scatter(invocation, argumentsByShard);
+    }
+
+    private Object scatter(MethodInvocation invocation, List<Object[]> argumentsByShard) throws Throwable {
+        final Object repository = ((ProxyMethodInvocation) invocation).getProxy();
+        final Method method = invocation.getMethod();
+        final List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < argumentsByShard.size(); i++) {
+            final int shard = i;
+            final Object[] arguments = argumentsByShard.get(i);
+            if (arguments != null) {
+                futures.add(scatterExecutor.submit(() -> invokeOnShard(shard, repository, method, arguments)));
+            }
+        }
+        final List<Object> results = new ArrayList<>();
+        try {
+            for (Future<Object> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+        return merge(method.getReturnType(), results);
+    }
+
+    private Object invokeOnShard(int shard, Object repository, Method method, Object[] arguments) throws Exception {
+        final Integer previous = ShardContext.enter(shard);
+        try {
+            return method.invoke(repository, arguments);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object merge(Class<?> returnType, List<Object> results) {
+        if (List.class.isAssignableFrom(returnType)) {
+            final List merged = new ArrayList();
+            results.forEach(result -> merged.addAll((List) result));
+            if (!merged.isEmpty() && merged.get(0) instanceof Game) {
+                merged.sort(Comparator.comparing(Game::getId));
+            } else if (!merged.isEmpty() && merged.get(0) instanceof Comparable) {
+                merged.sort(null);
+            }
+            return merged;
+        } else if (returnType == long.class || returnType == Long.class) {
+            return results.stream().mapToLong(Long.class::cast).sum();
+        } else if (returnType == boolean.class || returnType == Boolean.class) {
+            return results.stream().anyMatch(Boolean.TRUE::equals);
+        } else if (returnType == Optional.class) {
+            return results.stream().map(Optional.class::cast).filter(Optional::isPresent).findFirst().orElse(Optional.empty());
+        } else if (returnType == void.class) {
+            return null;
+        }
+        throw new UnsupportedOperationException(String.format("Cannot merge [%s] results from several shards.", returnType.getName()));
+    }
+
+    private long nextGameId() {
+        AtomicLong ids = gameIds;
+        if (ids == null) {
+            synchronized (this) {
+                ids = gameIds;
+                if (ids == null) {
+                    long maxId = 0;
+                    for (DataSource shard : shards) {
+                        final Long shardMaxId = new JdbcTemplate(shard).queryForObject("select coalesce(max(id), 0) from game", Long.class);
+                        maxId = Math.max(maxId, shardMaxId == null ? 0 : shardMaxId);
+                    }
+                    log.debug("Game ids continue after [{}].", maxId);
+                    ids = new AtomicLong(maxId);
+                    gameIds = ids;
+                }
+            }
+        }
+        return ids.incrementAndGet();
+    }
+}
@@ -0,0 +1,40 @@
+package com.korniienko.kalah.dao.sharding;
+
+import com.korniienko.kalah.dao.GameRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+
+/**
+ * Adds {@link ShardRoutingInterceptor} as the outermost advice of {@link GameRepository}, so the shard is selected
+ * before the repository opens a transaction and takes a connection.
+ */
+public class ShardRoutingJpaRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extends Serializable>
+        extends JpaRepositoryFactoryBean<T, S, ID> {
+
+    private ShardRoutingInterceptor shardRoutingInterceptor;
+
+    public ShardRoutingJpaRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
+        super(repositoryInterface);
+    }
+
+    @Autowired
+    public void setShardRoutingInterceptor(ShardRoutingInterceptor shardRoutingInterceptor) {
+        this.shardRoutingInterceptor = shardRoutingInterceptor;
+    }
+
+    @Override
+    protected RepositoryFactorySupport createRepositoryFactory(EntityManager entityManager) {
+        final RepositoryFactorySupport repositoryFactory = super.createRepositoryFactory(entityManager);
+        repositoryFactory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+            if (GameRepository.class.equals(repositoryInformation.getRepositoryInterface())) {
+                proxyFactory.addAdvice(0, shardRoutingInterceptor);
+            }
+        });
+        return repositoryFactory;
+    }
+}
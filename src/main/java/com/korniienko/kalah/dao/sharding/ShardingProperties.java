@@ -0,0 +1,17 @@
+package com.korniienko.kalah.dao.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.sharding")
+@Data
+public class ShardingProperties {
+
+    private int shardCount = 4;
+
+    private int virtualNodes = 64;
+
+    private String urlTemplate = "jdbc:h2:mem:kalah-shard-%d";
+}
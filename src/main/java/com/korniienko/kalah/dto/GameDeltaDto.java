@@ -0,0 +1,21 @@
+package com.korniienko.kalah.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Changes made by one move: pits with a new weight, the turn if it changed and the result once the game is over.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameDeltaDto {
+    Long version;
+    Map<Integer, String> changed;
+    Pit.Part turn;
+    Boolean gameOver;
+    Pit.Part winner;
+    Boolean draw;
+}
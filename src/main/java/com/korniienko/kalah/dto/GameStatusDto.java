@@ -1,10 +1,17 @@
 package com.korniienko.kalah.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Value;
 
+import java.util.List;
 import java.util.Map;
 
 @Value
 public class GameStatusDto {
     Map<Integer, String> status;
+    List<LegalMovesDto.Move> legalMoves;
+    @JsonIgnore
+    Long version;
+    @JsonIgnore
+    boolean finished;
 }
@@ -0,0 +1,18 @@
+package com.korniienko.kalah.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class LeaderboardDto {
+    int players;
+    List<Entry> entries;
+
+    @Value
+    public static class Entry {
+        int rank;
+        Long userId;
+        int rating;
+    }
+}
@@ -0,0 +1,19 @@
+package com.korniienko.kalah.dto;
+
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class LegalMovesDto {
+    Pit.Part turn;
+    List<Move> moves;
+
+    @Value
+    public static class Move {
+        int pit;
+        boolean extraTurn;
+        boolean capture;
+    }
+}
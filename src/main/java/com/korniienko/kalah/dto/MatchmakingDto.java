@@ -0,0 +1,13 @@
+package com.korniienko.kalah.dto;
+
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+@Value
+public class MatchmakingDto {
+    String status;
+    Integer rating;
+    Long waitedMillis;
+    GameDto game;
+    Pit.Part side;
+}
@@ -0,0 +1,20 @@
+package com.korniienko.kalah.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class PositionStatsDto {
+    String position;
+    List<MoveStats> moves;
+
+    @Value
+    public static class MoveStats {
+        int pit;
+        long played;
+        long won;
+        long drawn;
+        long lost;
+    }
+}
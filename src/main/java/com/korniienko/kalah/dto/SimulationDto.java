@@ -0,0 +1,23 @@
+package com.korniienko.kalah.dto;
+
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+@Value
+public class SimulationDto {
+    List<Step> steps;
+
+    @Value
+    public static class Step {
+        int pit;
+        Map<Integer, String> status;
+        Pit.Part turn;
+        boolean gameOver;
+        Pit.Part winner;
+        boolean draw;
+        List<LegalMovesDto.Move> legalMoves;
+    }
+}
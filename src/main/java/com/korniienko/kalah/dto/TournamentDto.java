@@ -0,0 +1,36 @@
+package com.korniienko.kalah.dto;
+
+import com.korniienko.kalah.service.tournament.TournamentFormat;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class TournamentDto {
+    Long id;
+    TournamentFormat format;
+    String status;
+    int round;
+    int rounds;
+    long finishedGames;
+    List<Standing> standings;
+    List<Match> games;
+
+    @Value
+    public static class Standing {
+        String player;
+        double points;
+        int wins;
+        int draws;
+        int losses;
+    }
+
+    @Value
+    public static class Match {
+        Long gameId;
+        String uri;
+        String south;
+        String north;
+        boolean finished;
+    }
+}
@@ -0,0 +1,13 @@
+package com.korniienko.kalah.dto;
+
+import com.korniienko.kalah.service.tournament.TournamentFormat;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class TournamentRequestDto {
+    TournamentFormat format;
+    List<String> players;
+    Integer rounds;
+}
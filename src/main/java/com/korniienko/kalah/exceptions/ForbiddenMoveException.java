@@ -0,0 +1,8 @@
+package com.korniienko.kalah.exceptions;
+
+public class ForbiddenMoveException extends RuntimeException {
+
+    public ForbiddenMoveException(String message) {
+        super(message);
+    }
+}
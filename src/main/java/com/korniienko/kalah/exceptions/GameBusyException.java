@@ -0,0 +1,16 @@
+package com.korniienko.kalah.exceptions;
+
+public class GameBusyException extends RuntimeException {
+
+    public GameBusyException(String message) {
+        super(message);
+    }
+
+    /**
+     * Raised under contention, where capturing the stack trace would only add to the load.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
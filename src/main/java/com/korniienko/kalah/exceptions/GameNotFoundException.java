@@ -5,4 +5,12 @@ public class GameNotFoundException extends RuntimeException {
     public GameNotFoundException(String message) {
         super(message);
     }
+
+    /**
+     * Only the message reaches the client, the stack trace is not captured.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
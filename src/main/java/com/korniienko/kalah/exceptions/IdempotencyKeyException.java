@@ -0,0 +1,8 @@
+package com.korniienko.kalah.exceptions;
+
+public class IdempotencyKeyException extends RuntimeException {
+
+    public IdempotencyKeyException(String message) {
+        super(message);
+    }
+}
@@ -5,4 +5,12 @@ public class IllegalMoveException extends IllegalArgumentException {
     public IllegalMoveException(String message) {
         super(message);
     }
+
+    /**
+     * Illegal moves are routine in bot traffic and only the message is returned, the stack trace is not captured.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
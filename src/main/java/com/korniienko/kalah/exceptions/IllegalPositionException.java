@@ -0,0 +1,8 @@
+package com.korniienko.kalah.exceptions;
+
+public class IllegalPositionException extends IllegalArgumentException {
+
+    public IllegalPositionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.korniienko.kalah.exceptions;
+
+public class IllegalTournamentException extends IllegalArgumentException {
+
+    public IllegalTournamentException(String message) {
+        super(message);
+    }
+}
@@ -16,14 +16,14 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 @RestControllerAdvice
 public class KalahApplicationExceptionHandler extends ResponseEntityExceptionHandler {
 
-    @ExceptionHandler(value = IllegalMoveException.class)
+    @ExceptionHandler(value = {IllegalMoveException.class, IllegalTournamentException.class, IllegalPositionException.class})
     protected ResponseEntity<Object> handleIllegalMove(RuntimeException ex, WebRequest request) {
         logger.debug(ex.getMessage(), ex);
         final ErrorResponseDto body = new ErrorResponseDto(HttpStatus.BAD_REQUEST, ex.getMessage());
         return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
     }
 
-    @ExceptionHandler(value = {GameNotFoundException.class, UsernameNotFoundException.class})
+    @ExceptionHandler(value = {GameNotFoundException.class, TournamentNotFoundException.class, UsernameNotFoundException.class})
     protected ResponseEntity<Object> handleEntityNotFound(RuntimeException ex, WebRequest request) {
         log.debug(ex.getMessage(), ex);
         final ErrorResponseDto body = new ErrorResponseDto(HttpStatus.NOT_FOUND, ex.getMessage());
@@ -37,6 +37,36 @@ public class KalahApplicationExceptionHandler extends ResponseEntityExceptionHan
         return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
     }
 
+    @ExceptionHandler(value = {ForbiddenMoveException.class})
+    protected ResponseEntity<Object> handleForbiddenMove(RuntimeException ex, WebRequest request) {
+        log.debug(ex.getMessage(), ex);
+        final ErrorResponseDto body = new ErrorResponseDto(HttpStatus.FORBIDDEN, ex.getMessage());
+        return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.FORBIDDEN, request);
+    }
+
+    @ExceptionHandler(value = {GameBusyException.class})
+    protected ResponseEntity<Object> handleGameBusy(RuntimeException ex, WebRequest request) {
+        log.debug(ex.getMessage(), ex);
+        final ErrorResponseDto body = new ErrorResponseDto(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
+    @ExceptionHandler(value = {IdempotencyKeyException.class})
+    protected ResponseEntity<Object> handleIdempotencyKey(RuntimeException ex, WebRequest request) {
+        log.debug(ex.getMessage(), ex);
+        final ErrorResponseDto body = new ErrorResponseDto(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+        return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.UNPROCESSABLE_ENTITY, request);
+    }
+
+    @ExceptionHandler(value = {TooManyRequestsException.class})
+    protected ResponseEntity<Object> handleTooManyRequests(TooManyRequestsException ex, WebRequest request) {
+        log.debug(ex.getMessage(), ex);
+        final ErrorResponseDto body = new ErrorResponseDto(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return handleExceptionInternal(ex, body, headers, HttpStatus.TOO_MANY_REQUESTS, request);
+    }
+
     @ExceptionHandler(value = {RuntimeException.class})
     protected ResponseEntity<Object> handleRuntimeException(RuntimeException ex, WebRequest request) {
         log.debug(ex.getMessage(), ex);
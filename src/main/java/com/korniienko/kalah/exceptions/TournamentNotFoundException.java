@@ -0,0 +1,8 @@
+package com.korniienko.kalah.exceptions;
+
+public class TournamentNotFoundException extends RuntimeException {
+
+    public TournamentNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package com.korniienko.kalah.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Finished game moved out of the live tables: a fixed-size record with the final pit weights packed one byte per pit.
+ * The version is the last version of the live game, so the game keeps its {@code ETag} after it is archived.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class ArchivedGame {
+
+    @Id
+    private Long id;
+
+    @Column(length = 14, nullable = false)
+    private byte[] board;
+
+    private Pit.Part winner;
+
+    private boolean draw;
+
+    private Long version;
+}
@@ -2,6 +2,7 @@ package com.korniienko.kalah.model;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -13,9 +14,13 @@ import java.util.List;
 public class Game {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "game_id")
+    @GenericGenerator(name = "game_id", strategy = "com.korniienko.kalah.dao.sharding.AssignedOrSequenceIdGenerator")
     private Long id;
 
+    @Version
+    private Long version;
+
     private Pit.Part turn = Pit.Part.randomPart();
 
     private Pit.Part winner = null;
@@ -23,10 +28,30 @@ public class Game {
     private boolean draw;
 
     @OneToMany(mappedBy = "game", cascade = CascadeType.ALL)
+    @OrderBy("index")
     private List<Pit> pits = new ArrayList<>();
 
     private boolean gameOver;
 
+    private Long southPlayerId;
+
+    private Long northPlayerId;
+
+    /**
+     * Number of moves played. A move which changes only the pits changes this column too, so {@link #version}
+     * grows with every move and a concurrent move of a stale copy is always detected.
+     */
+    private int moves;
+
+    /**
+     * Zobrist hash of the position maintained by the game rules, not stored.
+     */
+    @Transient
+    private long positionHash;
+
+    @Transient
+    private long mirroredPositionHash;
+
     public void switchTurn() {
         setTurn(getTurn().opposite());
     }
@@ -0,0 +1,41 @@
+package com.korniienko.kalah.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import java.time.Instant;
+
+/**
+ * Game event waiting in the outbox to be relayed to other services, written in the transaction which stored the game.
+ * The payload is the event as JSON, the type is the simple name of the event class.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_id")
+    @SequenceGenerator(name = "outbox_event_id", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long gameId;
+
+    @Column(length = 64, nullable = false)
+    private String type;
+
+    @Column(length = 1024, nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -6,7 +6,7 @@ import javax.persistence.*;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Data
 @NoArgsConstructor
@@ -42,10 +42,9 @@ public class Pit {
         private static final List<Part> VALUES =
                 Collections.unmodifiableList(Arrays.asList(values()));
         private static final int SIZE = VALUES.size();
-        private static final Random RANDOM = new Random();
 
         public static Part randomPart() {
-            final int randomIndex = RANDOM.nextInt(SIZE);
+            final int randomIndex = ThreadLocalRandom.current().nextInt(SIZE);
             return VALUES.get(randomIndex);
         }
 
@@ -18,6 +18,7 @@ import java.util.List;
 import static java.util.stream.Collectors.toList;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_user_username", columnNames = "username"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -29,12 +30,13 @@ public class User implements UserDetails {
     private Long id;
 
     @NotEmpty
+    @Column(nullable = false)
     private String username;
 
     @NotEmpty
     private String password;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
     @Builder.Default
     private List<String> roles = new ArrayList<>();
 
@@ -0,0 +1,42 @@
+package com.korniienko.kalah.security.jwt;
+
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Authenticates game requests of the {@code fast-path} profile instead of the Spring Security filter chain.
+ * The token is verified with a single parse and its subject is put into the {@link #USERNAME_ATTRIBUTE} request attribute,
+ * the user is not loaded and nothing is stored in {@code SecurityContextHolder}.
+ * Requests without a valid token are answered by {@link JwtAuthenticationEntryPoint}.
+ */
+public class JwtFastPathFilter extends OncePerRequestFilter {
+
+    public static final String USERNAME_ATTRIBUTE = JwtFastPathFilter.class.getName() + ".USERNAME";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+
+    public JwtFastPathFilter(JwtTokenProvider jwtTokenProvider, JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.jwtAuthenticationEntryPoint = jwtAuthenticationEntryPoint;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        final String token = jwtTokenProvider.resolveToken(request);
+        final String username = token != null ? jwtTokenProvider.getVerifiedUsername(token) : null;
+        if (username == null) {
+            jwtAuthenticationEntryPoint.commence(request, response,
+                    new InsufficientAuthenticationException("Full authentication is required to access this resource"));
+            return;
+        }
+        request.setAttribute(USERNAME_ATTRIBUTE, username);
+        filterChain.doFilter(request, response);
+    }
+}
@@ -21,8 +21,9 @@ public class JwtTokenAuthenticationFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String token = jwtTokenProvider.resolveToken(request);
-        if (token != null && jwtTokenProvider.validateToken(token)) {
-            Authentication authentication = jwtTokenProvider.getAuthentication(token);
+        String username = token != null ? jwtTokenProvider.getVerifiedUsername(token) : null;
+        if (username != null) {
+            Authentication authentication = jwtTokenProvider.getAuthenticationOf(username);
             if (authentication != null) {
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
@@ -1,14 +1,13 @@
 package com.korniienko.kalah.security.jwt;
 
-import com.korniienko.kalah.dao.UserRepository;
-import com.korniienko.kalah.model.User;
+import com.korniienko.kalah.service.MyUserDetailsService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
@@ -17,24 +16,25 @@ import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.List;
-import java.util.function.Supplier;
 
 @Component
 public class JwtTokenProvider {
 
     private final JwtProperties jwtProperties;
-    private final UserRepository userRepository;
+    private final MyUserDetailsService userDetailsService;
     private String secretKey;
+    private JwtParser jwtParser;
 
     @Autowired
-    public JwtTokenProvider(JwtProperties jwtProperties, UserRepository userRepository) {
+    public JwtTokenProvider(JwtProperties jwtProperties, MyUserDetailsService userDetailsService) {
         this.jwtProperties = jwtProperties;
-        this.userRepository = userRepository;
+        this.userDetailsService = userDetailsService;
     }
 
     @PostConstruct
     protected void init() {
         secretKey = Base64.getEncoder().encodeToString(jwtProperties.getSecretKey().getBytes());
+        jwtParser = Jwts.parserBuilder().setSigningKey(secretKey).build();
     }
 
     public String createToken(String username, List<String> authorities) {
@@ -52,20 +52,11 @@ public class JwtTokenProvider {
                 .compact();
     }
 
-    public Authentication getAuthentication(String token) {
-        final String username = getUsername(token);
-        final User user = userRepository.findByUsername(username).orElseThrow(usernameNotFound(username));
+    public Authentication getAuthenticationOf(String username) {
+        final UserDetails user = userDetailsService.loadUserByUsername(username);
         return new UsernamePasswordAuthenticationToken(user, "", user.getAuthorities());
     }
 
-    private Supplier<UsernameNotFoundException> usernameNotFound(String username) {
-        return () -> new UsernameNotFoundException(String.format("Username [%s]] not found", username));
-    }
-
-    public String getUsername(String token) {
-        return parseToken(token).getBody().getSubject();
-    }
-
     public String resolveToken(HttpServletRequest req) {
         String bearerToken = req.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
@@ -74,17 +65,21 @@ public class JwtTokenProvider {
         return null;
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the signature and the expiration of the token with a single parse.
+     *
+     * @return the subject of a valid token, {@code null} otherwise
+     */
+    public String getVerifiedUsername(String token) {
         try {
-            Jws<Claims> claims = parseToken(token);
-            return !claims.getBody().getExpiration().before(new Date());
+            return parseToken(token).getBody().getSubject();
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
 
     private Jws<Claims> parseToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(token);
+        return jwtParser.parseClaimsJws(token);
     }
 
 }
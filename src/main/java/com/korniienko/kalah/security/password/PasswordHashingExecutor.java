@@ -0,0 +1,120 @@
+package com.korniienko.kalah.security.password;
+
+import com.korniienko.kalah.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing (login and signup) on a dedicated bounded pool, so a login storm cannot occupy the request
+ * threads serving games. A task which does not fit into the queue is rejected with {@link TooManyRequestsException}.
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private final PasswordProperties passwordProperties;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    @Autowired
+    public PasswordHashingExecutor(PasswordProperties passwordProperties, MeterRegistry meterRegistry) {
+        this.passwordProperties = passwordProperties;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(passwordProperties.getHashingThreads(), passwordProperties.getHashingThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(passwordProperties.getHashingQueueCapacity()),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.rejected = meterRegistry.counter("kalah.password.hashing.rejected");
+        Gauge.builder("kalah.password.hashing.queued", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("kalah.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    /**
+     * A task still queued after {@code kalah.password.hashing-timeout-millis} is cancelled and rejected with
+     * {@link TooManyRequestsException}, a started task is waited for, as it may already be saving a new user.
+     */
+    public <T> T execute(Supplier<T> hashing) {
+        final Task<T> task = new Task<>(hashing);
+        final Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many login requests, please try again later.", 1);
+        }
+        boolean interrupted = false;
+        try {
+            try {
+                return future.get(passwordProperties.getHashingTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (task.cancel()) {
+                    future.cancel(false);
+                    throw new TooManyRequestsException("Login request was not processed in time, please try again later.", 1);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                if (task.cancel()) {
+                    future.cancel(false);
+                    throw new TooManyRequestsException("Login request was interrupted, please try again later.", 1);
+                }
+            }
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    int queued() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the hashing unless it was cancelled before it started, whichever comes first wins.
+     */
+    private static final class Task<T> implements Callable<T> {
+        private final Supplier<T> hashing;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Task(Supplier<T> hashing) {
+            this.hashing = hashing;
+        }
+
+        @Override
+        public T call() {
+            return claimed.compareAndSet(false, true) ? hashing.get() : null;
+        }
+
+        boolean cancel() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.korniienko.kalah.security.password;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.password")
+@Data
+public class PasswordProperties {
+
+    /**
+     * Encoder for new passwords: {@code bcrypt}, {@code pbkdf2} or {@code argon2}.
+     */
+    private String encoder = "bcrypt";
+
+    private int bcryptStrength = 10;
+
+    private int pbkdf2Iterations = 185000;
+
+    private int argon2MemoryKb = 4096;
+
+    private int argon2Iterations = 3;
+
+    private int hashingThreads = Runtime.getRuntime().availableProcessors();
+
+    private int hashingQueueCapacity = 64;
+
+    private long hashingTimeoutMillis = 5000;
+}
@@ -0,0 +1,73 @@
+package com.korniienko.kalah.security.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korniienko.kalah.dto.ErrorResponseDto;
+import com.korniienko.kalah.security.jwt.JwtFastPathFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Rejects game requests over the user limit of {@link RateLimiter} with {@code TOO_MANY_REQUESTS} and {@code Retry-After}.
+ * Runs after {@code JwtTokenAuthenticationFilter} or {@link JwtFastPathFilter}, the user is the subject of the token
+ * already put into the security context or the request, anonymous requests are left to the security rules.
+ * The moves of a game are limited by {@code GameService} once the player of the move is authorized, so users who do not
+ * play a game cannot use up its budget.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !URL_PATH_HELPER.getPathWithinApplication(request).startsWith("/games");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        final String username = usernameOf(request);
+        if (username != null) {
+            final long userWaitNanos = rateLimiter.acquireForUser(username);
+            if (userWaitNanos > 0) {
+                reject(response, userWaitNanos, String.format("Too many requests from user [%s].", username));
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String usernameOf(HttpServletRequest request) {
+        final Object username = request.getAttribute(JwtFastPathFilter.USERNAME_ATTRIBUTE);
+        if (username != null) {
+            return (String) username;
+        }
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos, String message) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(waitNanos)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(objectMapper.writeValueAsString(new ErrorResponseDto(HttpStatus.TOO_MANY_REQUESTS, message)));
+        response.getWriter().flush();
+    }
+}
@@ -0,0 +1,25 @@
+package com.korniienko.kalah.security.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    private double userRequestsPerSecond = 20;
+
+    private int userBurst = 40;
+
+    private double gameMovesPerSecond = 10;
+
+    private int gameBurst = 20;
+
+    private int maxTrackedUsers = 100_000;
+
+    private int stripes = 1 << 16;
+}
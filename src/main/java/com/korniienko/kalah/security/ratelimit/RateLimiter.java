@@ -0,0 +1,68 @@
+package com.korniienko.kalah.security.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for game requests: every user has a budget of requests and every game a budget of moves.
+ * Users have their own buckets ({@link UserTokenBuckets}), games share striped buckets by id.
+ */
+@Component
+public class RateLimiter {
+
+    private final boolean enabled;
+    private final UserTokenBuckets userBuckets;
+    private final TokenBuckets gameBuckets;
+    private final long origin = System.nanoTime();
+    private final Counter rejectedUsers;
+    private final Counter rejectedGames;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties rateLimitProperties, MeterRegistry meterRegistry) {
+        this.enabled = rateLimitProperties.isEnabled();
+        this.userBuckets = new UserTokenBuckets(rateLimitProperties.getUserRequestsPerSecond(), rateLimitProperties.getUserBurst(),
+                rateLimitProperties.getMaxTrackedUsers(), rateLimitProperties.getStripes());
+        this.gameBuckets = new TokenBuckets(rateLimitProperties.getGameMovesPerSecond(), rateLimitProperties.getGameBurst(), rateLimitProperties.getStripes());
+        this.rejectedUsers = meterRegistry.counter("kalah.rate-limit.rejected", "key", "user");
+        this.rejectedGames = meterRegistry.counter("kalah.rate-limit.rejected", "key", "game");
+    }
+
+    /**
+     * @return {@code 0} if the request is admitted, otherwise nanoseconds after which the user may retry
+     */
+    public long acquireForUser(String username) {
+        if (!enabled) {
+            return 0;
+        }
+        final long waitNanos = userBuckets.tryAcquire(username, System.nanoTime() - origin);
+        if (waitNanos > 0) {
+            rejectedUsers.increment();
+        }
+        return waitNanos;
+    }
+
+    /**
+     * @return {@code 0} if the move is admitted, otherwise nanoseconds after which a move in the game may be retried
+     */
+    public long acquireForGame(long gameId) {
+        if (!enabled) {
+            return 0;
+        }
+        final long waitNanos = gameBuckets.tryAcquire(gameId, System.nanoTime() - origin);
+        if (waitNanos > 0) {
+            rejectedGames.increment();
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Whole seconds to announce in {@code Retry-After}, at least one.
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.korniienko.kalah.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token buckets striped over a fixed array, keys with the same stripe share a bucket.
+ * A bucket is a single long, the theoretical arrival time of the next request (generic cell rate algorithm), which is
+ * equivalent to a token bucket of {@code burst} tokens refilled with {@code permitsPerSecond} and is updated with
+ * compare-and-set.
+ */
+class TokenBuckets {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLongArray arrivals;
+
+    TokenBuckets(double permitsPerSecond, int burst, int stripes) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.arrivals = new AtomicLongArray(stripes);
+    }
+
+    /**
+     * @return {@code 0} if a token is taken, otherwise nanoseconds until the next token is available
+     */
+    long tryAcquire(long key, long nowNanos) {
+        final int index = indexOf(key);
+        while (true) {
+            final long arrival = arrivals.get(index);
+            final long start = Math.max(arrival, nowNanos);
+            final long waitNanos = start - nowNanos - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (arrivals.compareAndSet(index, arrival, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) Math.floorMod(hash, (long) arrivals.length());
+    }
+}
@@ -0,0 +1,83 @@
+package com.korniienko.kalah.security.ratelimit;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets of users keyed by the username itself, so users never share a bucket while at most
+ * {@code maxUsers} of them are tracked. A bucket whose next arrival time has passed holds the full burst, exactly like
+ * a missing bucket, so idle buckets are dropped when the map is full (at most once per second). Users which still do
+ * not fit share the striped {@link TokenBuckets}, placed by a hash salted per instance, so a username cannot be chosen
+ * to land in the bucket of a given user.
+ */
+class UserTokenBuckets {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxUsers;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final TokenBuckets overflow;
+    private final long salt = new SecureRandom().nextLong();
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    UserTokenBuckets(double permitsPerSecond, int burst, int maxUsers, int overflowStripes) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.maxUsers = maxUsers;
+        this.overflow = new TokenBuckets(permitsPerSecond, burst, overflowStripes);
+    }
+
+    /**
+     * @return {@code 0} if a token is taken, otherwise nanoseconds until the next token is available
+     */
+    long tryAcquire(String username, long nowNanos) {
+        AtomicLong bucket = buckets.get(username);
+        if (bucket == null) {
+            if (buckets.size() >= maxUsers) {
+                sweep(nowNanos);
+                if (buckets.size() >= maxUsers) {
+                    return overflow.tryAcquire(hashOf(username), nowNanos);
+                }
+            }
+            bucket = buckets.computeIfAbsent(username, key -> new AtomicLong());
+        }
+        while (true) {
+            final long arrival = bucket.get();
+            final long start = Math.max(arrival, nowNanos);
+            final long waitNanos = start - nowNanos - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(arrival, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    int trackedUsers() {
+        return buckets.size();
+    }
+
+    /**
+     * A caller which took a bucket just before it is dropped may get one request for free.
+     */
+    private void sweep(long nowNanos) {
+        final long next = nextSweep.get();
+        if (nowNanos - next < 0 || !nextSweep.compareAndSet(next, nowNanos + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.get() <= nowNanos);
+    }
+
+    private long hashOf(String username) {
+        long hash = salt;
+        for (int i = 0; i < username.length(); i++) {
+            hash = (hash ^ username.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,17 @@
+package com.korniienko.kalah.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.archive")
+@Data
+public class ArchiveProperties {
+
+    private boolean enabled = true;
+
+    private int batchSize = 500;
+
+    private long intervalMillis = 60000;
+}
@@ -0,0 +1,85 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.dao.ArchivedGameRepository;
+import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.dao.PitArchiveView;
+import com.korniienko.kalah.model.ArchivedGame;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves finished games from the live tables to {@link ArchivedGame} records.
+ * The archive record is written before the live game is deleted, a batch interrupted in between is archived again
+ * on the next run and overwrites the same record.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class GameArchiver {
+
+    private final GameRepository gameRepository;
+    private final ArchivedGameRepository archivedGameRepository;
+    private final ArchiveProperties archiveProperties;
+
+    @Autowired
+    public GameArchiver(GameRepository gameRepository, ArchivedGameRepository archivedGameRepository, ArchiveProperties archiveProperties) {
+        this.gameRepository = gameRepository;
+        this.archivedGameRepository = archivedGameRepository;
+        this.archiveProperties = archiveProperties;
+    }
+
+    @Scheduled(initialDelayString = "${kalah.archive.interval-millis:60000}", fixedDelayString = "${kalah.archive.interval-millis:60000}")
+    public void archiveFinishedGames() {
+        if (!archiveProperties.isEnabled()) {
+            return;
+        }
+        int archived;
+        do {
+            archived = archiveBatch();
+        } while (archived >= archiveProperties.getBatchSize());
+    }
+
+    public Optional<ArchivedGame> findArchived(Long gameId) {
+        return archivedGameRepository.findById(gameId);
+    }
+
+    int archiveBatch() {
+        final List<Long> gameIds = gameRepository.findFinishedGameIds(PageRequest.of(0, archiveProperties.getBatchSize()));
+        if (gameIds.isEmpty()) {
+            return 0;
+        }
+        archivedGameRepository.saveAll(toArchivedGames(gameRepository.findArchiveViewsByIds(gameIds)));
+        gameRepository.deletePitsByGameIds(gameIds);
+        gameRepository.deleteGamesByIds(gameIds);
+        log.debug("Archived [{}] finished games.", gameIds.size());
+        return gameIds.size();
+    }
+
+    /**
+     * Pits come ordered by game, a game is complete when the pits of the next game start.
+     */
+    List<ArchivedGame> toArchivedGames(List<PitArchiveView> pits) {
+        final List<ArchivedGame> archivedGames = new ArrayList<>();
+        int first = 0;
+        for (int i = 0; i < pits.size(); i++) {
+            final PitArchiveView pit = pits.get(i);
+            if (i + 1 == pits.size() || !pits.get(i + 1).getGameId().equals(pit.getGameId())) {
+                final byte[] board = new byte[i + 1 - first];
+                for (PitArchiveView gamePit : pits.subList(first, i + 1)) {
+                    board[gamePit.getIndex() - 1] = gamePit.getWeight().byteValue();
+                }
+                archivedGames.add(new ArchivedGame(pit.getGameId(), board, pit.getWinner(), pit.isDraw(), pit.getVersion()));
+                first = i + 1;
+            }
+        }
+        return archivedGames;
+    }
+}
@@ -0,0 +1,14 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.service.events.GameEvent;
+import lombok.Value;
+
+/**
+ * Published by {@link GameService} when a new game is stored.
+ */
+@Value
+public class GameCreatedEvent implements GameEvent {
+    Long gameId;
+    Long southPlayerId;
+    Long northPlayerId;
+}
@@ -0,0 +1,28 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.events.GameEvent;
+import lombok.Value;
+
+/**
+ * Published by {@link GameService} once, by the move which finished the game.
+ * The player ids are {@code null} for games created without players. The game is rated only if every move of both
+ * sides was accepted from the assigned player of the side, i.e. both sides have a player and the players differ.
+ */
+@Value
+public class GameFinishedEvent implements GameEvent {
+    Long gameId;
+    Pit.Part winner;
+    boolean draw;
+    Long southPlayerId;
+    Long northPlayerId;
+    boolean rated;
+
+    /**
+     * Standings and ratings are updated from this event, it is never dropped.
+     */
+    @Override
+    public boolean mayBeDropped() {
+        return false;
+    }
+}
@@ -1,16 +1,28 @@
 package com.korniienko.kalah.service;
 
-import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.dao.GameStore;
+import com.korniienko.kalah.dao.PitStatusView;
+import com.korniienko.kalah.dao.journal.MoveJournal;
+import com.korniienko.kalah.dto.GameDeltaDto;
 import com.korniienko.kalah.dto.GameDto;
 import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.dto.LegalMovesDto;
+import com.korniienko.kalah.dto.SimulationDto;
+import com.korniienko.kalah.exceptions.ForbiddenMoveException;
+import com.korniienko.kalah.exceptions.GameBusyException;
 import com.korniienko.kalah.exceptions.GameNotFoundException;
 import com.korniienko.kalah.exceptions.IllegalMoveException;
+import com.korniienko.kalah.exceptions.TooManyRequestsException;
 import com.korniienko.kalah.model.Game;
 import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.events.GameEvent;
+import com.korniienko.kalah.service.events.GameEventPublisher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -23,48 +35,255 @@ public class GameService {
     static final int NORTH_KALAH_INDEX = 14;
     static final int INITIAL_NORTH_INDEX = 8;
     static final int INITIAL_SOUTH_INDEX = 1;
+    static final int MAX_MOVE_ATTEMPTS = 8;
+    static final int MAX_SIMULATED_MOVES = 64;
 
-    private final GameRepository gameRepository;
+    private final GameStore gameStore;
+    private final GameArchiver gameArchiver;
+    private final MoveJournal moveJournal;
+    private final GameEventPublisher eventPublisher;
+    private final LegalMoveGenerator legalMoveGenerator;
+    private final RateLimiter rateLimiter;
 
+    public GameService(GameStore gameStore, GameArchiver gameArchiver, MoveJournal moveJournal, GameEventPublisher eventPublisher,
+                       LegalMoveGenerator legalMoveGenerator) {
+        this(gameStore, gameArchiver, moveJournal, eventPublisher, legalMoveGenerator, null);
+    }
+
+    /**
+     * Without a {@link RateLimiter} the moves of a game are not limited.
+     */
     @Autowired
-    public GameService(GameRepository gameRepository) {
-        this.gameRepository = gameRepository;
+    public GameService(GameStore gameStore, GameArchiver gameArchiver, MoveJournal moveJournal, GameEventPublisher eventPublisher,
+                       LegalMoveGenerator legalMoveGenerator, RateLimiter rateLimiter) {
+        this.gameStore = gameStore;
+        this.gameArchiver = gameArchiver;
+        this.moveJournal = moveJournal;
+        this.eventPublisher = eventPublisher;
+        this.legalMoveGenerator = legalMoveGenerator;
+        this.rateLimiter = rateLimiter;
     }
 
     public GameDto newGame(String requestUrl) {
+        return newGame(requestUrl, null, null);
+    }
+
+    public GameDto newGame(String requestUrl, Long southPlayerId, Long northPlayerId) {
         Game game = new Game();
         game.setPits(initPits(game));
-        game = gameRepository.save(game);
+        game.setSouthPlayerId(southPlayerId);
+        game.setNorthPlayerId(northPlayerId);
+        final Function<Game, List<GameEvent>> events = created ->
+                Collections.singletonList(new GameCreatedEvent(created.getId(), southPlayerId, northPlayerId));
+        game = gameStore.create(game, events);
+        moveJournal.created(game);
+        events.apply(game).forEach(eventPublisher::publish);
         return new GameDto(game.getId(), gameUrl(game, requestUrl));
     }
 
     public List<GameDto> listGames(String requestUrl) {
-        return gameRepository
-                .findAll()
+        return gameStore
+                .findAllIds()
                 .stream()
-                .map(game -> new GameDto(game.getId(), gameUrl(game, requestUrl)))
+                .map(gameId -> new GameDto(gameId, gameUrl(gameId, requestUrl)))
                 .collect(Collectors.toList());
     }
 
     public GameStatusDto status(Long gameId) {
-        return gameRepository.findById(gameId)
-                .map(game -> new GameStatusDto(pitsToStatusMap(game.getPits())))
-                .orElseThrow(gameNotFound(gameId));
+        final List<PitStatusView> pits = gameStore.findStatusById(gameId);
+        if (pits.isEmpty()) {
+            return gameArchiver.findArchived(gameId)
+                    .map(archivedGame -> new GameStatusDto(archivedBoardToStatusMap(archivedGame.getBoard()), Collections.emptyList(),
+                            archivedGame.getVersion(), true))
+                    .orElseThrow(gameNotFound(gameId));
+        }
+        return new GameStatusDto(pitViewsToStatusMap(pits), legalMoves(pits), pits.get(0).getVersion(), pits.get(0).isGameOver());
+    }
+
+    /**
+     * Pits the side to move can play, a finished game has no turn and no moves.
+     */
+    public LegalMovesDto legalMoves(Long gameId) {
+        final List<PitStatusView> pits = gameStore.findStatusById(gameId);
+        if (pits.isEmpty()) {
+            return gameArchiver.findArchived(gameId)
+                    .map(archivedGame -> new LegalMovesDto(null, Collections.<LegalMovesDto.Move>emptyList()))
+                    .orElseThrow(gameNotFound(gameId));
+        }
+        final PitStatusView game = pits.get(0);
+        return new LegalMovesDto(game.isGameOver() ? null : game.getTurn(), legalMoves(pits));
+    }
+
+    /**
+     * The move is applied to a loaded copy of the game and stored only if nobody changed the game in between,
+     * otherwise it is validated and applied again on a fresh copy.
+     * Every stored move publishes {@link MoveAppliedEvent}, the move which finishes the game also {@link GameFinishedEvent}.
+     * A game with players assigned accepts the move only from the player of the side to move,
+     * the player supplier is asked for the id of the user making the move only for such games.
+     * A move of the authorized player is charged to the move budget of the game, see {@link RateLimiter#acquireForGame(long)}.
+     */
+    public GameStatusDto makeMove(Long gameId, Integer pitIndex, Supplier<Long> player) {
+        final Game game = move(gameId, pitIndex, player, null);
+        return new GameStatusDto(pitsToStatusMap(game.getPits()), legalMoves(game), game.getVersion(), game.isGameOver());
+    }
+
+    /**
+     * Same as {@link #makeMove(Long, Integer, Supplier)}, but answers only with the pits and flags changed by the move.
+     */
+    public GameDeltaDto makeMoveDelta(Long gameId, Integer pitIndex, Supplier<Long> player) {
+        final int[] weightsBefore = new int[PITS_SIZE];
+        final Game game = move(gameId, pitIndex, player, weightsBefore);
+        return delta(weightsBefore, pitIndex, game);
+    }
+
+    /**
+     * The side to move loses the game, if the game is not over and still has the version, so a move made meanwhile
+     * cancels the forfeit. The finished game is stored, journaled without a pit and publishes {@link GameFinishedEvent}
+     * like a finishing move, so it is archived as any other finished game.
+     *
+     * @return the side which forfeited, {@code null} if the game was not forfeited
+     */
+    public Pit.Part forfeit(Long gameId, long version) {
+        final Game game = gameStore.findById(gameId).orElseThrow(gameNotFoundOrArchived(gameId));
+        if (game.isGameOver() || game.getVersion() == null || game.getVersion() != version) {
+            return null;
+        }
+        final Pit.Part side = game.getTurn();
+        game.setWinner(side.opposite());
+        game.setGameOver(true);
+        final Function<Game, List<GameEvent>> events = updated -> Collections.singletonList(new GameFinishedEvent(updated.getId(),
+                updated.getWinner(), false, updated.getSouthPlayerId(), updated.getNorthPlayerId(), isEnforcedForBothSides(updated)));
+        if (!gameStore.update(game, events)) {
+            return null;
+        }
+        moveJournal.moved(game, 0);
+        events.apply(game).forEach(eventPublisher::publish);
+        return side;
+    }
+
+    /**
+     * Plays the pits one after another on a copy of the game by the same rules as {@link #makeMove(Long, Integer, Supplier)}
+     * and answers with the board after every move. Nothing is stored, journaled or published.
+     */
+    public SimulationDto simulate(Long gameId, List<Integer> pitIndexes) {
+        if (pitIndexes == null || pitIndexes.isEmpty() || pitIndexes.size() > MAX_SIMULATED_MOVES) {
+            throw new IllegalMoveException(String.format("A simulation takes from [1] to [%d] pits.", MAX_SIMULATED_MOVES));
+        }
+        final Game game = copyOf(gameStore.findById(gameId).orElseThrow(gameNotFoundOrArchived(gameId)));
+        final List<SimulationDto.Step> steps = new ArrayList<>(pitIndexes.size());
+        for (Integer pitIndex : pitIndexes) {
+            validatePitIndex(pitIndex);
+            validateAndMove(game, pitIndex);
+            steps.add(new SimulationDto.Step(pitIndex, pitsToStatusMap(game.getPits()), game.isGameOver() ? null : game.getTurn(),
+                    game.isGameOver(), game.getWinner(), game.isDraw(), legalMoves(game)));
+        }
+        return new SimulationDto(steps);
+    }
+
+    private Game copyOf(Game game) {
+        final Game copy = new Game();
+        copy.setId(game.getId());
+        copy.setVersion(game.getVersion());
+        copy.setTurn(game.getTurn());
+        copy.setWinner(game.getWinner());
+        copy.setDraw(game.isDraw());
+        copy.setGameOver(game.isGameOver());
+        final List<Pit> pits = new ArrayList<>(game.getPits().size());
+        for (Pit pit : game.getPits()) {
+            pits.add(new Pit(copy, pit.getIndex(), pit.isKalah(), pit.getPart(), pit.getWeight()));
+        }
+        copy.setPits(pits);
+        return copy;
+    }
+
+    private Game move(Long gameId, Integer pitIndex, Supplier<Long> player, int[] weightsBefore) {
+        validatePitIndex(pitIndex);
+        for (int attempt = 1; attempt <= MAX_MOVE_ATTEMPTS; attempt++) {
+            final Game game = gameStore.findById(gameId).orElseThrow(gameNotFoundOrArchived(gameId));
+            if (weightsBefore != null) {
+                copyWeights(game.getPits(), weightsBefore);
+            }
+            final long position = ZobristHash.of(game);
+            final long mirroredPosition = game.getMirroredPositionHash();
+            final Pit.Part side = game.getTurn();
+            validatePlayer(game, player);
+            if (attempt == 1) {
+                admitMove(gameId);
+            }
+            validateAndMove(game, pitIndex);
+            final Function<Game, List<GameEvent>> events = updated -> movedEvents(updated, pitIndex, side, position, mirroredPosition);
+            if (gameStore.update(game, events)) {
+                moveJournal.moved(game, pitIndex);
+                events.apply(game).forEach(eventPublisher::publish);
+                return game;
+            }
+        }
+        throw new GameBusyException(String.format("The game with id [%d] is changed concurrently, try again later.", gameId));
+    }
+
+    private void validatePitIndex(Integer pitIndex) {
+        if (pitIndex == null || pitIndex < INITIAL_SOUTH_INDEX || pitIndex > PITS_SIZE) {
+            throw new IllegalMoveException(String.format("Cannot make a move, there is no pit with index [%s].", pitIndex));
+        }
     }
 
-    public GameStatusDto makeMove(Long gameId, Integer pitIndex) {
-        return gameRepository.findById(gameId)
-                .map(game -> {
-                    validateAndMove(game, pitIndex);
-                    return new GameStatusDto(pitsToStatusMap(game.getPits()));
-                })
-                .orElseThrow(gameNotFound(gameId));
+    private void validatePlayer(Game game, Supplier<Long> player) {
+        if (game.isGameOver()) {
+            return;
+        }
+        final Long expected = playerOf(game, game.getTurn());
+        if (expected == null) {
+            return;
+        }
+        final Long actual = player.get();
+        if (!expected.equals(actual)) {
+            throw new ForbiddenMoveException(String.format("Player [%s] does not play the [%s] side of the game [%d].",
+                    actual, game.getTurn().name(), game.getId()));
+        }
+    }
+
+    private void admitMove(Long gameId) {
+        final long waitNanos = rateLimiter == null ? 0 : rateLimiter.acquireForGame(gameId);
+        if (waitNanos > 0) {
+            throw new TooManyRequestsException(String.format("Too many moves in the game with id [%d].", gameId),
+                    RateLimiter.retryAfterSeconds(waitNanos));
+        }
+    }
+
+    private Long playerOf(Game game, Pit.Part side) {
+        return side == Pit.Part.SOUTH ? game.getSouthPlayerId() : game.getNorthPlayerId();
+    }
+
+    /**
+     * Every move of such a game was accepted only from the player of the side, only its result may be rated.
+     */
+    private boolean isEnforcedForBothSides(Game game) {
+        final Long south = playerOf(game, Pit.Part.SOUTH);
+        final Long north = playerOf(game, Pit.Part.NORTH);
+        return south != null && north != null && !south.equals(north);
+    }
+
+    private List<GameEvent> movedEvents(Game game, Integer pitIndex, Pit.Part side, long position, long mirroredPosition) {
+        final GameEvent moveApplied = new MoveAppliedEvent(game.getId(), pitIndex, side, game.getVersion(), position, mirroredPosition);
+        if (!game.isGameOver()) {
+            return Collections.singletonList(moveApplied);
+        }
+        return Arrays.asList(moveApplied, new GameFinishedEvent(game.getId(), game.getWinner(), game.isDraw(),
+                game.getSouthPlayerId(), game.getNorthPlayerId(), isEnforcedForBothSides(game)));
     }
 
     private Supplier<RuntimeException> gameNotFound(Long gameId) {
         return () -> new GameNotFoundException(String.format("Game with id [%d] not found on the server.", gameId));
     }
 
+    private Supplier<RuntimeException> gameNotFoundOrArchived(Long gameId) {
+        return () -> gameArchiver.findArchived(gameId)
+                .<RuntimeException>map(archivedGame -> new IllegalMoveException(archivedGame.isDraw()
+                        ? "Game is over, the result is a draw."
+                        : String.format("Game is over, the winner side is [%s].", archivedGame.getWinner().name())))
+                .orElseGet(gameNotFound(gameId));
+    }
+
     void validateAndMove(Game game, Integer pitIndex) {
         game.getPits()
                 .stream()
@@ -76,7 +295,9 @@ public class GameService {
 
     Pit validateMove(Game game, Pit pit) {
         if (game.isGameOver()) {
-            final String message = String.format("Game is over, the winner side is [%s].", game.getWinner().name());
+            final String message = game.isDraw()
+                    ? "Game is over, the result is a draw."
+                    : String.format("Game is over, the winner side is [%s].", game.getWinner().name());
             throw new IllegalMoveException(message);
         } else if (pit.isKalah()) {
             final String message = String.format("Cannot make a move from a kalah pit with index [%s].", pit.getIndex());
@@ -91,7 +312,12 @@ public class GameService {
         return pit;
     }
 
+    /**
+     * Sows the stones of the pit. Every pit weight and turn change also updates the position hash of the game,
+     * see {@link ZobristHash}.
+     */
     void movePit(Game game, Pit pit) {
+        ZobristHash.init(game);
         final List<Pit> pits = game.getPits();
         final Pit ownKalah = kalahByPart(pit.getPart(), pits);
         final Integer weight = pit.getWeight();
@@ -104,21 +330,21 @@ public class GameService {
                 final boolean isEmptyHouse = nextPit.getWeight() == 0 && !nextPit.isKalah();
                 final boolean landedOnEmptyKalah = ownPart && lastStone && isEmptyHouse;
                 if (landedOnEmptyKalah) {
-                    captureOppositePit(pit, pits, ownKalah, nextPit);
+                    captureOppositePit(game, pit, pits, ownKalah, nextPit);
                 } else {
-                    moveStoneToTheNextPit(pit, nextPit);
+                    moveStoneToTheNextPit(game, pit, nextPit);
                 }
                 switchTurnIfNeeded(game, nextPit, lastStone);
             }
         }
         endGameIfNeeded(game, pits);
-        gameRepository.save(game);
+        game.setMoves(game.getMoves() + 1);
     }
 
     void endGameIfNeeded(Game game, List<Pit> pits) {
         for (Pit.Part part : Pit.Part.values()) {
             if (isOutOfStones(part, game.getPits())) {
-                final Pit oppositeKalah = moveStonesToOppositeKalah(pits, part.opposite());
+                final Pit oppositeKalah = moveStonesToOppositeKalah(game, pits, part.opposite());
                 final Pit ownKalah = kalahByPart(part, pits);
                 detectWinner(game, part, oppositeKalah, ownKalah);
                 game.setGameOver(true);
@@ -155,16 +381,75 @@ public class GameService {
     }
 
     Pit nextPit(List<Pit> pits, Pit pit, int stepAmount) {
-        final int nextPitIndex = pit.getIndex() + stepAmount - 1;
-        return pits.get(nextPitIndex < PITS_SIZE ? nextPitIndex : nextPitIndex - PITS_SIZE);
+        return pits.get((pit.getIndex() + stepAmount - 1) % PITS_SIZE);
     }
 
     Map<Integer, String> pitsToStatusMap(List<Pit> pits) {
         return pits.stream().collect(Collectors.toMap(Pit::getIndex, pit -> pit.getWeight().toString()));
     }
 
+    /**
+     * A move is accepted only on the current turn of a running game, so the turn before the move is the side of the moved pit
+     * and the result is reported only when the move finished the game.
+     */
+    GameDeltaDto delta(int[] weightsBefore, Integer pitIndex, Game game) {
+        final Map<Integer, String> changed = new HashMap<>();
+        for (Pit pit : game.getPits()) {
+            if (weightsBefore[pit.getIndex() - INITIAL_SOUTH_INDEX] != pit.getWeight()) {
+                changed.put(pit.getIndex(), pit.getWeight().toString());
+            }
+        }
+        final Pit.Part turnBefore = findPitByIndex(game.getPits(), pitIndex).getPart();
+        final boolean gameOver = game.isGameOver();
+        return new GameDeltaDto(game.getVersion(), changed, game.getTurn() != turnBefore ? game.getTurn() : null,
+                gameOver ? true : null, gameOver ? game.getWinner() : null, gameOver ? game.isDraw() : null);
+    }
+
+    private List<LegalMovesDto.Move> legalMoves(Game game) {
+        if (game.isGameOver()) {
+            return Collections.emptyList();
+        }
+        final int[] weights = new int[PITS_SIZE];
+        copyWeights(game.getPits(), weights);
+        return legalMoveGenerator.legalMoves(ZobristHash.of(game), weights, game.getTurn());
+    }
+
+    private List<LegalMovesDto.Move> legalMoves(List<PitStatusView> pits) {
+        final PitStatusView game = pits.get(0);
+        if (game.isGameOver()) {
+            return Collections.emptyList();
+        }
+        final int[] weights = new int[PITS_SIZE];
+        for (PitStatusView pit : pits) {
+            weights[pit.getIndex() - INITIAL_SOUTH_INDEX] = pit.getWeight();
+        }
+        return legalMoveGenerator.legalMoves(ZobristHash.of(weights, game.getTurn()), weights, game.getTurn());
+    }
+
+    private void copyWeights(List<Pit> pits, int[] weights) {
+        for (Pit pit : pits) {
+            weights[pit.getIndex() - INITIAL_SOUTH_INDEX] = pit.getWeight();
+        }
+    }
+
+    Map<Integer, String> pitViewsToStatusMap(List<PitStatusView> pits) {
+        return pits.stream().collect(Collectors.toMap(PitStatusView::getIndex, pit -> pit.getWeight().toString()));
+    }
+
+    Map<Integer, String> archivedBoardToStatusMap(byte[] board) {
+        final Map<Integer, String> status = new HashMap<>();
+        for (int i = 0; i < board.length; i++) {
+            status.put(i + INITIAL_SOUTH_INDEX, String.valueOf(board[i]));
+        }
+        return status;
+    }
+
     String gameUrl(Game game, String requestUrl) {
-        return String.format("%s/%d", requestUrl, game.getId());
+        return gameUrl(game.getId(), requestUrl);
+    }
+
+    String gameUrl(Long gameId, String requestUrl) {
+        return String.format("%s/%d", requestUrl, gameId);
     }
 
     private void detectWinner(Game game, Pit.Part part, Pit oppositeKalah, Pit ownKalah) {
@@ -179,32 +464,32 @@ public class GameService {
 
     private void switchTurnIfNeeded(Game game, Pit nextPit, boolean lastStone) {
         if (lastStone && !nextPit.isKalah()) {
-            game.switchTurn();
+            ZobristHash.switchTurn(game);
         }
     }
 
-    private void moveStoneToTheNextPit(Pit pit, Pit nextPit) {
-        nextPit.setWeight(nextPit.getWeight() + 1);
-        pit.setWeight(pit.getWeight() - 1);
+    private void moveStoneToTheNextPit(Game game, Pit pit, Pit nextPit) {
+        ZobristHash.setWeight(game, nextPit, nextPit.getWeight() + 1);
+        ZobristHash.setWeight(game, pit, pit.getWeight() - 1);
     }
 
-    private void captureOppositePit(Pit pit, List<Pit> pits, Pit ownKalah, Pit nextPit) {
+    private void captureOppositePit(Game game, Pit pit, List<Pit> pits, Pit ownKalah, Pit nextPit) {
         Pit opposite = findOppositePit(pits, nextPit);
         final int capturedAmount = nextPit.getWeight() + opposite.getWeight() + 1;
-        opposite.setWeight(0);
-        ownKalah.setWeight(ownKalah.getWeight() + capturedAmount);
-        pit.setWeight(0);
+        ZobristHash.setWeight(game, opposite, 0);
+        ZobristHash.setWeight(game, ownKalah, ownKalah.getWeight() + capturedAmount);
+        ZobristHash.setWeight(game, pit, 0);
     }
 
-    private Pit moveStonesToOppositeKalah(List<Pit> pits, Pit.Part part) {
+    private Pit moveStonesToOppositeKalah(Game game, List<Pit> pits, Pit.Part part) {
         final Pit oppositeKalah = kalahByPart(part, pits);
-        oppositeKalah.setWeight(oppositeKalah.getWeight() + calculateNonKalahStonesWeight(part, pits));
-        emptyNonKalahPitsByPart(pits, part);
+        ZobristHash.setWeight(game, oppositeKalah, oppositeKalah.getWeight() + calculateNonKalahStonesWeight(part, pits));
+        emptyNonKalahPitsByPart(game, pits, part);
         return oppositeKalah;
     }
 
-    private void emptyNonKalahPitsByPart(List<Pit> pits, Pit.Part part) {
-        pits.stream().filter(p -> p.getPart() == part && !p.isKalah()).forEach(p -> p.setWeight(0));
+    private void emptyNonKalahPitsByPart(Game game, List<Pit> pits, Pit.Part part) {
+        pits.stream().filter(p -> p.getPart() == part && !p.isKalah()).forEach(p -> ZobristHash.setWeight(game, p, 0));
     }
 
     private int calculateNonKalahStonesWeight(Pit.Part part, List<Pit> pits) {
@@ -0,0 +1,58 @@
+package com.korniienko.kalah.service;
+
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Last known versions of games, used to answer a conditional status request without reading the game.
+ * Versions are recorded from the responses of this instance, so every move of a game must go through it.
+ * Direct-mapped by game id: a game replaces another game mapped to the same slot, a version is replaced only by a newer one.
+ */
+@Component
+public class GameVersionCache {
+
+    private final AtomicReferenceArray<GameVersion> slots;
+
+    @Autowired
+    public GameVersionCache(HttpCacheProperties httpCacheProperties) {
+        final int size = httpCacheProperties.getVersionCacheSize();
+        this.slots = new AtomicReferenceArray<>(!httpCacheProperties.isEnabled() ? 0 : size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1);
+    }
+
+    public GameVersion get(long gameId) {
+        if (slots.length() == 0) {
+            return null;
+        }
+        final GameVersion known = slots.get(slotOf(gameId));
+        return known != null && known.gameId == gameId ? known : null;
+    }
+
+    public void put(long gameId, long version, boolean finished) {
+        if (slots.length() == 0) {
+            return;
+        }
+        final int slot = slotOf(gameId);
+        final GameVersion updated = new GameVersion(gameId, version, finished);
+        GameVersion current;
+        do {
+            current = slots.get(slot);
+            if (current != null && current.gameId == gameId && current.version >= version) {
+                return;
+            }
+        } while (!slots.compareAndSet(slot, current, updated));
+    }
+
+    private int slotOf(long gameId) {
+        return (int) gameId & (slots.length() - 1);
+    }
+
+    @Value
+    public static class GameVersion {
+        long gameId;
+        long version;
+        boolean finished;
+    }
+}
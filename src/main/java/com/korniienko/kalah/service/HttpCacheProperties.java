@@ -0,0 +1,17 @@
+package com.korniienko.kalah.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.http-cache")
+@Data
+public class HttpCacheProperties {
+
+    private boolean enabled = true;
+
+    private int versionCacheSize = 65536;
+
+    private long finishedMaxAgeSeconds = 86400;
+}
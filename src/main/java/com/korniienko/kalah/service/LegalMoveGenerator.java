@@ -0,0 +1,107 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.dto.LegalMovesDto;
+import com.korniienko.kalah.model.Pit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.korniienko.kalah.service.GameService.*;
+
+/**
+ * Legal moves of a position with the outcome of each move: an extra turn or a capture.
+ * Moves are found by sowing on a copy of the pit weights by the same rules as {@link GameService#movePit}.
+ * Generated move lists are cached by the {@link ZobristHash} of the position, direct-mapped: a position replaces
+ * another position mapped to the same slot. The cached board is compared as well, so a hash collision is never served.
+ */
+@Component
+public class LegalMoveGenerator {
+
+    static final int HOUSES = SOUTH_KALAH_INDEX - INITIAL_SOUTH_INDEX;
+
+    private final AtomicReferenceArray<CachedMoves> slots;
+
+    @Autowired
+    public LegalMoveGenerator(LegalMovesProperties legalMovesProperties) {
+        final int size = legalMovesProperties.getCacheSize();
+        this.slots = new AtomicReferenceArray<>(size <= 0 ? 0 : size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1);
+    }
+
+    /**
+     * @param position {@link ZobristHash} of the weights and the turn
+     * @param weights  pit weights in pit index order, not changed
+     */
+    public List<LegalMovesDto.Move> legalMoves(long position, int[] weights, Pit.Part turn) {
+        if (slots.length() == 0) {
+            return generate(weights, turn);
+        }
+        final int slot = (int) position & (slots.length() - 1);
+        final CachedMoves cached = slots.get(slot);
+        if (cached != null && cached.position == position && Arrays.equals(cached.weights, weights)) {
+            return cached.moves;
+        }
+        final List<LegalMovesDto.Move> moves = generate(weights, turn);
+        slots.set(slot, new CachedMoves(position, weights.clone(), moves));
+        return moves;
+    }
+
+    static List<LegalMovesDto.Move> generate(int[] weights, Pit.Part turn) {
+        final int firstHouse = turn == Pit.Part.SOUTH ? INITIAL_SOUTH_INDEX : INITIAL_NORTH_INDEX;
+        final List<LegalMovesDto.Move> moves = new ArrayList<>(HOUSES);
+        final int[] board = new int[PITS_SIZE];
+        for (int pitIndex = firstHouse; pitIndex < firstHouse + HOUSES; pitIndex++) {
+            if (weights[pitIndex - 1] > 0) {
+                System.arraycopy(weights, 0, board, 0, PITS_SIZE);
+                moves.add(sow(board, pitIndex, turn));
+            }
+        }
+        return Collections.unmodifiableList(moves);
+    }
+
+    /**
+     * Stones are not sown into the opposite kalah, when the last stone would land there the pit keeps it and the turn stays.
+     */
+    private static LegalMovesDto.Move sow(int[] board, int pitIndex, Pit.Part side) {
+        final int ownKalah = side == Pit.Part.SOUTH ? SOUTH_KALAH_INDEX : NORTH_KALAH_INDEX;
+        final int oppositeKalah = side == Pit.Part.SOUTH ? NORTH_KALAH_INDEX : SOUTH_KALAH_INDEX;
+        final int weight = board[pitIndex - 1];
+        boolean turnSwitched = false;
+        boolean capture = false;
+        for (int i = 1; i <= weight; i++) {
+            final int next = (pitIndex + i - 1) % PITS_SIZE;
+            if (next + 1 == oppositeKalah) {
+                continue;
+            }
+            final boolean lastStone = i == weight;
+            if (lastStone && next + 1 != ownKalah && sideOf(next + 1) == side && board[next] == 0) {
+                capture = true;
+            } else {
+                board[next]++;
+                board[pitIndex - 1]--;
+            }
+            turnSwitched = lastStone && next + 1 != ownKalah;
+        }
+        return new LegalMovesDto.Move(pitIndex, !turnSwitched, capture);
+    }
+
+    private static Pit.Part sideOf(int pitIndex) {
+        return pitIndex <= SOUTH_KALAH_INDEX ? Pit.Part.SOUTH : Pit.Part.NORTH;
+    }
+
+    private static final class CachedMoves {
+        private final long position;
+        private final int[] weights;
+        private final List<LegalMovesDto.Move> moves;
+
+        CachedMoves(long position, int[] weights, List<LegalMovesDto.Move> moves) {
+            this.position = position;
+            this.weights = weights;
+            this.moves = moves;
+        }
+    }
+}
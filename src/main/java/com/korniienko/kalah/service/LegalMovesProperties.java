@@ -0,0 +1,13 @@
+package com.korniienko.kalah.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.legal-moves")
+@Data
+public class LegalMovesProperties {
+
+    private int cacheSize = 65536;
+}
@@ -0,0 +1,18 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.events.GameEvent;
+import lombok.Value;
+
+/**
+ * Published by {@link GameService} for every stored move, with the {@link ZobristHash} hashes of the position before the move.
+ */
+@Value
+public class MoveAppliedEvent implements GameEvent {
+    Long gameId;
+    int pit;
+    Pit.Part side;
+    Long version;
+    long position;
+    long mirroredPosition;
+}
@@ -4,6 +4,7 @@ import com.korniienko.kalah.dao.UserRepository;
 import com.korniienko.kalah.dto.UserCredentialsDto;
 import com.korniienko.kalah.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -20,26 +21,42 @@ public class MyUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
 
     @Autowired
-    public MyUserDetailsService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public MyUserDetailsService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserCache userCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username).orElseThrow(usernameNotFound(username));
+        return userCache.get(username).orElseGet(() -> {
+            final User user = userRepository.findByUsername(username).orElseThrow(usernameNotFound(username));
+            userCache.put(user);
+            return user;
+        });
     }
 
     public User addUser(UserCredentialsDto userCredentials) {
-        userRepository.findByUsername(userCredentials.getUsername()).map((user) -> {
-            final String message = String.format("User with name [%s] already exist, please use another username.", user.getUsername());
-            throw new BadCredentialsException(message);
-        });
+        if (userRepository.existsByUsername(userCredentials.getUsername())) {
+            throw usernameAlreadyExists(userCredentials.getUsername());
+        }
         final List<String> roles = Collections.singletonList("ROLE_ADMIN");
         final User entity = new User(null, userCredentials.getUsername(), passwordEncoder.encode(userCredentials.getPassword()), roles);
-        return userRepository.save(entity);
+        try {
+            final User user = userRepository.save(entity);
+            userCache.put(user);
+            return user;
+        } catch (DataIntegrityViolationException e) {
+            throw usernameAlreadyExists(userCredentials.getUsername());
+        }
+    }
+
+    private BadCredentialsException usernameAlreadyExists(String username) {
+        final String message = String.format("User with name [%s] already exist, please use another username.", username);
+        return new BadCredentialsException(message);
     }
 
     private Supplier<UsernameNotFoundException> usernameNotFound(String username) {
@@ -0,0 +1,66 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded cache of users by username, used on every authenticated request.
+ * Entries are split into segments, each segment is a small LRU map with its own lock.
+ * Users are cached until they are evicted by size. There is no way to change a stored user yet, a future one must
+ * invalidate the cached user after its change is committed.
+ */
+@Component
+public class UserCache {
+
+    private final Map<String, User>[] segments;
+
+    @Autowired
+    public UserCache(UserCacheProperties userCacheProperties) {
+        final int segmentCount = userCacheProperties.isEnabled() ? userCacheProperties.getSegments() : 0;
+        this.segments = newSegments(segmentCount);
+        final int segmentSize = Math.max(1, userCacheProperties.getMaxSize() / Math.max(1, segmentCount));
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new LinkedHashMap<String, User>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, User> eldest) {
+                    return size() > segmentSize;
+                }
+            };
+        }
+    }
+
+    public Optional<User> get(String username) {
+        if (segments.length == 0) {
+            return Optional.empty();
+        }
+        final Map<String, User> segment = segmentOf(username);
+        synchronized (segment) {
+            return Optional.ofNullable(segment.get(username));
+        }
+    }
+
+    public void put(User user) {
+        if (segments.length == 0) {
+            return;
+        }
+        final Map<String, User> segment = segmentOf(user.getUsername());
+        synchronized (segment) {
+            segment.put(user.getUsername(), user);
+        }
+    }
+
+    private Map<String, User> segmentOf(String username) {
+        final int hash = username.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] newSegments(int count) {
+        return (Map<K, V>[]) new Map<?, ?>[count];
+    }
+}
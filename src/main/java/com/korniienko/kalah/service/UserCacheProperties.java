@@ -0,0 +1,17 @@
+package com.korniienko.kalah.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.user-cache")
+@Data
+public class UserCacheProperties {
+
+    private boolean enabled = true;
+
+    private int maxSize = 10000;
+
+    private int segments = 16;
+}
@@ -0,0 +1,126 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hash of a position: a random 64-bit key per pit and weight, xor-ed together with a key for SOUTH to move,
+ * so a changed pit weight or turn updates the hash with two xor operations.
+ * Every position has a mirrored twin with the sides swapped, the canonical hash is the same for both.
+ * The keys are generated from a fixed seed, hashes stay the same between restarts.
+ */
+public final class ZobristHash {
+
+    static final int BOARD_SIZE = GameService.PITS_SIZE;
+    static final int MAX_TABLE_WEIGHT = 2 * (BOARD_SIZE - 2) * GameService.PIT_INITIAL_WEIGHT;
+
+    private static final long SEED = 0x4B414C4148L;
+    private static final long[] PIT_KEYS = new long[BOARD_SIZE * (MAX_TABLE_WEIGHT + 1)];
+    static final long SOUTH_TO_MOVE;
+
+    static {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < PIT_KEYS.length; i++) {
+            PIT_KEYS[i] = random.nextLong();
+        }
+        SOUTH_TO_MOVE = random.nextLong();
+    }
+
+    private ZobristHash() {
+    }
+
+    /**
+     * Hash of the game position, see {@link #init(Game)}.
+     */
+    public static long of(Game game) {
+        init(game);
+        return game.getPositionHash();
+    }
+
+    /**
+     * Computes the position hash and the mirrored one from the pits unless the game has them already, from then on they are
+     * kept up to date by the moves of {@link GameService}. {@code 0} on the game means the hash is not computed yet.
+     */
+    static void init(Game game) {
+        if (game.getPositionHash() == 0) {
+            long hash = turnKey(game.getTurn());
+            long mirroredHash = turnKey(game.getTurn().opposite());
+            for (Pit pit : game.getPits()) {
+                hash ^= pitKey(pit.getIndex(), pit.getWeight());
+                mirroredHash ^= pitKey(mirror(pit.getIndex()), pit.getWeight());
+            }
+            game.setPositionHash(hash);
+            game.setMirroredPositionHash(mirroredHash);
+        }
+    }
+
+    /**
+     * Hash of a position given by the pit weights in pit index order.
+     */
+    public static long of(int[] weights, Pit.Part turn) {
+        long hash = turnKey(turn);
+        for (int i = 0; i < weights.length; i++) {
+            hash ^= pitKey(i + 1, weights[i]);
+        }
+        return hash;
+    }
+
+    public static long mirroredOf(int[] weights, Pit.Part turn) {
+        long hash = turnKey(turn.opposite());
+        for (int i = 0; i < weights.length; i++) {
+            hash ^= pitKey(mirror(i + 1), weights[i]);
+        }
+        return hash;
+    }
+
+    public static long canonical(long hash, long mirroredHash) {
+        return isMirrored(hash, mirroredHash) ? mirroredHash : hash;
+    }
+
+    /**
+     * Whether the canonical hash of a position is the hash of its mirrored twin.
+     */
+    public static boolean isMirrored(long hash, long mirroredHash) {
+        return Long.compareUnsigned(mirroredHash, hash) < 0;
+    }
+
+    /**
+     * Index of the pit on the same place of the other side.
+     */
+    public static int mirror(int pitIndex) {
+        return pitIndex <= GameService.SOUTH_KALAH_INDEX ? pitIndex + GameService.SOUTH_KALAH_INDEX : pitIndex - GameService.SOUTH_KALAH_INDEX;
+    }
+
+    static void setWeight(Game game, Pit pit, int weight) {
+        if (game.getPositionHash() != 0) {
+            game.setPositionHash(game.getPositionHash() ^ pitKey(pit.getIndex(), pit.getWeight()) ^ pitKey(pit.getIndex(), weight));
+            final int mirrored = mirror(pit.getIndex());
+            game.setMirroredPositionHash(game.getMirroredPositionHash() ^ pitKey(mirrored, pit.getWeight()) ^ pitKey(mirrored, weight));
+        }
+        pit.setWeight(weight);
+    }
+
+    static void switchTurn(Game game) {
+        if (game.getPositionHash() != 0) {
+            game.setPositionHash(game.getPositionHash() ^ SOUTH_TO_MOVE);
+            game.setMirroredPositionHash(game.getMirroredPositionHash() ^ SOUTH_TO_MOVE);
+        }
+        game.switchTurn();
+    }
+
+    /**
+     * Weights above the table, possible only on boards which are not played, get a key computed on the fly.
+     */
+    static long pitKey(int pitIndex, int weight) {
+        if (weight <= MAX_TABLE_WEIGHT) {
+            return PIT_KEYS[(pitIndex - 1) * (MAX_TABLE_WEIGHT + 1) + weight];
+        }
+        return new SplittableRandom(SEED ^ ((long) pitIndex << 32 | weight)).nextLong();
+    }
+
+    private static long turnKey(Pit.Part turn) {
+        return turn == Pit.Part.SOUTH ? SOUTH_TO_MOVE : 0;
+    }
+}
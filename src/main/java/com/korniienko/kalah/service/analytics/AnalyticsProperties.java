@@ -0,0 +1,23 @@
+package com.korniienko.kalah.service.analytics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.analytics")
+@Data
+public class AnalyticsProperties {
+
+    private boolean enabled = true;
+
+    private int positions = 1 << 18;
+
+    private int maxTrackedGames = 100000;
+
+    private long trailTtlMillis = 3600000;
+
+    private long flushIntervalMillis = 60000;
+
+    private String snapshotFile = "data/analytics/positions.bin";
+}
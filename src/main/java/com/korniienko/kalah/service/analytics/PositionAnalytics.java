@@ -0,0 +1,241 @@
+package com.korniienko.kalah.service.analytics;
+
+import com.korniienko.kalah.dto.PositionStatsDto;
+import com.korniienko.kalah.exceptions.IllegalPositionException;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameFinishedEvent;
+import com.korniienko.kalah.service.MoveAppliedEvent;
+import com.korniienko.kalah.service.ZobristHash;
+import com.korniienko.kalah.service.events.GameEvent;
+import com.korniienko.kalah.service.events.GameEventConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.korniienko.kalah.service.analytics.PositionCounters.*;
+
+/**
+ * Counts how often a move is played from a position and how the games with that move ended.
+ * Stored moves and finished games come from the {@code GameService} events, the moves of a game are kept until the game
+ * is finished and then counted as won, drawn or lost for the side which made them. Games which are not finished within
+ * {@code kalah.analytics.trail-ttl-millis} are dropped from the outcome counting, at most
+ * {@code kalah.analytics.max-tracked-games} games are tracked at once.
+ * Changed counters are written to {@code kalah.analytics.snapshot-file} every {@code kalah.analytics.flush-interval-millis}
+ * and on shutdown, and loaded back on start.
+ * Moves are keyed by the canonical {@link ZobristHash} of the position, a position and its mirrored twin share the counters
+ * of the mirrored moves.
+ */
+@Slf4j
+@Component
+public class PositionAnalytics implements GameEventConsumer, DisposableBean {
+
+    static final int SNAPSHOT_MAGIC = 0x4B4C4850;
+    static final int SNAPSHOT_VERSION = 2;
+    static final int BOARD_SIZE = 14;
+
+    private final AnalyticsProperties analyticsProperties;
+    private final PositionCounters counters;
+    private final Map<Long, Trail> trails = new ConcurrentHashMap<>();
+    private volatile boolean changed;
+
+    @Autowired
+    public PositionAnalytics(AnalyticsProperties analyticsProperties) {
+        this.analyticsProperties = analyticsProperties;
+        this.counters = analyticsProperties.isEnabled()
+                ? new PositionCounters(analyticsProperties.getPositions())
+                : null;
+        if (counters != null) {
+            load();
+        }
+    }
+
+    public boolean isEnabled() {
+        return counters != null;
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        if (event instanceof MoveAppliedEvent) {
+            final MoveAppliedEvent move = (MoveAppliedEvent) event;
+            moved(move.getGameId(), keyOf(move.getPosition(), move.getMirroredPosition(), move.getPit()), move.getSide());
+        } else if (event instanceof GameFinishedEvent) {
+            final GameFinishedEvent finished = (GameFinishedEvent) event;
+            finished(finished.getGameId(), finished.getWinner(), finished.isDraw());
+        }
+    }
+
+    public void moved(Long gameId, long move, Pit.Part side) {
+        if (counters == null) {
+            return;
+        }
+        counters.increment(move, PLAYED);
+        if (!changed) {
+            changed = true;
+        }
+        Trail trail = trails.get(gameId);
+        if (trail == null) {
+            if (trails.size() >= analyticsProperties.getMaxTrackedGames()) {
+                return;
+            }
+            trail = trails.computeIfAbsent(gameId, id -> new Trail());
+        }
+        trail.add(move, side);
+    }
+
+    public void finished(Long gameId, Pit.Part winner, boolean draw) {
+        if (counters == null) {
+            return;
+        }
+        final Trail trail = trails.remove(gameId);
+        if (trail == null) {
+            return;
+        }
+        synchronized (trail) {
+            for (int i = 0; i < trail.size; i++) {
+                final Pit.Part side = Pit.Part.values()[trail.sides[i]];
+                counters.increment(trail.keys[i], draw ? DRAWN : side == winner ? WON : LOST);
+            }
+        }
+    }
+
+    public PositionStatsDto stats(int[] weights, Pit.Part turn) {
+        if (weights.length != BOARD_SIZE || turn == null || Arrays.stream(weights).anyMatch(weight -> weight < 0)) {
+            throw new IllegalPositionException(String.format("A position needs [%d] non-negative pit weights and the side to move.", BOARD_SIZE));
+        }
+        final long position = ZobristHash.of(weights, turn);
+        final long mirroredPosition = ZobristHash.mirroredOf(weights, turn);
+        final List<PositionStatsDto.MoveStats> moves = new ArrayList<>();
+        if (counters != null) {
+            for (int pitIndex = 1; pitIndex <= weights.length; pitIndex++) {
+                final long[] counts = counters.get(keyOf(position, mirroredPosition, pitIndex));
+                if (counts[PLAYED] > 0) {
+                    moves.add(new PositionStatsDto.MoveStats(pitIndex, counts[PLAYED], counts[WON], counts[DRAWN], counts[LOST]));
+                }
+            }
+        }
+        return new PositionStatsDto(Long.toHexString(ZobristHash.canonical(position, mirroredPosition)), moves);
+    }
+
+    @Scheduled(initialDelayString = "${kalah.analytics.flush-interval-millis:60000}", fixedDelayString = "${kalah.analytics.flush-interval-millis:60000}")
+    public void flush() {
+        if (counters == null) {
+            return;
+        }
+        final long expired = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(analyticsProperties.getTrailTtlMillis());
+        trails.values().removeIf(trail -> trail.touchedNanos - expired < 0);
+        if (!changed) {
+            return;
+        }
+        changed = false;
+        final Path snapshot = Paths.get(analyticsProperties.getSnapshotFile());
+        try {
+            if (snapshot.getParent() != null) {
+                Files.createDirectories(snapshot.getParent());
+            }
+            final Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            final long[] positions = new long[1];
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                counters.forEach((key, counts) -> {
+                    out.writeLong(key);
+                    for (int column = PLAYED; column < STRIDE; column++) {
+                        out.writeLong(counts[column]);
+                    }
+                    positions[0]++;
+                });
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Position analytics of [{}] moves written to [{}].", positions[0], snapshot);
+        } catch (IOException e) {
+            changed = true;
+            log.warn("Cannot write position analytics to [{}].", snapshot, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    private void load() {
+        final Path snapshot = Paths.get(analyticsProperties.getSnapshotFile());
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        long positions = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Position analytics in [{}] have an unknown format and are not loaded.", snapshot);
+                return;
+            }
+            final long[] counts = new long[STRIDE];
+            while (true) {
+                final long key;
+                try {
+                    key = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                for (int column = PLAYED; column < STRIDE; column++) {
+                    counts[column] = in.readLong();
+                }
+                counters.load(key, counts);
+                positions++;
+            }
+            log.info("Position analytics of [{}] moves loaded from [{}].", positions, snapshot);
+        } catch (IOException e) {
+            log.warn("Cannot read position analytics from [{}].", snapshot, e);
+        }
+    }
+
+    static long keyOf(long position, long mirroredPosition, int pitIndex) {
+        final long key = ZobristHash.isMirrored(position, mirroredPosition)
+                ? mix(mirroredPosition + ZobristHash.mirror(pitIndex))
+                : mix(position + pitIndex);
+        return key != 0 ? key : 1;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * Moves of one game in the order they were stored.
+     */
+    private static final class Trail {
+        private long[] keys = new long[32];
+        private byte[] sides = new byte[32];
+        private int size;
+        private volatile long touchedNanos = System.nanoTime();
+
+        synchronized void add(long key, Pit.Part side) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                sides = Arrays.copyOf(sides, size * 2);
+            }
+            keys[size] = key;
+            sides[size] = (byte) side.ordinal();
+            size++;
+            touchedNanos = System.nanoTime();
+        }
+    }
+}
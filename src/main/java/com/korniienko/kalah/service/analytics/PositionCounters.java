@@ -0,0 +1,110 @@
+package com.korniienko.kalah.service.analytics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters keyed by a non-zero 64-bit key, kept in one open-addressing table of {@link AtomicLongArray}.
+ * A slot holds the key and one counter per column. Counting is synchronized, moves are counted by the single event bus
+ * thread so the lock is not contended, reads take no lock.
+ * A key which finds no free slot within {@link #MAX_PROBES} slots takes over the probed slot with the fewest played
+ * moves, so a full table keeps counting and keeps the popular positions. A read racing with such a takeover may miss
+ * the key once.
+ */
+class PositionCounters {
+
+    static final int PLAYED = 1;
+    static final int WON = 2;
+    static final int DRAWN = 3;
+    static final int LOST = 4;
+    static final int STRIDE = 5;
+    private static final int MAX_PROBES = 16;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    PositionCounters(int capacity) {
+        final int size = powerOfTwo(capacity);
+        this.slots = new AtomicLongArray(size * STRIDE);
+        this.mask = size - 1;
+    }
+
+    synchronized void increment(long key, int column) {
+        slots.getAndAdd(claim(key) * STRIDE + column, 1);
+    }
+
+    /**
+     * Counters of the key indexed by column, all zero for a key which is not counted.
+     */
+    long[] get(long key) {
+        final long[] counts = new long[STRIDE];
+        int slot = (int) key & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            final long current = slots.get(slot * STRIDE);
+            if (current == key) {
+                for (int column = PLAYED; column < STRIDE; column++) {
+                    counts[column] = slots.get(slot * STRIDE + column);
+                }
+                break;
+            } else if (current == 0) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return counts;
+    }
+
+    synchronized void load(long key, long[] counts) {
+        final int slot = claim(key);
+        for (int column = PLAYED; column < STRIDE; column++) {
+            slots.getAndAdd(slot * STRIDE + column, counts[column]);
+        }
+    }
+
+    void forEach(CountsConsumer consumer) throws IOException {
+        final long[] counts = new long[STRIDE];
+        for (int slot = 0; slot <= mask; slot++) {
+            final long key = slots.get(slot * STRIDE);
+            if (key != 0) {
+                for (int column = PLAYED; column < STRIDE; column++) {
+                    counts[column] = slots.get(slot * STRIDE + column);
+                }
+                consumer.accept(key, counts);
+            }
+        }
+    }
+
+    /**
+     * Slots are never emptied, an evicted key is replaced by the new one, so probe sequences of other keys stay intact.
+     */
+    private int claim(long key) {
+        int slot = (int) key & mask;
+        int victim = slot;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            final long current = slots.get(slot * STRIDE);
+            if (current == key) {
+                return slot;
+            } else if (current == 0) {
+                slots.set(slot * STRIDE, key);
+                return slot;
+            } else if (slots.get(slot * STRIDE + PLAYED) < slots.get(victim * STRIDE + PLAYED)) {
+                victim = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots.set(victim * STRIDE, 0);
+        for (int column = PLAYED; column < STRIDE; column++) {
+            slots.set(victim * STRIDE + column, 0);
+        }
+        slots.set(victim * STRIDE, key);
+        return victim;
+    }
+
+    private static int powerOfTwo(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    interface CountsConsumer {
+        void accept(long key, long[] counts) throws IOException;
+    }
+}
@@ -0,0 +1,30 @@
+package com.korniienko.kalah.service.events;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.events")
+@Data
+public class EventBusProperties {
+
+    private boolean enabled = true;
+
+    private int bufferSize = 65536;
+
+    private Overflow overflow = Overflow.BLOCK;
+
+    private long blockTimeoutMillis = 100;
+
+    private long idleWaitMicros = 100;
+
+    private long shutdownTimeoutMillis = 5000;
+
+    /**
+     * What a publisher does with an event which may be dropped when the slowest consumer is a whole buffer behind.
+     */
+    public enum Overflow {
+        DROP, BLOCK
+    }
+}
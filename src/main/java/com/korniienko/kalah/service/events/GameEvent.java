@@ -0,0 +1,17 @@
+package com.korniienko.kalah.service.events;
+
+/**
+ * Domain event of a game published by {@code GameService} to the {@link GameEventBus}.
+ */
+public interface GameEvent {
+
+    Long getGameId();
+
+    /**
+     * Whether the {@link GameEventBus} may drop the event when its buffer is full. Events which change the state of
+     * the consumers must not be dropped, their publisher waits for a free slot instead.
+     */
+    default boolean mayBeDropped() {
+        return true;
+    }
+}
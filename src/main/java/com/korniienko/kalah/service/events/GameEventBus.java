@@ -0,0 +1,231 @@
+package com.korniienko.kalah.service.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded ring buffer of {@link GameEvent}s between the request threads and the {@link GameEventConsumer} beans.
+ * Publishers claim the next sequence with a compare-and-set and write the event to its slot, every consumer reads
+ * the slots on its own thread and keeps its own sequence, so a slow consumer delays neither the publishers nor the
+ * other consumers until it is a whole buffer behind. Then the publisher waits up to
+ * {@code kalah.events.block-timeout-millis} for a free slot before dropping the event, or drops it right away with
+ * {@code kalah.events.overflow=DROP}. How far every consumer is behind is reported as {@code kalah.events.lag}.
+ * When the bus is disabled events are delivered on the publishing thread.
+ * <p>
+ * Delivery guarantees: every consumer gets the events at most once and in the order of publishing. Events which
+ * {@link GameEvent#mayBeDropped() may be dropped} can be lost under overflow, so the consumers of them (metrics,
+ * analytics, tournament activity) are best effort. Events which may not be dropped, like {@code GameFinishedEvent},
+ * are delivered to every consumer: their publisher waits for a free slot however long it takes, only a publisher
+ * still waiting on shutdown gives up. Events in the buffer are lost with the process, consumers which need them to
+ * survive a crash read the transactional outbox instead.
+ * Created eagerly even with lazy initialization, the consumers are looked up once all singletons are created, so
+ * consumers may depend on the publishers.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class GameEventBus implements GameEventPublisher, SmartInitializingSingleton, DisposableBean {
+
+    private final EventBusProperties eventBusProperties;
+    private final ObjectProvider<GameEventConsumer> consumerProvider;
+    private final MeterRegistry meterRegistry;
+    private final AtomicReferenceArray<GameEvent> events;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final Counter dropped;
+    private volatile long gatingSequence = -1;
+    private volatile Subscriber[] subscribers;
+    private volatile boolean running = true;
+
+    @Autowired
+    public GameEventBus(EventBusProperties eventBusProperties, ObjectProvider<GameEventConsumer> consumerProvider, MeterRegistry meterRegistry) {
+        this.eventBusProperties = eventBusProperties;
+        this.consumerProvider = consumerProvider;
+        this.meterRegistry = meterRegistry;
+        final int size = eventBusProperties.getBufferSize() <= 1 ? 1 : Integer.highestOneBit(eventBusProperties.getBufferSize() - 1) << 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.published = new AtomicLongArray(size);
+        for (int slot = 0; slot < size; slot++) {
+            published.set(slot, -1);
+        }
+        this.mask = size - 1;
+        this.dropped = meterRegistry.counter("kalah.events.dropped");
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        start(consumerProvider.orderedStream().collect(Collectors.toList()));
+    }
+
+    @Override
+    public void publish(GameEvent event) {
+        final Subscriber[] current = subscribers;
+        if (!eventBusProperties.isEnabled()) {
+            if (current != null) {
+                for (Subscriber subscriber : current) {
+                    subscriber.deliver(event);
+                }
+            }
+            return;
+        }
+        long deadline = 0;
+        while (true) {
+            final long sequence = claimed.get();
+            final long next = sequence + 1;
+            final long wrapPoint = next - events.length();
+            if (wrapPoint > gatingSequence) {
+                final long slowest = slowestSequence(sequence);
+                gatingSequence = slowest;
+                if (wrapPoint > slowest) {
+                    if (mustDrop(event, deadline)) {
+                        dropped.increment();
+                        log.debug("Event buffer is full, [{}] of the game [{}] is dropped.", event.getClass().getSimpleName(), event.getGameId());
+                        return;
+                    }
+                    if (deadline == 0) {
+                        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(eventBusProperties.getBlockTimeoutMillis());
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(eventBusProperties.getIdleWaitMicros()));
+                    continue;
+                }
+            }
+            if (claimed.compareAndSet(sequence, next)) {
+                final int slot = (int) next & mask;
+                events.lazySet(slot, event);
+                published.lazySet(slot, next);
+                return;
+            }
+        }
+    }
+
+    private boolean mustDrop(GameEvent event, long deadline) {
+        if (!event.mayBeDropped()) {
+            if (!running) {
+                log.warn("Event buffer is full on shutdown, [{}] of the game [{}] is dropped.", event.getClass().getSimpleName(), event.getGameId());
+                return true;
+            }
+            return false;
+        }
+        return eventBusProperties.getOverflow() == EventBusProperties.Overflow.DROP || deadline != 0 && System.nanoTime() - deadline > 0;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        final Subscriber[] current = subscribers;
+        if (current == null) {
+            return;
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(eventBusProperties.getShutdownTimeoutMillis());
+        for (Subscriber subscriber : current) {
+            if (subscriber.thread != null) {
+                subscriber.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        }
+    }
+
+    /**
+     * Starts a thread per consumer, the consumers get the events published since the bus was created.
+     */
+    void start(List<GameEventConsumer> consumers) {
+        final Subscriber[] started = new Subscriber[consumers.size()];
+        for (int i = 0; i < started.length; i++) {
+            final Subscriber subscriber = new Subscriber(consumers.get(i));
+            Gauge.builder("kalah.events.lag", subscriber, s -> claimed.get() - s.sequence.get())
+                    .tag("consumer", subscriber.name)
+                    .register(meterRegistry);
+            if (eventBusProperties.isEnabled()) {
+                subscriber.thread = new Thread(subscriber, "game-events-" + subscriber.name);
+                subscriber.thread.setDaemon(true);
+                subscriber.thread.start();
+            }
+            started[i] = subscriber;
+        }
+        subscribers = started;
+        log.info("Game events are delivered to [{}] consumers.", started.length);
+    }
+
+    long lag(String consumerName) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.name.equals(consumerName)) {
+                return claimed.get() - subscriber.sequence.get();
+            }
+        }
+        throw new IllegalArgumentException(consumerName);
+    }
+
+    /**
+     * Until the consumers are started the events are kept for them, so the buffer fills up from the first slot.
+     */
+    private long slowestSequence(long claimedSequence) {
+        final Subscriber[] current = subscribers;
+        if (current == null) {
+            return -1;
+        }
+        long slowest = claimedSequence;
+        for (Subscriber subscriber : current) {
+            slowest = Math.min(slowest, subscriber.sequence.get());
+        }
+        return slowest;
+    }
+
+    private final class Subscriber implements Runnable {
+        private final GameEventConsumer consumer;
+        private final String name;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final Counter failed;
+        private Thread thread;
+
+        Subscriber(GameEventConsumer consumer) {
+            this.consumer = consumer;
+            this.name = consumer.consumerName();
+            this.failed = meterRegistry.counter("kalah.events.failed", "consumer", name);
+        }
+
+        /**
+         * Reads the published events in sequence order, on shutdown the events published so far are delivered first.
+         */
+        @Override
+        public void run() {
+            final long idleNanos = TimeUnit.MICROSECONDS.toNanos(eventBusProperties.getIdleWaitMicros());
+            while (true) {
+                final long next = sequence.get() + 1;
+                final int slot = (int) next & mask;
+                if (published.get(slot) == next) {
+                    deliver(events.get(slot));
+                    sequence.lazySet(next);
+                } else if (running) {
+                    LockSupport.parkNanos(idleNanos);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        void deliver(GameEvent event) {
+            try {
+                consumer.onEvent(event);
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Consumer [{}] failed on [{}] of the game [{}].", name, event.getClass().getSimpleName(), event.getGameId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.korniienko.kalah.service.events;
+
+/**
+ * Receives every published {@link GameEvent} on its own thread of the {@link GameEventBus}, in the order of publishing.
+ * An exception thrown by a consumer is logged and counted, the consumer gets the next event.
+ */
+public interface GameEventConsumer {
+
+    void onEvent(GameEvent event);
+
+    default String consumerName() {
+        return getClass().getSimpleName();
+    }
+}
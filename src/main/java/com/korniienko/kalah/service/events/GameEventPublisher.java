@@ -0,0 +1,7 @@
+package com.korniienko.kalah.service.events;
+
+@FunctionalInterface
+public interface GameEventPublisher {
+
+    void publish(GameEvent event);
+}
@@ -0,0 +1,40 @@
+package com.korniienko.kalah.service.events;
+
+import com.korniienko.kalah.service.GameCreatedEvent;
+import com.korniienko.kalah.service.GameFinishedEvent;
+import com.korniienko.kalah.service.MoveAppliedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts created games, stored moves and finished games from the game events.
+ */
+@Component
+public class GameMetrics implements GameEventConsumer {
+
+    private final Counter created;
+    private final Counter moves;
+    private final Counter won;
+    private final Counter drawn;
+
+    @Autowired
+    public GameMetrics(MeterRegistry meterRegistry) {
+        this.created = meterRegistry.counter("kalah.games.created");
+        this.moves = meterRegistry.counter("kalah.games.moves");
+        this.won = meterRegistry.counter("kalah.games.finished", "result", "won");
+        this.drawn = meterRegistry.counter("kalah.games.finished", "result", "draw");
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        if (event instanceof MoveAppliedEvent) {
+            moves.increment();
+        } else if (event instanceof GameCreatedEvent) {
+            created.increment();
+        } else if (event instanceof GameFinishedEvent) {
+            (((GameFinishedEvent) event).isDraw() ? drawn : won).increment();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.korniienko.kalah.service.export;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.export")
+@Data
+public class ExportProperties {
+
+    private int chunkSize = 4096;
+
+    private long timeoutMillis = 3_600_000;
+}
@@ -0,0 +1,20 @@
+package com.korniienko.kalah.service.export;
+
+import com.korniienko.kalah.model.Pit;
+import lombok.Value;
+
+/**
+ * One game of an export file. The board holds the pit weights in pit index order,
+ * the player ids are {@code null} for archived games and games created without players.
+ */
+@Value
+public class ExportedGame {
+    long id;
+    byte[] board;
+    Pit.Part winner;
+    boolean draw;
+    boolean gameOver;
+    boolean archived;
+    Long southPlayerId;
+    Long northPlayerId;
+}
@@ -0,0 +1,84 @@
+package com.korniienko.kalah.service.export;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+import static com.korniienko.kalah.service.export.GameExportWriter.*;
+
+/**
+ * Reads a file written by {@link GameExportWriter} one block at a time, {@link #read()} returns {@code null}
+ * after the last game.
+ */
+public class GameExportReader implements Closeable {
+
+    private final DataInputStream in;
+    private long[] ids = new long[0];
+    private byte[] boards = new byte[0];
+    private byte[] results = new byte[0];
+    private long[] southPlayers = new long[0];
+    private long[] northPlayers = new long[0];
+    private int size;
+    private int position;
+    private boolean finished;
+
+    public GameExportReader(InputStream source) throws IOException {
+        final DataInputStream header = new DataInputStream(source);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a game export file.");
+        }
+        final short version = header.readShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException(String.format("Unsupported game export format version [%d].", version));
+        }
+        final boolean compressed = (header.readByte() & COMPRESSED) != 0;
+        this.in = new DataInputStream(new BufferedInputStream(compressed ? new GZIPInputStream(source, 1 << 16) : source, 1 << 16));
+    }
+
+    public ExportedGame read() throws IOException {
+        if (position == size && !readBlock()) {
+            return null;
+        }
+        final int i = position++;
+        final byte[] board = new byte[BOARD_SIZE];
+        System.arraycopy(boards, i * BOARD_SIZE, board, 0, BOARD_SIZE);
+        final int result = results[i];
+        return new ExportedGame(ids[i], board, winnerOf(result), (result & DRAW) != 0, (result & GAME_OVER) != 0,
+                (result & ARCHIVED) != 0, southPlayers[i] == 0 ? null : southPlayers[i], northPlayers[i] == 0 ? null : northPlayers[i]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readBlock() throws IOException {
+        if (finished) {
+            return false;
+        }
+        size = in.readInt();
+        position = 0;
+        if (size == 0) {
+            finished = true;
+            return false;
+        }
+        if (ids.length < size) {
+            ids = new long[size];
+            boards = new byte[size * BOARD_SIZE];
+            results = new byte[size];
+            southPlayers = new long[size];
+            northPlayers = new long[size];
+        }
+        for (int i = 0; i < size; i++) {
+            ids[i] = in.readLong();
+        }
+        in.readFully(boards, 0, size * BOARD_SIZE);
+        in.readFully(results, 0, size);
+        for (int i = 0; i < size; i++) {
+            southPlayers[i] = in.readLong();
+        }
+        for (int i = 0; i < size; i++) {
+            northPlayers[i] = in.readLong();
+        }
+        return true;
+    }
+}
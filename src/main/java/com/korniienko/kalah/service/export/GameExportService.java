@@ -0,0 +1,96 @@
+package com.korniienko.kalah.service.export;
+
+import com.korniienko.kalah.dao.ArchivedGameExportView;
+import com.korniienko.kalah.dao.ArchivedGameRepository;
+import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.dao.PitExportView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Streams all games into the export format of {@link GameExportWriter}: live games from {@link GameRepository}
+ * and then archived games, both read in chunks of {@code kalah.export.chunk-size} games after the last exported id,
+ * so only one chunk is held in memory. A game archived while the export is running can be exported twice,
+ * as a live and as an archived game, but it is never missed.
+ * Games of the in-memory game stores are not in the database and are not exported.
+ */
+@Slf4j
+@Service
+public class GameExportService {
+
+    private final GameRepository gameRepository;
+    private final ArchivedGameRepository archivedGameRepository;
+    private final ExportProperties exportProperties;
+
+    @Autowired
+    public GameExportService(GameRepository gameRepository, ArchivedGameRepository archivedGameRepository, ExportProperties exportProperties) {
+        this.gameRepository = gameRepository;
+        this.archivedGameRepository = archivedGameRepository;
+        this.exportProperties = exportProperties;
+    }
+
+    public long export(OutputStream out, boolean compressed) throws IOException {
+        final long started = System.nanoTime();
+        final GameExportWriter writer = new GameExportWriter(out, compressed, exportProperties.getChunkSize());
+        exportLiveGames(writer);
+        exportArchivedGames(writer);
+        writer.close();
+        log.info("Exported [{}] games in [{}] ms.", writer.getWritten(), (System.nanoTime() - started) / 1_000_000);
+        return writer.getWritten();
+    }
+
+    private void exportLiveGames(GameExportWriter writer) throws IOException {
+        final PageRequest chunk = PageRequest.of(0, exportProperties.getChunkSize());
+        long afterId = 0;
+        List<Long> gameIds;
+        do {
+            gameIds = gameRepository.findGameIdsAfter(chunk, afterId);
+            if (gameIds.isEmpty()) {
+                break;
+            }
+            if (gameIds.size() > chunk.getPageSize()) {
+                // sharded games come as one sorted page of every shard, the ids after the first page are read again by the next chunk
+                gameIds = gameIds.subList(0, chunk.getPageSize());
+            }
+            writeLiveGames(writer, gameRepository.findExportViewsByIds(gameIds));
+            afterId = gameIds.get(gameIds.size() - 1);
+        } while (gameIds.size() >= chunk.getPageSize());
+    }
+
+    /**
+     * Pits come ordered by game, a game is written when the pits of the next game start.
+     * The writer copies the board, so one board array is reused for all games.
+     */
+    private void writeLiveGames(GameExportWriter writer, List<PitExportView> pits) throws IOException {
+        final byte[] board = new byte[GameExportWriter.BOARD_SIZE];
+        for (int i = 0; i < pits.size(); i++) {
+            final PitExportView pit = pits.get(i);
+            board[pit.getIndex() - 1] = pit.getWeight().byteValue();
+            if (i + 1 == pits.size() || !pits.get(i + 1).getGameId().equals(pit.getGameId())) {
+                writer.write(new ExportedGame(pit.getGameId(), board, pit.getWinner(), pit.isDraw(), pit.isGameOver(), false,
+                        pit.getSouthPlayerId(), pit.getNorthPlayerId()));
+            }
+        }
+    }
+
+    private void exportArchivedGames(GameExportWriter writer) throws IOException {
+        final PageRequest chunk = PageRequest.of(0, exportProperties.getChunkSize());
+        long afterId = 0;
+        List<ArchivedGameExportView> games;
+        do {
+            games = archivedGameRepository.findExportViewsAfter(afterId, chunk);
+            for (ArchivedGameExportView game : games) {
+                writer.write(new ExportedGame(game.getId(), game.getBoard(), game.getWinner(), game.isDraw(), true, true, null, null));
+            }
+            if (!games.isEmpty()) {
+                afterId = games.get(games.size() - 1).getId();
+            }
+        } while (games.size() == chunk.getPageSize());
+    }
+}
@@ -0,0 +1,103 @@
+package com.korniienko.kalah.service.export;
+
+import com.korniienko.kalah.model.Pit;
+
+import java.io.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes games into the export format: a header (magic, format version, flags) followed by blocks of up to
+ * {@code blockSize} games and an empty block as the end marker. A block stores the games column by column,
+ * every column has fixed-width values: ids (8 bytes), boards (14 bytes), results (1 byte), south and north
+ * player ids (8 bytes, 0 for none). With compression everything after the header is gzipped.
+ * <p>
+ * Closing the writer completes the file but does not close the underlying stream.
+ */
+public class GameExportWriter implements Closeable {
+
+    static final int MAGIC = 0x4B4C4858;
+    static final short FORMAT_VERSION = 1;
+    static final byte COMPRESSED = 1;
+    static final int BOARD_SIZE = 14;
+    static final int WINNER_MASK = 0b11;
+    static final int DRAW = 1 << 2;
+    static final int GAME_OVER = 1 << 3;
+    static final int ARCHIVED = 1 << 4;
+
+    private final OutputStream target;
+    private final GZIPOutputStream compression;
+    private final DataOutputStream out;
+    private final long[] ids;
+    private final byte[] boards;
+    private final byte[] results;
+    private final long[] southPlayers;
+    private final long[] northPlayers;
+    private int size;
+    private long written;
+
+    public GameExportWriter(OutputStream target, boolean compressed, int blockSize) throws IOException {
+        this.target = target;
+        final DataOutputStream header = new DataOutputStream(target);
+        header.writeInt(MAGIC);
+        header.writeShort(FORMAT_VERSION);
+        header.writeByte(compressed ? COMPRESSED : 0);
+        this.compression = compressed ? new GZIPOutputStream(target, 1 << 16) : null;
+        this.out = new DataOutputStream(new BufferedOutputStream(compressed ? compression : target, 1 << 16));
+        this.ids = new long[blockSize];
+        this.boards = new byte[blockSize * BOARD_SIZE];
+        this.results = new byte[blockSize];
+        this.southPlayers = new long[blockSize];
+        this.northPlayers = new long[blockSize];
+    }
+
+    public void write(ExportedGame game) throws IOException {
+        ids[size] = game.getId();
+        System.arraycopy(game.getBoard(), 0, boards, size * BOARD_SIZE, BOARD_SIZE);
+        results[size] = (byte) ((game.getWinner() == null ? 0 : game.getWinner().ordinal() + 1)
+                | (game.isDraw() ? DRAW : 0) | (game.isGameOver() ? GAME_OVER : 0) | (game.isArchived() ? ARCHIVED : 0));
+        southPlayers[size] = game.getSouthPlayerId() == null ? 0 : game.getSouthPlayerId();
+        northPlayers[size] = game.getNorthPlayerId() == null ? 0 : game.getNorthPlayerId();
+        if (++size == ids.length) {
+            writeBlock();
+        }
+    }
+
+    public long getWritten() {
+        return written + size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (size > 0) {
+            writeBlock();
+        }
+        out.writeInt(0);
+        out.flush();
+        if (compression != null) {
+            compression.finish();
+        }
+        target.flush();
+    }
+
+    private void writeBlock() throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(ids[i]);
+        }
+        out.write(boards, 0, size * BOARD_SIZE);
+        out.write(results, 0, size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(southPlayers[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(northPlayers[i]);
+        }
+        written += size;
+        size = 0;
+    }
+
+    static Pit.Part winnerOf(int result) {
+        final int winner = result & WINNER_MASK;
+        return winner == 0 ? null : Pit.Part.values()[winner - 1];
+    }
+}
@@ -0,0 +1,152 @@
+package com.korniienko.kalah.service.idempotency;
+
+import com.korniienko.kalah.exceptions.ForbiddenMoveException;
+import com.korniienko.kalah.exceptions.GameBusyException;
+import com.korniienko.kalah.exceptions.GameNotFoundException;
+import com.korniienko.kalah.exceptions.IdempotencyKeyException;
+import com.korniienko.kalah.exceptions.IllegalMoveException;
+import com.korniienko.kalah.exceptions.TooManyRequestsException;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Responses of game requests by their {@code Idempotency-Key}, so a retried or hedged request gets the response of
+ * the first one instead of being executed again. A request with the same key waits for the first one to complete.
+ * A request which failed before the move was applied (an illegal or forbidden move, a missing game, a busy game whose
+ * queued move was cancelled) is forgotten and its retry is executed again. Any other failure leaves the outcome unknown,
+ * the move may be stored already, so the failure is remembered and replayed instead of applying the move twice.
+ * The same key with a different request is rejected.
+ * Keys are scoped to a game, kept for {@code kalah.idempotency.ttl-millis} and at most {@code kalah.idempotency.max-keys}
+ * of them: the keys expire in the order they were added, so the oldest key is evicted first in both cases.
+ */
+@Component
+public class IdempotencyCache {
+
+    private static final List<Class<? extends RuntimeException>> NOT_APPLIED = Arrays.asList(IllegalMoveException.class,
+            ForbiddenMoveException.class, GameNotFoundException.class, GameBusyException.class, IdempotencyKeyException.class,
+            TooManyRequestsException.class, UsernameNotFoundException.class);
+
+    private final IdempotencyProperties idempotencyProperties;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Autowired
+    public IdempotencyCache(IdempotencyProperties idempotencyProperties) {
+        this.idempotencyProperties = idempotencyProperties;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(idempotencyProperties.getTtlMillis());
+    }
+
+    /**
+     * @param request what is requested with the key, a replay must request the same
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(long gameId, String idempotencyKey, String request, Supplier<T> action) {
+        if (!idempotencyProperties.isEnabled() || idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > idempotencyProperties.getMaxKeyLength()) {
+            throw new IdempotencyKeyException(String.format("Idempotency key must have 1 to %d characters.", idempotencyProperties.getMaxKeyLength()));
+        }
+        final long now = System.nanoTime();
+        final Key key = new Key(gameId, idempotencyKey);
+        final Entry claimed = new Entry(key, request, now + ttlNanos);
+        while (true) {
+            final Entry current = entries.putIfAbsent(key, claimed);
+            if (current == null) {
+                break;
+            }
+            if (current.expiresAt - now <= 0) {
+                entries.remove(key, current);
+                continue;
+            }
+            if (!current.request.equals(request)) {
+                throw new IdempotencyKeyException(String.format("Idempotency key [%s] is already used for another request of the game [%d].",
+                        idempotencyKey, gameId));
+            }
+            return (T) replay(current);
+        }
+        order.offer(claimed);
+        size.incrementAndGet();
+        evict(now);
+        try {
+            final T response = action.get();
+            claimed.response.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            if (isNotApplied(e)) {
+                entries.remove(key, claimed);
+            }
+            claimed.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static boolean isNotApplied(RuntimeException e) {
+        for (Class<? extends RuntimeException> notApplied : NOT_APPLIED) {
+            if (notApplied.isInstance(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object replay(Entry entry) {
+        try {
+            return entry.response.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private void evict(long now) {
+        while (true) {
+            final Entry oldest = order.peek();
+            if (oldest == null || oldest.expiresAt - now > 0 && size.get() <= idempotencyProperties.getMaxKeys()) {
+                return;
+            }
+            final Entry evicted = order.poll();
+            if (evicted == null) {
+                return;
+            }
+            size.decrementAndGet();
+            entries.remove(evicted.key, evicted);
+        }
+    }
+
+    @Value
+    private static class Key {
+        long gameId;
+        String idempotencyKey;
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final String request;
+        private final long expiresAt;
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+        Entry(Key key, String request, long expiresAt) {
+            this.key = key;
+            this.request = request;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
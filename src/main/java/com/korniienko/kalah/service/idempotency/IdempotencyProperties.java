@@ -0,0 +1,19 @@
+package com.korniienko.kalah.service.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.idempotency")
+@Data
+public class IdempotencyProperties {
+
+    private boolean enabled = true;
+
+    private int maxKeys = 65536;
+
+    private long ttlMillis = 600000;
+
+    private int maxKeyLength = 128;
+}
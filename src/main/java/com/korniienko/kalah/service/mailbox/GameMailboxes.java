@@ -0,0 +1,143 @@
+package com.korniienko.kalah.service.mailbox;
+
+import com.korniienko.kalah.exceptions.GameBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Executes game commands in per-game mailboxes: every game id is mapped to one of a fixed number of single-threaded
+ * stripes, so commands on one game run one after another while different games run in parallel.
+ * Every stripe has a bounded queue, a command which does not fit or does not start within the timeout is rejected
+ * with {@link GameBusyException} and is never executed, so the rejection means the move was not applied. A command
+ * which already started when the timeout elapsed is waited for and its outcome returned.
+ * When mailboxes are disabled commands run on the calling thread.
+ */
+@Slf4j
+@Component
+public class GameMailboxes implements DisposableBean {
+
+    private final MailboxProperties mailboxProperties;
+    private final ThreadPoolExecutor[] stripes;
+    private final Counter rejected;
+    private final Counter timedOut;
+
+    @Autowired
+    public GameMailboxes(MailboxProperties mailboxProperties, MeterRegistry meterRegistry) {
+        this.mailboxProperties = mailboxProperties;
+        this.stripes = mailboxProperties.isEnabled() ? createStripes(mailboxProperties) : new ThreadPoolExecutor[0];
+        this.rejected = meterRegistry.counter("kalah.mailbox.rejected");
+        this.timedOut = meterRegistry.counter("kalah.mailbox.timeouts");
+        Gauge.builder("kalah.mailbox.queued", this, GameMailboxes::queued).register(meterRegistry);
+    }
+
+    public <T> T execute(Long gameId, Supplier<T> supplier) {
+        if (stripes.length == 0) {
+            return supplier.get();
+        }
+        final Command<T> command = new Command<>(supplier);
+        final Future<T> future;
+        try {
+            future = stripes[stripeOf(gameId)].submit(command);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new GameBusyException(String.format("Too many pending moves for the game with id [%d].", gameId));
+        }
+        boolean interrupted = false;
+        try {
+            try {
+                return future.get(mailboxProperties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                timedOut.increment();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (command.cancel()) {
+                future.cancel(false);
+                throw new GameBusyException(String.format("The move for the game with id [%d] was not processed in time.", gameId));
+            }
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+    int stripeOf(Long gameId) {
+        long hash = gameId * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) Math.floorMod(hash, (long) stripes.length);
+    }
+
+    int queued() {
+        int queued = 0;
+        for (ThreadPoolExecutor stripe : stripes) {
+            queued += stripe.getQueue().size();
+        }
+        return queued;
+    }
+
+    private static ThreadPoolExecutor[] createStripes(MailboxProperties mailboxProperties) {
+        final ThreadPoolExecutor[] stripes = new ThreadPoolExecutor[mailboxProperties.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            final String threadName = "game-mailbox-" + i;
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(mailboxProperties.getQueueCapacity()),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        log.info("Game moves are executed in [{}] mailboxes.", stripes.length);
+        return stripes;
+    }
+
+    /**
+     * Runs the supplier unless it was cancelled before it started, whichever comes first wins.
+     */
+    private static final class Command<T> implements Callable<T> {
+        private final Supplier<T> supplier;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Command(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public T call() {
+            return claimed.compareAndSet(false, true) ? supplier.get() : null;
+        }
+
+        boolean cancel() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.korniienko.kalah.service.mailbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.mailbox")
+@Data
+public class MailboxProperties {
+
+    private boolean enabled = false;
+
+    private int stripes = Runtime.getRuntime().availableProcessors() * 2;
+
+    private int queueCapacity = 1024;
+
+    private long timeoutMillis = 5000;
+}
@@ -0,0 +1,21 @@
+package com.korniienko.kalah.service.matchmaking;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.matchmaking")
+@Data
+public class MatchmakingProperties {
+
+    private int bucketWidth = 50;
+
+    private int initialRangeBuckets = 1;
+
+    private int maxRangeBuckets = 20;
+
+    private long widenIntervalMillis = 1000;
+
+    private long matchedTtlMillis = 60000;
+}
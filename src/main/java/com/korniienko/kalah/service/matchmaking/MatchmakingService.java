@@ -0,0 +1,224 @@
+package com.korniienko.kalah.service.matchmaking;
+
+import com.korniienko.kalah.dto.GameDto;
+import com.korniienko.kalah.dto.MatchmakingDto;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Pairs waiting players by rating. Players wait in buckets of {@code kalah.matchmaking.bucket-width} rating points
+ * kept in a skip list, so the nearest non-empty buckets are found in O(log n). A joining player is paired right away
+ * with a player within {@code initial-range-buckets}, otherwise the range grows by one bucket every
+ * {@code widen-interval-millis} of waiting up to {@code max-range-buckets}.
+ * <p>
+ * Both tickets are claimed before the game is created and released back if it could not be created,
+ * so a player never ends up in two games or in none.
+ */
+@Slf4j
+@Service
+public class MatchmakingService {
+
+    private final GameService gameService;
+    private final RatingProvider ratingProvider;
+    private final MatchmakingProperties matchmakingProperties;
+    private final LongSupplier clock;
+    private final ConcurrentSkipListMap<Integer, Queue<Ticket>> buckets = new ConcurrentSkipListMap<>();
+    private final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Counter matched;
+
+    @Autowired
+    public MatchmakingService(GameService gameService, RatingProvider ratingProvider,
+                              MatchmakingProperties matchmakingProperties, MeterRegistry meterRegistry) {
+        this(gameService, ratingProvider, matchmakingProperties, meterRegistry, System::nanoTime);
+    }
+
+    MatchmakingService(GameService gameService, RatingProvider ratingProvider, MatchmakingProperties matchmakingProperties,
+                       MeterRegistry meterRegistry, LongSupplier clock) {
+        this.gameService = gameService;
+        this.ratingProvider = ratingProvider;
+        this.matchmakingProperties = matchmakingProperties;
+        this.clock = clock;
+        this.matched = meterRegistry.counter("kalah.matchmaking.matched");
+        Gauge.builder("kalah.matchmaking.waiting", this, MatchmakingService::waiting).register(meterRegistry);
+    }
+
+    public MatchmakingDto join(Long userId, String gamesUrl) {
+        final long now = clock.getAsLong();
+        final Ticket[] created = new Ticket[1];
+        final Ticket ticket = tickets.compute(userId, (id, current) -> {
+            if (current != null && current.isActive()) {
+                return current;
+            }
+            final int rating = ratingProvider.ratingOf(userId);
+            created[0] = new Ticket(userId, rating, Math.floorDiv(rating, matchmakingProperties.getBucketWidth()), now, gamesUrl);
+            return created[0];
+        });
+        if (ticket != created[0]) {
+            return toDto(ticket, now);
+        }
+        final Ticket opponent = claimOpponent(ticket, matchmakingProperties.getInitialRangeBuckets());
+        if (opponent == null) {
+            ticket.state.set(Ticket.WAITING);
+            queueOf(ticket.bucket).offer(ticket);
+        } else {
+            try {
+                pair(ticket, opponent);
+            } catch (RuntimeException e) {
+                ticket.state.set(Ticket.CANCELLED);
+                tickets.remove(userId, ticket);
+                throw e;
+            }
+        }
+        return toDto(ticket, now);
+    }
+
+    public MatchmakingDto status(Long userId) {
+        final Ticket ticket = tickets.get(userId);
+        return ticket == null ? idle() : toDto(ticket, clock.getAsLong());
+    }
+
+    public MatchmakingDto leave(Long userId) {
+        final Ticket ticket = tickets.get(userId);
+        if (ticket == null) {
+            return idle();
+        }
+        while (ticket.state.get() == Ticket.CLAIMED) {
+            Thread.yield();
+        }
+        if (ticket.state.compareAndSet(Ticket.WAITING, Ticket.CANCELLED)) {
+            tickets.remove(userId, ticket);
+            return idle();
+        }
+        return toDto(ticket, clock.getAsLong());
+    }
+
+    /**
+     * Retries waiting players with the range widened by their waiting time and forgets matched tickets
+     * nobody asked for within {@code kalah.matchmaking.matched-ttl-millis}.
+     */
+    @Scheduled(fixedDelayString = "${kalah.matchmaking.widen-interval-millis:1000}")
+    public void widenAndPair() {
+        final long now = clock.getAsLong();
+        for (Ticket ticket : tickets.values()) {
+            if (ticket.state.get() == Ticket.MATCHED
+                    && now - ticket.matchedNanos > TimeUnit.MILLISECONDS.toNanos(matchmakingProperties.getMatchedTtlMillis())) {
+                tickets.remove(ticket.userId, ticket);
+            } else if (ticket.state.compareAndSet(Ticket.WAITING, Ticket.CLAIMED)) {
+                final Ticket opponent = claimOpponent(ticket, rangeOf(ticket, now));
+                if (opponent == null) {
+                    ticket.state.set(Ticket.WAITING);
+                } else {
+                    try {
+                        pair(ticket, opponent);
+                    } catch (RuntimeException e) {
+                        ticket.state.set(Ticket.WAITING);
+                        log.warn("Failed to create a game for matched players.", e);
+                    }
+                }
+            }
+        }
+    }
+
+    int rangeOf(Ticket ticket, long nowNanos) {
+        final long waitedIntervals = TimeUnit.NANOSECONDS.toMillis(nowNanos - ticket.joinedNanos) / matchmakingProperties.getWidenIntervalMillis();
+        return (int) Math.min(matchmakingProperties.getMaxRangeBuckets(), matchmakingProperties.getInitialRangeBuckets() + waitedIntervals);
+    }
+
+    int waiting() {
+        return (int) tickets.values().stream().filter(ticket -> ticket.state.get() == Ticket.WAITING).count();
+    }
+
+    private Ticket claimOpponent(Ticket ticket, int range) {
+        Integer lower = buckets.floorKey(ticket.bucket);
+        Integer higher = buckets.higherKey(ticket.bucket);
+        while (lower != null || higher != null) {
+            final boolean takeLower = higher == null || lower != null && ticket.bucket - lower <= higher - ticket.bucket;
+            final int bucket = takeLower ? lower : higher;
+            if (Math.abs(bucket - ticket.bucket) > range) {
+                return null;
+            }
+            final Ticket opponent = claimFrom(buckets.get(bucket), ticket);
+            if (opponent != null) {
+                return opponent;
+            }
+            if (takeLower) {
+                lower = buckets.lowerKey(lower);
+            } else {
+                higher = buckets.higherKey(higher);
+            }
+        }
+        return null;
+    }
+
+    private Ticket claimFrom(Queue<Ticket> queue, Ticket ticket) {
+        if (queue == null) {
+            return null;
+        }
+        for (Iterator<Ticket> waiting = queue.iterator(); waiting.hasNext(); ) {
+            final Ticket candidate = waiting.next();
+            final int state = candidate.state.get();
+            if (state == Ticket.MATCHED || state == Ticket.CANCELLED) {
+                waiting.remove();
+            } else if (candidate.userId != ticket.userId && candidate.state.compareAndSet(Ticket.WAITING, Ticket.CLAIMED)) {
+                waiting.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Both tickets are claimed and the opponent is already out of its queue, if the game cannot be created the opponent
+     * is queued again and the caller decides what happens to the ticket.
+     */
+    private void pair(Ticket ticket, Ticket opponent) {
+        final boolean ticketSouth = ThreadLocalRandom.current().nextBoolean();
+        final Ticket south = ticketSouth ? ticket : opponent;
+        final Ticket north = ticketSouth ? opponent : ticket;
+        final GameDto game;
+        try {
+            game = gameService.newGame(ticket.gamesUrl, south.userId, north.userId);
+        } catch (RuntimeException e) {
+            opponent.state.set(Ticket.WAITING);
+            queueOf(opponent.bucket).offer(opponent);
+            throw e;
+        }
+        final long now = clock.getAsLong();
+        south.matched(game, Pit.Part.SOUTH, now);
+        north.matched(game, Pit.Part.NORTH, now);
+        matched.increment(2);
+    }
+
+    private Queue<Ticket> queueOf(int bucket) {
+        return buckets.computeIfAbsent(bucket, key -> new ConcurrentLinkedQueue<>());
+    }
+
+    private MatchmakingDto toDto(Ticket ticket, long nowNanos) {
+        if (ticket.state.get() == Ticket.MATCHED) {
+            return new MatchmakingDto("MATCHED", ticket.rating,
+                    TimeUnit.NANOSECONDS.toMillis(ticket.matchedNanos - ticket.joinedNanos), ticket.game, ticket.side);
+        }
+        return new MatchmakingDto("WAITING", ticket.rating, TimeUnit.NANOSECONDS.toMillis(nowNanos - ticket.joinedNanos), null, null);
+    }
+
+    private MatchmakingDto idle() {
+        return new MatchmakingDto("IDLE", null, null, null, null);
+    }
+}
@@ -0,0 +1,9 @@
+package com.korniienko.kalah.service.matchmaking;
+
+/**
+ * Rating used to pair players by {@link MatchmakingService}.
+ */
+public interface RatingProvider {
+
+    int ratingOf(Long userId);
+}
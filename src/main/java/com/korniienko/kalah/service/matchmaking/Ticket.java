@@ -0,0 +1,49 @@
+package com.korniienko.kalah.service.matchmaking;
+
+import com.korniienko.kalah.dto.GameDto;
+import com.korniienko.kalah.model.Pit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A player waiting for an opponent. Only the thread which moved the ticket to {@link #CLAIMED} may pair it,
+ * the game and the side are written before the ticket becomes {@link #MATCHED}.
+ */
+final class Ticket {
+
+    static final int WAITING = 0;
+    static final int CLAIMED = 1;
+    static final int MATCHED = 2;
+    static final int CANCELLED = 3;
+
+    final long userId;
+    final int rating;
+    final int bucket;
+    final long joinedNanos;
+    final String gamesUrl;
+    final AtomicInteger state = new AtomicInteger(CLAIMED);
+
+    volatile GameDto game;
+    volatile Pit.Part side;
+    volatile long matchedNanos;
+
+    Ticket(long userId, int rating, int bucket, long joinedNanos, String gamesUrl) {
+        this.userId = userId;
+        this.rating = rating;
+        this.bucket = bucket;
+        this.joinedNanos = joinedNanos;
+        this.gamesUrl = gamesUrl;
+    }
+
+    void matched(GameDto game, Pit.Part side, long nowNanos) {
+        this.game = game;
+        this.side = side;
+        this.matchedNanos = nowNanos;
+        state.set(MATCHED);
+    }
+
+    boolean isActive() {
+        final int current = state.get();
+        return current == WAITING || current == CLAIMED;
+    }
+}
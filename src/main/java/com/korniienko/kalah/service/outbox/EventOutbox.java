@@ -0,0 +1,56 @@
+package com.korniienko.kalah.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.korniienko.kalah.dao.OutboxRepository;
+import com.korniienko.kalah.model.OutboxEvent;
+import com.korniienko.kalah.service.events.GameEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes game events to the outbox table, called by the {@code JpaGameStore} inside the transaction storing the game,
+ * so the events are stored if and only if the game is.
+ */
+@Component
+public class EventOutbox {
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxProperties outboxProperties;
+    private final ObjectWriter objectWriter;
+
+    @Autowired
+    public EventOutbox(OutboxRepository outboxRepository, OutboxProperties outboxProperties, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.outboxProperties = outboxProperties;
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    public boolean isEnabled() {
+        return outboxProperties.isEnabled();
+    }
+
+    public void append(List<GameEvent> events) {
+        final Instant createdAt = Instant.now();
+        final List<OutboxEvent> outboxEvents = new ArrayList<>(events.size());
+        for (GameEvent event : events) {
+            outboxEvents.add(new OutboxEvent(null, event.getGameId(), event.getClass().getSimpleName(), toJson(event), createdAt));
+        }
+        outboxRepository.saveAll(outboxEvents);
+    }
+
+    private String toJson(GameEvent event) {
+        try {
+            return objectWriter.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(String.format("Cannot write [%s] of the game [%d] to the outbox.",
+                    event.getClass().getSimpleName(), event.getGameId()), e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.korniienko.kalah.service.outbox;
+
+import com.korniienko.kalah.model.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Default {@link OutboxPublisher} until a broker is configured, writes the events to the log.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kalah.outbox.publisher", havingValue = "log", matchIfMissing = true)
+public class LoggingOutboxPublisher implements OutboxPublisher {
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            log.debug("Outbox event [{}] of the game [{}]: {} {}", event.getId(), event.getGameId(), event.getType(), event.getPayload());
+        }
+    }
+}
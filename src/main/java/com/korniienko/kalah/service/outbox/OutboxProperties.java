@@ -0,0 +1,19 @@
+package com.korniienko.kalah.service.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.outbox")
+@Data
+public class OutboxProperties {
+
+    private boolean enabled = true;
+
+    private int batchSize = 1000;
+
+    private long intervalMillis = 1000;
+
+    private String publisher = "log";
+}
@@ -0,0 +1,19 @@
+package com.korniienko.kalah.service.outbox;
+
+import com.korniienko.kalah.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Hands relayed outbox events over to other services. A batch is acknowledged by returning normally, only then it is
+ * deleted from the outbox. A batch which is not acknowledged is relayed again, so the receivers may get an event
+ * twice and should deduplicate by {@link OutboxEvent#getId()}.
+ */
+@FunctionalInterface
+public interface OutboxPublisher {
+
+    /**
+     * @param events events ordered by id, the events of a game are in the order of its moves
+     */
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,68 @@
+package com.korniienko.kalah.service.outbox;
+
+import com.korniienko.kalah.dao.OutboxRepository;
+import com.korniienko.kalah.model.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relays the outbox to the {@link OutboxPublisher} in batches of {@code kalah.outbox.batch-size} oldest events.
+ * A batch is deleted by its ids after the publisher acknowledged it, not by an id range: an event with a lower id may
+ * still be committed after a batch was read, it stays in the outbox and goes with the next batch. A batch which is not
+ * acknowledged stays in the outbox and is relayed again on the next run. Events left in the outbox by a previous run
+ * of the application are relayed from startup, before any new game is played.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final OutboxProperties outboxProperties;
+
+    @Autowired
+    public OutboxRelay(OutboxRepository outboxRepository, OutboxPublisher outboxPublisher, OutboxProperties outboxProperties) {
+        this.outboxRepository = outboxRepository;
+        this.outboxPublisher = outboxPublisher;
+        this.outboxProperties = outboxProperties;
+    }
+
+    @Scheduled(initialDelayString = "${kalah.outbox.interval-millis:1000}", fixedDelayString = "${kalah.outbox.interval-millis:1000}")
+    public void relayOutbox() {
+        if (!outboxProperties.isEnabled()) {
+            return;
+        }
+        int relayed;
+        do {
+            try {
+                relayed = relayBatch();
+            } catch (RuntimeException e) {
+                log.warn("Outbox relay failed, the events are relayed again on the next run.", e);
+                return;
+            }
+        } while (relayed >= outboxProperties.getBatchSize());
+    }
+
+    int relayBatch() {
+        final List<OutboxEvent> events = outboxRepository.findOldest(PageRequest.of(0, outboxProperties.getBatchSize()));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        outboxPublisher.publish(events);
+        final List<Long> ids = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            ids.add(event.getId());
+        }
+        outboxRepository.deleteByIds(ids);
+        log.debug("Relayed [{}] outbox events.", events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,44 @@
+package com.korniienko.kalah.service.rating;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Players ordered by rating, highest first, ties by user id. Kept sorted on every rating change,
+ * so reading the top of the board costs {@code O(log n + limit)} regardless of the number of players.
+ * Changed by a single writer, a reader may miss a player whose rating is being changed at that moment.
+ */
+class Leaderboard {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getRating).reversed()
+            .thenComparingLong(Entry::getUserId);
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+    void update(long userId, Integer oldRating, int newRating) {
+        if (oldRating != null) {
+            entries.remove(new Entry(userId, oldRating));
+        }
+        entries.add(new Entry(userId, newRating));
+    }
+
+    List<Entry> top(int limit) {
+        final List<Entry> top = new ArrayList<>(limit);
+        final Iterator<Entry> iterator = entries.iterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    @Value
+    static class Entry {
+        long userId;
+        int rating;
+    }
+}
@@ -0,0 +1,21 @@
+package com.korniienko.kalah.service.rating;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.rating")
+@Data
+public class RatingProperties {
+
+    private int initialRating = 1500;
+
+    private int maxChangePerGame = 32;
+
+    private long batchWindowMillis = 1000;
+
+    private int queueCapacity = 1 << 20;
+
+    private int maxLeaderboardSize = 100;
+}
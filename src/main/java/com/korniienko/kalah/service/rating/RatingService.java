@@ -0,0 +1,121 @@
+package com.korniienko.kalah.service.rating;
+
+import com.korniienko.kalah.dto.LeaderboardDto;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameFinishedEvent;
+import com.korniienko.kalah.service.events.GameEvent;
+import com.korniienko.kalah.service.events.GameEventConsumer;
+import com.korniienko.kalah.service.matchmaking.RatingProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Elo ratings of the players computed from {@link GameFinishedEvent} of rated games, i.e. games where every move was
+ * accepted only from the player of the side. The event consumer only queues the result and waits when the queue is full,
+ * the queued results are applied every {@code kalah.rating.batch-window-millis}: all games of the window are rated
+ * against the ratings from before the window and every player is updated once with the sum of the changes.
+ * The leaderboard is kept sorted as ratings change. Ratings are kept in memory only.
+ */
+@Slf4j
+@Service
+public class RatingService implements RatingProvider, GameEventConsumer {
+
+    private final RatingProperties ratingProperties;
+    private final BlockingQueue<GameResult> pending;
+    private final Map<Long, Integer> ratings = new ConcurrentHashMap<>();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final Counter dropped;
+
+    @Autowired
+    public RatingService(RatingProperties ratingProperties, MeterRegistry meterRegistry) {
+        this.ratingProperties = ratingProperties;
+        this.pending = new ArrayBlockingQueue<>(ratingProperties.getQueueCapacity());
+        this.dropped = meterRegistry.counter("kalah.rating.dropped");
+        Gauge.builder("kalah.rating.pending", pending, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @Override
+    public int ratingOf(Long userId) {
+        return ratings.getOrDefault(userId, ratingProperties.getInitialRating());
+    }
+
+    public LeaderboardDto leaderboard(int limit) {
+        final List<Leaderboard.Entry> top = leaderboard.top(Math.max(1, Math.min(limit, ratingProperties.getMaxLeaderboardSize())));
+        final List<LeaderboardDto.Entry> entries = new ArrayList<>(top.size());
+        for (Leaderboard.Entry entry : top) {
+            entries.add(new LeaderboardDto.Entry(entries.size() + 1, entry.getUserId(), entry.getRating()));
+        }
+        return new LeaderboardDto(ratings.size(), entries);
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        if (event instanceof GameFinishedEvent) {
+            onGameFinished((GameFinishedEvent) event);
+        }
+    }
+
+    public void onGameFinished(GameFinishedEvent event) {
+        if (!event.isRated()) {
+            return;
+        }
+        final Long south = event.getSouthPlayerId();
+        final Long north = event.getNorthPlayerId();
+        final double southScore = event.isDraw() ? 0.5 : event.getWinner() == Pit.Part.SOUTH ? 1 : 0;
+        try {
+            pending.put(new GameResult(south, north, southScore));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+            log.warn("Interrupted while the rating queue is full, result of the game [{}] is not rated.", event.getGameId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${kalah.rating.batch-window-millis:1000}")
+    public synchronized void applyPendingResults() {
+        final List<GameResult> batch = new ArrayList<>();
+        pending.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        final Map<Long, Double> changes = new HashMap<>();
+        for (GameResult result : batch) {
+            final double southExpected = expectedScore(ratingOf(result.south), ratingOf(result.north));
+            final double southChange = ratingProperties.getMaxChangePerGame() * (result.southScore - southExpected);
+            changes.merge(result.south, southChange, Double::sum);
+            changes.merge(result.north, -southChange, Double::sum);
+        }
+        changes.forEach((userId, change) -> {
+            final Integer oldRating = ratings.get(userId);
+            final int newRating = (int) Math.round((oldRating != null ? oldRating : ratingProperties.getInitialRating()) + change);
+            ratings.put(userId, newRating);
+            leaderboard.update(userId, oldRating, newRating);
+        });
+        log.debug("Rated [{}] games of [{}] players.", batch.size(), changes.size());
+    }
+
+    static double expectedScore(int rating, int opponentRating) {
+        return 1 / (1 + Math.pow(10, (opponentRating - rating) / 400.0));
+    }
+
+    @Value
+    private static class GameResult {
+        Long south;
+        Long north;
+        double southScore;
+    }
+}
@@ -0,0 +1,25 @@
+package com.korniienko.kalah.service.tournament;
+
+import com.korniienko.kalah.dto.GameDto;
+
+/**
+ * A game of a tournament round between two players, the game is assigned once it is created by a worker.
+ * The time of the last move starts at the creation of the game, the version is the version of the game at that move,
+ * a new game has version 0.
+ */
+final class Match {
+
+    final Tournament tournament;
+    final int south;
+    final int north;
+    volatile GameDto game;
+    volatile boolean finished;
+    volatile long lastMoveNanos;
+    volatile long version;
+
+    Match(Tournament tournament, int south, int north) {
+        this.tournament = tournament;
+        this.south = south;
+        this.north = north;
+    }
+}
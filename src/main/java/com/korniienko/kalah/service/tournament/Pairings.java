@@ -0,0 +1,93 @@
+package com.korniienko.kalah.service.tournament;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Pairs tournament players for a round, a pair is {@code {south, north}} player indexes,
+ * a player paired with {@link #BYE} has no game in the round.
+ */
+final class Pairings {
+
+    static final int BYE = -1;
+
+    private Pairings() {
+    }
+
+    /**
+     * Circle method: the first player stays in place and the others rotate by one position every round,
+     * so every player meets every other player once in {@link #roundRobinRounds(int)} rounds.
+     */
+    static List<int[]> roundRobin(int players, int round) {
+        final int size = players % 2 == 0 ? players : players + 1;
+        final List<int[]> pairs = new ArrayList<>(size / 2);
+        for (int i = 0; i < size / 2; i++) {
+            final int first = playerAt(i, round, size, players);
+            final int second = playerAt(size - 1 - i, round, size, players);
+            final boolean swapSides = i == 0 ? round % 2 == 1 : i % 2 == 1;
+            pairs.add(swapSides ? new int[]{second, first} : new int[]{first, second});
+        }
+        return pairs;
+    }
+
+    static int roundRobinRounds(int players) {
+        return players % 2 == 0 ? players - 1 : players;
+    }
+
+    /**
+     * Players are ranked by score and paired top-down with the nearest lower ranked player they have not met yet,
+     * with an odd number of players the lowest ranked player without a bye sits out.
+     * If every remaining opponent was already met the nearest one is taken, a rematch is preferred to an unpaired player.
+     */
+    static List<int[]> swiss(int[] scores, boolean[] hadBye, Set<Long> played) {
+        final List<Integer> ranked = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.<Integer>comparingInt(player -> scores[player]).reversed().thenComparingInt(player -> player))
+                .collect(Collectors.toList());
+        final List<int[]> pairs = new ArrayList<>(scores.length / 2 + 1);
+        if (ranked.size() % 2 == 1) {
+            int byePosition = ranked.size() - 1;
+            while (byePosition > 0 && hadBye[ranked.get(byePosition)]) {
+                byePosition--;
+            }
+            pairs.add(new int[]{ranked.remove(byePosition), BYE});
+        }
+        final boolean[] paired = new boolean[ranked.size()];
+        for (int i = 0; i < ranked.size(); i++) {
+            if (paired[i]) {
+                continue;
+            }
+            int opponent = -1;
+            for (int j = i + 1; j < ranked.size(); j++) {
+                if (paired[j]) {
+                    continue;
+                }
+                if (opponent < 0) {
+                    opponent = j;
+                }
+                if (!played.contains(pairKey(ranked.get(i), ranked.get(j)))) {
+                    opponent = j;
+                    break;
+                }
+            }
+            paired[i] = true;
+            paired[opponent] = true;
+            final int first = ranked.get(i);
+            final int second = ranked.get(opponent);
+            pairs.add(pairs.size() % 2 == 0 ? new int[]{first, second} : new int[]{second, first});
+        }
+        return pairs;
+    }
+
+    static long pairKey(int player, int opponent) {
+        return player < opponent ? (long) player << 32 | opponent : (long) opponent << 32 | player;
+    }
+
+    private static int playerAt(int position, int round, int size, int players) {
+        final int player = position == 0 ? 0 : 1 + (position - 1 + round) % (size - 1);
+        return player < players ? player : BYE;
+    }
+}
@@ -0,0 +1,153 @@
+package com.korniienko.kalah.service.tournament;
+
+import com.korniienko.kalah.dto.GameDto;
+import com.korniienko.kalah.dto.TournamentDto;
+import com.korniienko.kalah.model.Pit;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Standings are updated by every finished game, scores are kept in half points: a win or a bye is two, a draw is one.
+ * A round is paired only after all games of the previous round are finished, so pairing runs on one thread at a time.
+ */
+final class Tournament {
+
+    enum Status {
+        RUNNING,
+        FINISHED,
+        FAILED
+    }
+
+    final Long id;
+    final TournamentFormat format;
+    final List<String> players;
+    final long[] playerIds;
+    final int rounds;
+    final String gamesUrl;
+
+    private final AtomicIntegerArray halfPoints;
+    private final AtomicIntegerArray wins;
+    private final AtomicIntegerArray draws;
+    private final AtomicIntegerArray losses;
+    private final AtomicInteger pendingGames = new AtomicInteger();
+    private final AtomicLong finishedGames = new AtomicLong();
+    private final boolean[] hadBye;
+    private final Set<Long> played = new HashSet<>();
+
+    private volatile int round;
+    private volatile List<Match> matches = Collections.emptyList();
+    private volatile Status status = Status.RUNNING;
+    private volatile long overNanos;
+
+    Tournament(Long id, TournamentFormat format, List<String> players, long[] playerIds, int rounds, String gamesUrl) {
+        this.id = id;
+        this.format = format;
+        this.players = players;
+        this.playerIds = playerIds;
+        this.rounds = rounds;
+        this.gamesUrl = gamesUrl;
+        this.halfPoints = new AtomicIntegerArray(players.size());
+        this.wins = new AtomicIntegerArray(players.size());
+        this.draws = new AtomicIntegerArray(players.size());
+        this.losses = new AtomicIntegerArray(players.size());
+        this.hadBye = new boolean[players.size()];
+    }
+
+    List<Match> pairNextRound() {
+        final List<int[]> pairs = format == TournamentFormat.ROUND_ROBIN
+                ? Pairings.roundRobin(players.size(), round)
+                : Pairings.swiss(scores(), hadBye, played);
+        final List<Match> next = new ArrayList<>(pairs.size());
+        for (int[] pair : pairs) {
+            if (pair[0] == Pairings.BYE || pair[1] == Pairings.BYE) {
+                final int player = pair[0] == Pairings.BYE ? pair[1] : pair[0];
+                hadBye[player] = true;
+                halfPoints.addAndGet(player, 2);
+            } else {
+                played.add(Pairings.pairKey(pair[0], pair[1]));
+                next.add(new Match(this, pair[0], pair[1]));
+            }
+        }
+        pendingGames.set(next.size());
+        matches = next;
+        round++;
+        return next;
+    }
+
+    /**
+     * @return true when it was the last unfinished game of the round
+     */
+    boolean record(Match match, Pit.Part winner, boolean draw) {
+        if (draw || winner == null) {
+            halfPoints.incrementAndGet(match.south);
+            halfPoints.incrementAndGet(match.north);
+            draws.incrementAndGet(match.south);
+            draws.incrementAndGet(match.north);
+        } else {
+            final int winnerPlayer = winner == Pit.Part.SOUTH ? match.south : match.north;
+            final int loserPlayer = winner == Pit.Part.SOUTH ? match.north : match.south;
+            halfPoints.addAndGet(winnerPlayer, 2);
+            wins.incrementAndGet(winnerPlayer);
+            losses.incrementAndGet(loserPlayer);
+        }
+        match.finished = true;
+        finishedGames.incrementAndGet();
+        return pendingGames.decrementAndGet() == 0;
+    }
+
+    boolean hasMoreRounds() {
+        return round < rounds;
+    }
+
+    void finish(long nowNanos) {
+        overNanos = nowNanos;
+        status = Status.FINISHED;
+    }
+
+    void fail(long nowNanos) {
+        overNanos = nowNanos;
+        status = Status.FAILED;
+    }
+
+    boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+
+    /**
+     * Time of {@link #finish(long)} or {@link #fail(long)}, meaningful only when the tournament is not running.
+     */
+    long getOverNanos() {
+        return overNanos;
+    }
+
+    TournamentDto toDto() {
+        final List<TournamentDto.Standing> standings = IntStream.range(0, players.size()).boxed()
+                .sorted(Comparator.<Integer>comparingInt(halfPoints::get).reversed()
+                        .thenComparing(Comparator.<Integer>comparingInt(wins::get).reversed())
+                        .thenComparing(players::get))
+                .map(player -> new TournamentDto.Standing(players.get(player), halfPoints.get(player) / 2.0,
+                        wins.get(player), draws.get(player), losses.get(player)))
+                .collect(Collectors.toList());
+        final List<TournamentDto.Match> games = matches.stream()
+                .map(match -> {
+                    final GameDto game = match.game;
+                    return new TournamentDto.Match(game != null ? game.getId() : null, game != null ? game.getUri() : null,
+                            players.get(match.south), players.get(match.north), match.finished);
+                })
+                .collect(Collectors.toList());
+        return new TournamentDto(id, format, status.name(), round, rounds, finishedGames.get(), standings, games);
+    }
+
+    private int[] scores() {
+        final int[] scores = new int[players.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = halfPoints.get(i);
+        }
+        return scores;
+    }
+}
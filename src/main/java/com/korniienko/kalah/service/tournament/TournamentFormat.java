@@ -0,0 +1,6 @@
+package com.korniienko.kalah.service.tournament;
+
+public enum TournamentFormat {
+    ROUND_ROBIN,
+    SWISS
+}
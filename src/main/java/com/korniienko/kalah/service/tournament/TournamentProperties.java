@@ -0,0 +1,25 @@
+package com.korniienko.kalah.service.tournament;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "kalah.tournament")
+@Data
+public class TournamentProperties {
+
+    private int workerThreads = Runtime.getRuntime().availableProcessors();
+
+    private int queueCapacity = 1024;
+
+    private int gamesPerTask = 256;
+
+    private int maxPlayers = 65536;
+
+    private long forfeitAfterMillis = 300_000;
+
+    private long retentionMillis = 3_600_000;
+
+    private long sweepIntervalMillis = 1000;
+}
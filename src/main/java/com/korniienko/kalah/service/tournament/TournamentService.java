@@ -0,0 +1,250 @@
+package com.korniienko.kalah.service.tournament;
+
+import com.korniienko.kalah.dto.GameDto;
+import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.dto.TournamentDto;
+import com.korniienko.kalah.dto.TournamentRequestDto;
+import com.korniienko.kalah.exceptions.IllegalTournamentException;
+import com.korniienko.kalah.exceptions.TournamentNotFoundException;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.model.User;
+import com.korniienko.kalah.service.GameFinishedEvent;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.MoveAppliedEvent;
+import com.korniienko.kalah.service.MyUserDetailsService;
+import com.korniienko.kalah.service.events.GameEvent;
+import com.korniienko.kalah.service.events.GameEventConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs round-robin and Swiss tournaments on top of {@link GameService}: games of a round are created on a worker pool
+ * in batches of {@code kalah.tournament.games-per-task}, the players are registered users and make the moves of their
+ * side through the game API. Standings are updated from {@link GameFinishedEvent}, the next round is paired when the
+ * last game of the round is finished.
+ * <p>
+ * A player who does not move within {@code kalah.tournament.forfeit-after-millis} loses the game by forfeit, so an
+ * abandoned game does not stall its round, the game is finished in the store by the forfeit. Tournaments are kept in memory only and are forgotten
+ * {@code kalah.tournament.retention-millis} after they are over.
+ */
+@Slf4j
+@Service
+public class TournamentService implements GameEventConsumer, DisposableBean {
+
+    private final GameService gameService;
+    private final MyUserDetailsService userDetailsService;
+    private final TournamentProperties tournamentProperties;
+    private final Executor workers;
+    private final LongSupplier clock;
+    private final AtomicLong lastId = new AtomicLong();
+    private final Map<Long, Tournament> tournaments = new ConcurrentHashMap<>();
+    private final Map<Long, Match> matchesByGame = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TournamentService(GameService gameService, MyUserDetailsService userDetailsService, TournamentProperties tournamentProperties) {
+        this(gameService, userDetailsService, tournamentProperties, newWorkerPool(tournamentProperties), System::nanoTime);
+    }
+
+    TournamentService(GameService gameService, MyUserDetailsService userDetailsService, TournamentProperties tournamentProperties,
+                      Executor workers, LongSupplier clock) {
+        this.gameService = gameService;
+        this.userDetailsService = userDetailsService;
+        this.tournamentProperties = tournamentProperties;
+        this.workers = workers;
+        this.clock = clock;
+    }
+
+    public TournamentDto create(TournamentRequestDto request, String gamesUrl) {
+        final List<String> players = validPlayers(request);
+        final int rounds = validRounds(request, players.size());
+        final long[] playerIds = playerIds(players);
+        final Tournament tournament = new Tournament(lastId.incrementAndGet(), request.getFormat(), players, playerIds, rounds, gamesUrl);
+        tournaments.put(tournament.id, tournament);
+        workers.execute(() -> startNextRound(tournament));
+        return tournament.toDto();
+    }
+
+    public TournamentDto progress(Long tournamentId) {
+        final Tournament tournament = tournaments.get(tournamentId);
+        if (tournament == null) {
+            throw new TournamentNotFoundException(String.format("Tournament with id [%d] not found on the server.", tournamentId));
+        }
+        return tournament.toDto();
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        if (event instanceof GameFinishedEvent) {
+            onGameFinished((GameFinishedEvent) event);
+        } else if (event instanceof MoveAppliedEvent) {
+            final MoveAppliedEvent moveApplied = (MoveAppliedEvent) event;
+            final Match match = matchesByGame.get(moveApplied.getGameId());
+            if (match != null) {
+                match.version = moveApplied.getVersion();
+                match.lastMoveNanos = clock.getAsLong();
+            }
+        }
+    }
+
+    public void onGameFinished(GameFinishedEvent event) {
+        final Match match = matchesByGame.remove(event.getGameId());
+        if (match != null) {
+            record(match, event.getWinner(), event.isDraw());
+        }
+    }
+
+    /**
+     * The side to move loses the games where nobody moved within {@code kalah.tournament.forfeit-after-millis},
+     * tournaments which are over for {@code kalah.tournament.retention-millis} are forgotten.
+     */
+    @Scheduled(fixedDelayString = "${kalah.tournament.sweep-interval-millis:1000}")
+    public void forfeitAndEvict() {
+        final long now = clock.getAsLong();
+        final long forfeitAfterNanos = TimeUnit.MILLISECONDS.toNanos(tournamentProperties.getForfeitAfterMillis());
+        for (Map.Entry<Long, Match> entry : matchesByGame.entrySet()) {
+            final Match match = entry.getValue();
+            if (!match.tournament.isRunning()) {
+                matchesByGame.remove(entry.getKey(), match);
+            } else if (now - match.lastMoveNanos > forfeitAfterNanos) {
+                forfeit(entry.getKey(), match);
+            }
+        }
+        final long retentionNanos = TimeUnit.MILLISECONDS.toNanos(tournamentProperties.getRetentionMillis());
+        tournaments.values().removeIf(tournament -> !tournament.isRunning() && now - tournament.getOverNanos() > retentionNanos);
+    }
+
+    @Override
+    public void destroy() {
+        if (workers instanceof ExecutorService) {
+            ((ExecutorService) workers).shutdownNow();
+        }
+    }
+
+    private void startNextRound(Tournament tournament) {
+        final List<Match> matches = tournament.pairNextRound();
+        final int gamesPerTask = tournamentProperties.getGamesPerTask();
+        for (int from = 0; from < matches.size(); from += gamesPerTask) {
+            final List<Match> batch = matches.subList(from, Math.min(from + gamesPerTask, matches.size()));
+            workers.execute(() -> createGames(tournament, batch));
+        }
+    }
+
+    private void createGames(Tournament tournament, List<Match> batch) {
+        for (Match match : batch) {
+            try {
+                final GameDto game = gameService.newGame(tournament.gamesUrl,
+                        tournament.playerIds[match.south], tournament.playerIds[match.north]);
+                match.lastMoveNanos = clock.getAsLong();
+                matchesByGame.put(game.getId(), match);
+                match.game = game;
+            } catch (RuntimeException e) {
+                log.error(String.format("Failed to create a game of the tournament [%d].", tournament.id), e);
+                tournament.fail(clock.getAsLong());
+                return;
+            }
+        }
+    }
+
+    /**
+     * {@link MoveAppliedEvent} may be dropped, so the version of the game is read before the forfeit: a game changed
+     * since the last seen move restarts the wait instead.
+     */
+    private void forfeit(Long gameId, Match match) {
+        final Pit.Part side;
+        try {
+            final GameStatusDto status = gameService.status(gameId);
+            if (status.isFinished()) {
+                return;
+            }
+            if (status.getVersion() != match.version) {
+                match.version = status.getVersion();
+                match.lastMoveNanos = clock.getAsLong();
+                return;
+            }
+            side = gameService.forfeit(gameId, match.version);
+        } catch (RuntimeException e) {
+            log.warn(String.format("Failed to forfeit the tournament game [%d].", gameId), e);
+            return;
+        }
+        if (side != null && matchesByGame.remove(gameId, match)) {
+            log.debug("The [{}] side forfeits the tournament game [{}].", side, gameId);
+            record(match, side.opposite(), false);
+        }
+    }
+
+    private void record(Match match, Pit.Part winner, boolean draw) {
+        final Tournament tournament = match.tournament;
+        if (tournament.record(match, winner, draw)) {
+            if (tournament.hasMoreRounds()) {
+                workers.execute(() -> startNextRound(tournament));
+            } else {
+                tournament.finish(clock.getAsLong());
+                log.debug("Tournament [{}] is finished.", tournament.id);
+            }
+        }
+    }
+
+    private long[] playerIds(List<String> players) {
+        final long[] playerIds = new long[players.size()];
+        for (int i = 0; i < playerIds.length; i++) {
+            try {
+                playerIds[i] = ((User) userDetailsService.loadUserByUsername(players.get(i))).getId();
+            } catch (UsernameNotFoundException e) {
+                throw new IllegalTournamentException(String.format("Tournament player [%s] is not a registered user.", players.get(i)));
+            }
+        }
+        return playerIds;
+    }
+
+    private List<String> validPlayers(TournamentRequestDto request) {
+        if (request.getFormat() == null) {
+            throw new IllegalTournamentException("Tournament format is required.");
+        }
+        final List<String> players = request.getPlayers() == null ? new ArrayList<>() : new ArrayList<>(request.getPlayers());
+        if (players.size() < 2 || players.size() > tournamentProperties.getMaxPlayers()) {
+            throw new IllegalTournamentException(String.format("Tournament needs from 2 to [%d] players.", tournamentProperties.getMaxPlayers()));
+        }
+        if (new HashSet<>(players).size() != players.size()) {
+            throw new IllegalTournamentException("Tournament players must be unique.");
+        }
+        return players;
+    }
+
+    private int validRounds(TournamentRequestDto request, int players) {
+        final int maxRounds = Pairings.roundRobinRounds(players);
+        if (request.getRounds() == null) {
+            return request.getFormat() == TournamentFormat.SWISS
+                    ? Math.min(maxRounds, 32 - Integer.numberOfLeadingZeros(players - 1))
+                    : maxRounds;
+        }
+        if (request.getRounds() < 1 || request.getRounds() > maxRounds) {
+            throw new IllegalTournamentException(String.format("Tournament of [%d] players has from 1 to [%d] rounds.", players, maxRounds));
+        }
+        return request.getRounds();
+    }
+
+    private static ThreadPoolExecutor newWorkerPool(TournamentProperties tournamentProperties) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(tournamentProperties.getWorkerThreads(), tournamentProperties.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(tournamentProperties.getQueueCapacity()),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "tournament-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -127,6 +127,34 @@ class KalahApplicationTests {
         }
     }
 
+    @Test
+    void testStatusIsNotCachedAfterExtraTurnMove() {
+        HttpEntity<String> entity = new HttpEntity<>(null, headers);
+        final String gameUri = restTemplate.exchange(apiRequestUrl("/games"), HttpMethod.POST, entity, JsonNode.class)
+                .getBody().get("uri").asText();
+        final ResponseEntity<JsonNode> statusResponse = restTemplate.exchange(gameUri.concat("/status"), HttpMethod.GET, entity, JsonNode.class);
+        final String oldETag = statusResponse.getHeaders().getETag();
+        assertNotNull(oldETag);
+        final String turn = restTemplate.exchange(gameUri.concat("/moves"), HttpMethod.GET, entity, JsonNode.class)
+                .getBody().get("turn").asText();
+
+        final String extraTurnPit = "SOUTH".equals(turn) ? "1" : "8";
+        final ResponseEntity<JsonNode> moveResponse =
+                restTemplate.exchange(gameUri.concat("/pits/").concat(extraTurnPit).concat("?delta=true"), HttpMethod.PUT, entity, JsonNode.class);
+        assertEquals(HttpStatus.OK, moveResponse.getStatusCode());
+        assertEquals(turn, restTemplate.exchange(gameUri.concat("/moves"), HttpMethod.GET, entity, JsonNode.class)
+                .getBody().get("turn").asText());
+        assertTrue(moveResponse.getBody().get("version").asLong() > Long.parseLong(oldETag.replace("\"", "")));
+
+        final HttpHeaders conditionalHeaders = new HttpHeaders();
+        conditionalHeaders.putAll(headers);
+        conditionalHeaders.setIfNoneMatch(oldETag);
+        final ResponseEntity<JsonNode> conditionalResponse = restTemplate.exchange(gameUri.concat("/status"), HttpMethod.GET,
+                new HttpEntity<>(null, conditionalHeaders), JsonNode.class);
+        assertEquals(HttpStatus.OK, conditionalResponse.getStatusCode());
+        assertNotEquals(oldETag, conditionalResponse.getHeaders().getETag());
+    }
+
     private String apiRequestUrl(String uri) {
         return "http://localhost:".concat(String.valueOf(port)).concat(uri);
     }
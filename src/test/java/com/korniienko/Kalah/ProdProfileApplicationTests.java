@@ -0,0 +1,55 @@
+package com.korniienko.kalah;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korniienko.kalah.configuration.StartupTimingReporter;
+import com.korniienko.kalah.dto.UserCredentialsDto;
+import com.korniienko.kalah.service.GameArchiver;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("prod")
+public class ProdProfileApplicationTests {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void shouldStartWithoutSwaggerAndWithStartupReport() {
+        assertTrue(context.getBeansOfType(Docket.class).isEmpty());
+        assertEquals(1, context.getBeansOfType(StartupTimingReporter.class).size());
+        assertTrue(context.getBeanFactory().containsSingleton("gameArchiver"));
+    }
+
+    @Test
+    public void shouldServeLazilyCreatedControllers() throws Exception {
+        final UserCredentialsDto credentials = new UserCredentialsDto(randomUUID().toString(), randomUUID().toString());
+        final String body = mockMvc.perform(post("/auth/signup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(credentials)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        final String token = objectMapper.readTree(body).get("token").asText();
+        mockMvc.perform(post("/games").header("Authorization", "Bearer " + token))
+                .andExpect(status().isCreated());
+    }
+}
@@ -0,0 +1,37 @@
+package com.korniienko.kalah.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartupTimingReporterTest {
+
+    @Test
+    public void shouldReportSlowestBeansFirst() throws Exception {
+        final StartupTimingReporter reporter = new StartupTimingReporter(2);
+        initialize(reporter, "slow", 50);
+        initialize(reporter, "medium", 20);
+        initialize(reporter, "fast", 0);
+        final List<Map.Entry<String, Long>> slowest = reporter.slowestBeans();
+        assertEquals(2, slowest.size());
+        assertEquals("slow", slowest.get(0).getKey());
+        assertEquals("medium", slowest.get(1).getKey());
+    }
+
+    @Test
+    public void shouldIgnoreBeansNotInstantiatedByTheFactory() {
+        final StartupTimingReporter reporter = new StartupTimingReporter(10);
+        final Object bean = new Object();
+        assertSame(bean, reporter.postProcessAfterInitialization(bean, "registeredSingleton"));
+        assertTrue(reporter.slowestBeans().isEmpty());
+    }
+
+    private void initialize(StartupTimingReporter reporter, String beanName, long millis) throws InterruptedException {
+        reporter.postProcessBeforeInstantiation(Object.class, beanName);
+        Thread.sleep(millis);
+        reporter.postProcessAfterInitialization(new Object(), beanName);
+    }
+}
@@ -3,9 +3,12 @@ package com.korniienko.kalah.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.korniienko.kalah.dao.UserRepository;
 import com.korniienko.kalah.dto.UserCredentialsDto;
+import com.korniienko.kalah.exceptions.TooManyRequestsException;
 import com.korniienko.kalah.model.User;
 import com.korniienko.kalah.security.jwt.JwtAuthenticationEntryPoint;
 import com.korniienko.kalah.security.jwt.JwtTokenProvider;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.security.password.PasswordHashingExecutor;
 import com.korniienko.kalah.service.GameService;
 import com.korniienko.kalah.service.MyUserDetailsService;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,6 +20,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -25,10 +29,15 @@ import org.springframework.web.context.WebApplicationContext;
 
 import java.util.ArrayList;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -57,19 +66,24 @@ public class AuthenticationControllerTest {
     private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     @MockBean
     private JwtTokenProvider jwtTokenProvider;
+    @MockBean
+    private PasswordHashingExecutor passwordHashingExecutor;
+    @MockBean
+    private RateLimiter rateLimiter;
 
     @BeforeEach
     public void setUp() {
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
                 .apply(springSecurity())
                 .build();
+        when(passwordHashingExecutor.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
     }
 
     @Test
     public void shouldLoginExistingUserAndReturnJwtToken() throws Exception {
         String expectedToken = UUID.randomUUID().toString();
         final User user = new User(1L, "admin", "admin", new ArrayList<>());
-        when(userDetailsService.loadUserByUsername(anyString())).thenReturn(user);
+        when(authenticationManager.authenticate(any())).thenReturn(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
         when(jwtTokenProvider.createToken(anyString(), anyList())).thenReturn(expectedToken);
         final byte[] content = objectMapper.writeValueAsBytes(new UserCredentialsDto("admin", "admin"));
         this.mockMvc.perform(post("/auth/login")
@@ -78,12 +92,13 @@ public class AuthenticationControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.token", is(expectedToken)))
                 .andExpect(jsonPath("$.username", is(user.getUsername())));
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
     }
 
     @Test
     public void shouldFailToLoginNonExistingUserAndReturnErrorResponse() throws Exception {
         final UsernameNotFoundException ex = new UsernameNotFoundException("Username [SPRING_TEST] not found.");
-        when(userDetailsService.loadUserByUsername(anyString())).thenThrow(ex);
+        when(authenticationManager.authenticate(any())).thenThrow(ex);
         final byte[] content = objectMapper.writeValueAsBytes(new UserCredentialsDto("admin", "admin"));
         this.mockMvc.perform(post("/auth/login")
                 .contentType(MediaType.APPLICATION_JSON).content(content))
@@ -107,6 +122,20 @@ public class AuthenticationControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.token", is(expectedToken)))
                 .andExpect(jsonPath("$.username", is(user.getUsername())));
+        verify(authenticationManager, never()).authenticate(any());
+    }
+
+    @Test
+    public void shouldRejectLoginWhenPasswordHashingIsOverloaded() throws Exception {
+        final TooManyRequestsException ex = new TooManyRequestsException("Too many login requests, please try again later.", 1);
+        doThrow(ex).when(passwordHashingExecutor).execute(any());
+        final byte[] content = objectMapper.writeValueAsBytes(new UserCredentialsDto("admin", "admin"));
+        this.mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.status", is(HttpStatus.TOO_MANY_REQUESTS.name())))
+                .andExpect(jsonPath("$.message", is(ex.getMessage())));
     }
 
     @Test
@@ -0,0 +1,98 @@
+package com.korniienko.kalah.controller;
+
+import com.korniienko.kalah.dao.UserRepository;
+import com.korniienko.kalah.security.jwt.JwtAuthenticationEntryPoint;
+import com.korniienko.kalah.security.jwt.JwtTokenProvider;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.MyUserDetailsService;
+import com.korniienko.kalah.service.export.ExportProperties;
+import com.korniienko.kalah.service.export.GameExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ExportController.class)
+@Import(ExportProperties.class)
+@ActiveProfiles("test")
+public class ExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ExportProperties exportProperties;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @MockBean
+    private GameExportService gameExportService;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private MyUserDetailsService userDetailsService;
+
+    @MockBean
+    private AuthenticationManager authenticationManager;
+
+    @MockBean
+    private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+
+    @MockBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @Test
+    @WithMockUser
+    public void shouldStreamTheExportWithItsOwnTimeout() throws Exception {
+        when(gameExportService.export(any(), eq(false))).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(new byte[]{1, 2, 3});
+            return 1L;
+        });
+
+        final MvcResult result = this.mockMvc.perform(get("/exports/games").param("compressed", "false"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(exportProperties.getTimeoutMillis(), result.getRequest().getAsyncContext().getTimeout());
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"games.kgx\""))
+                .andExpect(content().bytes(new byte[]{1, 2, 3}));
+    }
+}
@@ -0,0 +1,114 @@
+package com.korniienko.kalah.controller;
+
+import com.korniienko.kalah.dao.UserRepository;
+import com.korniienko.kalah.dto.GameDeltaDto;
+import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.exceptions.ForbiddenMoveException;
+import com.korniienko.kalah.model.User;
+import com.korniienko.kalah.security.jwt.JwtAuthenticationEntryPoint;
+import com.korniienko.kalah.security.jwt.JwtTokenProvider;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.GameVersionCache;
+import com.korniienko.kalah.service.HttpCacheProperties;
+import com.korniienko.kalah.service.MyUserDetailsService;
+import com.korniienko.kalah.service.idempotency.IdempotencyCache;
+import com.korniienko.kalah.service.idempotency.IdempotencyProperties;
+import com.korniienko.kalah.service.mailbox.GameMailboxes;
+import com.korniienko.kalah.service.mailbox.MailboxProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = GameController.class, properties = "kalah.mailbox.enabled=true")
+@Import({GameMailboxes.class, MailboxProperties.class, SimpleMeterRegistry.class, GameVersionCache.class,
+        HttpCacheProperties.class, IdempotencyCache.class, IdempotencyProperties.class})
+@ActiveProfiles("test")
+public class GameControllerMailboxTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @MockBean
+    private GameService gameService;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private MyUserDetailsService userDetailsService;
+
+    @MockBean
+    private AuthenticationManager authenticationManager;
+
+    @MockBean
+    private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+
+    @MockBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        when(userDetailsService.loadUserByUsername("south")).thenReturn(new User(7L, "south", "south", new ArrayList<>()));
+    }
+
+    @Test
+    @WithMockUser(username = "south")
+    public void shouldPassThePlayerOfTheRequestToTheMoveRunOnTheMailboxThread() throws Exception {
+        when(gameService.makeMove(eq(1L), eq(1), any())).thenAnswer(invocation -> {
+            final Long player = invocation.<Supplier<Long>>getArgument(2).get();
+            if (!Long.valueOf(7L).equals(player)) {
+                throw new ForbiddenMoveException(String.format("Player [%s] does not play the [SOUTH] side of the game [1].", player));
+            }
+            return new GameStatusDto(Collections.singletonMap(1, "0"), Collections.emptyList(), 2L, false);
+        });
+        this.mockMvc.perform(put("/games/1/pits/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status.1", is("0")));
+    }
+
+    @Test
+    @WithMockUser(username = "south")
+    public void shouldPassThePlayerOfTheRequestToTheDeltaMoveRunOnTheMailboxThread() throws Exception {
+        when(gameService.makeMoveDelta(eq(1L), eq(1), any())).thenAnswer(invocation -> {
+            final Long player = invocation.<Supplier<Long>>getArgument(2).get();
+            if (!Long.valueOf(7L).equals(player)) {
+                throw new ForbiddenMoveException(String.format("Player [%s] does not play the [SOUTH] side of the game [1].", player));
+            }
+            return new GameDeltaDto(2L, Collections.singletonMap(1, "0"), null, null, null, null);
+        });
+        this.mockMvc.perform(put("/games/1/pits/1").param("delta", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version", is(2)));
+    }
+}
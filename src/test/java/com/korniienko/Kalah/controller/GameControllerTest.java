@@ -3,20 +3,36 @@ package com.korniienko.kalah.controller;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.korniienko.kalah.dao.UserRepository;
+import com.korniienko.kalah.dto.GameDeltaDto;
 import com.korniienko.kalah.dto.GameDto;
 import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.dto.LegalMovesDto;
+import com.korniienko.kalah.dto.SimulationDto;
+import com.korniienko.kalah.exceptions.ForbiddenMoveException;
+import com.korniienko.kalah.exceptions.GameBusyException;
 import com.korniienko.kalah.exceptions.GameNotFoundException;
 import com.korniienko.kalah.exceptions.IllegalMoveException;
+import com.korniienko.kalah.exceptions.TooManyRequestsException;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.model.User;
 import com.korniienko.kalah.security.jwt.JwtAuthenticationEntryPoint;
 import com.korniienko.kalah.security.jwt.JwtTokenProvider;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
 import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.GameVersionCache;
+import com.korniienko.kalah.service.HttpCacheProperties;
 import com.korniienko.kalah.service.MyUserDetailsService;
+import com.korniienko.kalah.service.idempotency.IdempotencyCache;
+import com.korniienko.kalah.service.idempotency.IdempotencyProperties;
+import com.korniienko.kalah.service.mailbox.GameMailboxes;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,9 +42,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -41,6 +61,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = GameController.class)
+@Import({GameVersionCache.class, HttpCacheProperties.class, IdempotencyCache.class, IdempotencyProperties.class})
 @ActiveProfiles("test")
 public class GameControllerTest {
 
@@ -55,6 +76,8 @@ public class GameControllerTest {
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
                 .apply(springSecurity())
                 .build();
+        when(gameMailboxes.execute(anyLong(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(userDetailsService.loadUserByUsername("user")).thenReturn(new User(1L, "user", "user", new ArrayList<>()));
     }
 
     @Autowired
@@ -63,6 +86,9 @@ public class GameControllerTest {
     @MockBean
     private GameService gameService;
 
+    @MockBean
+    private GameMailboxes gameMailboxes;
+
     @MockBean
     private UserRepository userRepository;
 
@@ -78,6 +104,9 @@ public class GameControllerTest {
     @MockBean
     private JwtTokenProvider jwtTokenProvider;
 
+    @MockBean
+    private RateLimiter rateLimiter;
+
     @Test
     @WithMockUser
     public void shouldCreateANewGame() throws Exception {
@@ -95,37 +124,137 @@ public class GameControllerTest {
     @WithMockUser
     public void shouldMakeAMoveForExistingGameWithCorrectTurn() throws Exception {
         final Map<Integer, String> status = IntStream.range(1, 15).boxed().collect(Collectors.toMap(Function.identity(), String::valueOf));
-        final GameStatusDto gameStatusDto = new GameStatusDto(status);
+        final GameStatusDto gameStatusDto = new GameStatusDto(status, Collections.emptyList(), 3L, false);
         final JsonNode expected = objectMapper.valueToTree(gameStatusDto);
-        when(gameService.makeMove(anyLong(), anyInt())).thenReturn(gameStatusDto);
+        when(gameService.makeMove(anyLong(), anyInt(), any())).thenReturn(gameStatusDto);
         this.mockMvc.perform(put("/games/1/pits/1"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(content().json(expected.toString()));
     }
 
+    @Test
+    @WithMockUser
+    public void shouldReplayMoveWithTheSameIdempotencyKey() throws Exception {
+        final Map<Integer, String> status = IntStream.range(1, 15).boxed().collect(Collectors.toMap(Function.identity(), String::valueOf));
+        final GameStatusDto gameStatusDto = new GameStatusDto(status, Collections.emptyList(), 3L, false);
+        when(gameService.makeMove(anyLong(), anyInt(), any())).thenReturn(gameStatusDto);
+        for (int i = 0; i < 2; i++) {
+            this.mockMvc.perform(put("/games/1/pits/1").header("Idempotency-Key", "retried-move"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                    .andExpect(jsonPath("$.status.1", is("1")));
+        }
+        Mockito.verify(gameService, Mockito.times(1)).makeMove(eq(1L), eq(1), any());
+        this.mockMvc.perform(put("/games/1/pits/2").header("Idempotency-Key", "retried-move"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldSimulateMovesOfGame() throws Exception {
+        final SimulationDto simulation = new SimulationDto(Collections.singletonList(new SimulationDto.Step(1,
+                Collections.singletonMap(7, "1"), Pit.Part.SOUTH, false, null, false, Collections.emptyList())));
+        when(gameService.simulate(1L, Arrays.asList(1, 2))).thenReturn(simulation);
+        this.mockMvc.perform(post("/games/1/simulate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.steps[0].pit", is(1)))
+                .andExpect(jsonPath("$.steps[0].status.7", is("1")))
+                .andExpect(jsonPath("$.steps[0].turn", is("SOUTH")));
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldListLegalMovesOfGame() throws Exception {
+        when(gameService.legalMoves(1L)).thenReturn(new LegalMovesDto(Pit.Part.SOUTH,
+                Arrays.asList(new LegalMovesDto.Move(1, true, false), new LegalMovesDto.Move(3, false, true))));
+        this.mockMvc.perform(get("/games/1/moves"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.turn", is("SOUTH")))
+                .andExpect(jsonPath("$.moves[0].pit", is(1)))
+                .andExpect(jsonPath("$.moves[0].extraTurn", is(true)))
+                .andExpect(jsonPath("$.moves[1].capture", is(true)));
+    }
+
     @Test
     @WithMockUser
     public void shouldFailToMakeAMoveForExistingGameWithWrongTurn() throws Exception {
         final IllegalMoveException exception = new IllegalMoveException("Wrong turn [SOUTH], the current turn is [NORTH].");
-        when(gameService.makeMove(anyLong(), anyInt())).thenThrow(exception);
+        when(gameService.makeMove(anyLong(), anyInt(), any())).thenThrow(exception);
         this.mockMvc.perform(put("/games/1/pits/1"))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.status", is(HttpStatus.BAD_REQUEST.name())))
                 .andExpect(jsonPath("$.message", is(exception.getMessage())));
     }
 
+    @Test
+    @WithMockUser(username = "north")
+    public void shouldForbidAMoveOfThePlayerWhoseTurnItIsNot() throws Exception {
+        when(userDetailsService.loadUserByUsername("north")).thenReturn(new User(8L, "north", "north", new ArrayList<>()));
+        when(gameService.makeMove(anyLong(), anyInt(), any())).thenAnswer(invocation -> {
+            final Long player = invocation.<Supplier<Long>>getArgument(2).get();
+            throw new ForbiddenMoveException(String.format("Player [%s] does not play the [SOUTH] side of the game [1].", player));
+        });
+        this.mockMvc.perform(put("/games/1/pits/1"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.status", is(HttpStatus.FORBIDDEN.name())))
+                .andExpect(jsonPath("$.message", is("Player [8] does not play the [SOUTH] side of the game [1].")));
+    }
+
     @Test
     @WithMockUser
     public void shouldFailToMakeAMoveForNonExistingGame() throws Exception {
         final GameNotFoundException exception = new GameNotFoundException("Game with id [%d] not found on the server.");
-        when(gameService.makeMove(anyLong(), anyInt())).thenThrow(exception);
+        when(gameService.makeMove(anyLong(), anyInt(), any())).thenThrow(exception);
         this.mockMvc.perform(put("/games/1/pits/1"))
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.status", is(HttpStatus.NOT_FOUND.name())))
                 .andExpect(jsonPath("$.message", is(exception.getMessage())));
     }
 
+    @Test
+    @WithMockUser
+    public void shouldFailToMakeAMoveWhenGameMailboxIsFull() throws Exception {
+        final GameBusyException exception = new GameBusyException("Too many pending moves for the game with id [1].");
+        Mockito.doThrow(exception).when(gameMailboxes).execute(anyLong(), any());
+        this.mockMvc.perform(put("/games/1/pits/1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status", is(HttpStatus.SERVICE_UNAVAILABLE.name())))
+                .andExpect(jsonPath("$.message", is(exception.getMessage())));
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldRejectMovesOverTheGameRateLimit() throws Exception {
+        when(gameService.makeMove(anyLong(), anyInt(), any())).thenThrow(new TooManyRequestsException("Too many moves in the game with id [1].", 2));
+        this.mockMvc.perform(put("/games/1/pits/1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.status", is(HttpStatus.TOO_MANY_REQUESTS.name())))
+                .andExpect(jsonPath("$.message", is("Too many moves in the game with id [1].")));
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldNotFailOnAGameIdOutOfRange() throws Exception {
+        this.mockMvc.perform(put("/games/99999999999999999999999/pits/1"))
+                .andExpect(status().isBadRequest());
+        Mockito.verifyNoInteractions(gameService);
+    }
+
+    @Test
+    @WithMockUser(username = "bot")
+    public void shouldRejectRequestsOverTheUserRateLimit() throws Exception {
+        when(rateLimiter.acquireForUser("bot")).thenReturn(10L);
+        this.mockMvc.perform(post("/games"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.message", is("Too many requests from user [bot].")));
+        Mockito.verifyNoInteractions(gameService);
+    }
+
     @Test
     @WithMockUser
     public void shouldListAllGames() throws Exception {
@@ -143,19 +272,100 @@ public class GameControllerTest {
                 .andExpect(jsonPath("$[4].uri", is("http://localhost:8080/games/5")));
     }
 
+    @Test
+    @WithMockUser
+    public void shouldAnswerNotModifiedWhenListedGamesAreUnchanged() throws Exception {
+        when(gameService.listGames(anyString())).thenReturn(Collections.singletonList(new GameDto(1L, "http://localhost/games/1")));
+        final String eTag = this.mockMvc.perform(get("/games"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        this.mockMvc.perform(get("/games").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        when(gameService.listGames(anyString())).thenReturn(Collections.singletonList(new GameDto(2L, "http://localhost/games/2")));
+        this.mockMvc.perform(get("/games").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(2)));
+    }
+
     @Test
     @WithMockUser
     public void shouldGetGameStatusForAnExistingGame() throws Exception {
         final Map<Integer, String> status = IntStream.range(1, 15)
                 .boxed()
                 .collect(Collectors.toMap(Function.identity(), String::valueOf));
-        final GameStatusDto gameStatusDto = new GameStatusDto(status);
+        final GameStatusDto gameStatusDto = new GameStatusDto(status, Collections.emptyList(), 3L, false);
         final JsonNode expected = objectMapper.valueToTree(gameStatusDto);
         Mockito.when(gameService.status(anyLong())).thenReturn(gameStatusDto);
         this.mockMvc.perform(get("/games/1/status"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(content().json(expected.toString()));
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().json(expected.toString()))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldAnswerNotModifiedWhenStatusVersionIsUnchanged() throws Exception {
+        final GameStatusDto gameStatusDto = new GameStatusDto(Collections.singletonMap(1, "6"), Collections.emptyList(), 3L, false);
+        Mockito.when(gameService.status(anyLong())).thenReturn(gameStatusDto);
+        this.mockMvc.perform(get("/games/1/status").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+        this.mockMvc.perform(get("/games/1/status").header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status.1", is("6")));
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldAnswerStatusWithoutETagWhenVersionIsUnknown() throws Exception {
+        Mockito.when(gameService.status(99L)).thenReturn(new GameStatusDto(Collections.singletonMap(1, "0"), Collections.emptyList(), null, true));
+        this.mockMvc.perform(get("/games/99/status").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldAnswerNotModifiedFromKnownVersionWithoutReadingTheGame() throws Exception {
+        when(gameService.makeMove(eq(7L), eq(1), any())).thenReturn(new GameStatusDto(Collections.singletonMap(1, "0"), Collections.emptyList(), 4L, false));
+        this.mockMvc.perform(put("/games/7/pits/1"))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(get("/games/7/status").header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+        Mockito.verify(gameService, Mockito.never()).status(7L);
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldMakeFinishedGameStatusCacheable() throws Exception {
+        when(gameService.status(8L)).thenReturn(new GameStatusDto(Collections.singletonMap(7, "36"), Collections.emptyList(), 40L, true));
+        this.mockMvc.perform(get("/games/8/status"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"40\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"));
+        this.mockMvc.perform(get("/games/8/status").header(HttpHeaders.IF_NONE_MATCH, "\"40\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"));
+        Mockito.verify(gameService, Mockito.times(1)).status(8L);
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldMakeAMoveWithDeltaResponse() throws Exception {
+        final GameDeltaDto delta = new GameDeltaDto(4L, Collections.singletonMap(1, "0"), Pit.Part.NORTH, null, null, null);
+        when(gameService.makeMoveDelta(anyLong(), anyInt(), any())).thenReturn(delta);
+        this.mockMvc.perform(put("/games/1/pits/1").param("delta", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.version", is(4)))
+                .andExpect(jsonPath("$.changed.1", is("0")))
+                .andExpect(jsonPath("$.turn", is("NORTH")))
+                .andExpect(jsonPath("$.gameOver").doesNotExist());
+        Mockito.verify(gameService, Mockito.never()).makeMove(anyLong(), anyInt(), any());
     }
 
     @Test
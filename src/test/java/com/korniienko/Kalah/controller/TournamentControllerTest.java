@@ -0,0 +1,123 @@
+package com.korniienko.kalah.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korniienko.kalah.dao.UserRepository;
+import com.korniienko.kalah.dto.TournamentDto;
+import com.korniienko.kalah.dto.TournamentRequestDto;
+import com.korniienko.kalah.exceptions.IllegalTournamentException;
+import com.korniienko.kalah.exceptions.TournamentNotFoundException;
+import com.korniienko.kalah.security.jwt.JwtAuthenticationEntryPoint;
+import com.korniienko.kalah.security.jwt.JwtTokenProvider;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.MyUserDetailsService;
+import com.korniienko.kalah.service.tournament.TournamentFormat;
+import com.korniienko.kalah.service.tournament.TournamentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = TournamentController.class)
+@ActiveProfiles("test")
+public class TournamentControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @MockBean
+    private TournamentService tournamentService;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private MyUserDetailsService userDetailsService;
+
+    @MockBean
+    private AuthenticationManager authenticationManager;
+
+    @MockBean
+    private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+
+    @MockBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @Test
+    @WithMockUser
+    public void shouldCreateATournamentWithGamesUrlOfTheServer() throws Exception {
+        final TournamentRequestDto request = new TournamentRequestDto(TournamentFormat.SWISS, Arrays.asList("north", "south"), null);
+        final TournamentDto tournament = new TournamentDto(1L, TournamentFormat.SWISS, "RUNNING", 1, 1, 0,
+                Arrays.asList(new TournamentDto.Standing("north", 0, 0, 0, 0), new TournamentDto.Standing("south", 0, 0, 0, 0)),
+                Collections.singletonList(new TournamentDto.Match(1L, "http://localhost/games/1", "south", "north", false)));
+        when(tournamentService.create(eq(request), eq("http://localhost/games"))).thenReturn(tournament);
+
+        this.mockMvc.perform(post("/tournaments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.format", is("SWISS")))
+                .andExpect(jsonPath("$.standings", hasSize(2)))
+                .andExpect(jsonPath("$.games[0].uri", is("http://localhost/games/1")));
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldFailToCreateAnInvalidTournament() throws Exception {
+        when(tournamentService.create(any(), any())).thenThrow(new IllegalTournamentException("Tournament players must be unique."));
+        this.mockMvc.perform(post("/tournaments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"format\":\"SWISS\",\"players\":[\"bot\",\"bot\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status", is(HttpStatus.BAD_REQUEST.name())))
+                .andExpect(jsonPath("$.message", is("Tournament players must be unique.")));
+    }
+
+    @Test
+    @WithMockUser
+    public void shouldFailToGetProgressOfMissingTournament() throws Exception {
+        when(tournamentService.progress(1L)).thenThrow(new TournamentNotFoundException("Tournament with id [1] not found on the server."));
+        this.mockMvc.perform(get("/tournaments/1"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status", is(HttpStatus.NOT_FOUND.name())));
+    }
+}
@@ -0,0 +1,107 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.dao.journal.NoOpMoveJournal;
+import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.ArchiveProperties;
+import com.korniienko.kalah.service.GameArchiver;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.LegalMoveGenerator;
+import com.korniienko.kalah.service.LegalMovesProperties;
+import com.korniienko.kalah.service.events.GameEventPublisher;
+import com.korniienko.kalah.service.outbox.EventOutbox;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({GameService.class, JpaGameStore.class, NoOpMoveJournal.class, GameArchiver.class, ArchiveProperties.class,
+        LegalMoveGenerator.class, LegalMovesProperties.class})
+public class GameRepositoryTest {
+
+    @MockBean
+    private GameEventPublisher gameEventPublisher;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @MockBean
+    private EventOutbox eventOutbox;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    private Long gameId;
+
+    @BeforeEach
+    public void setUp() {
+        final Game game = new Game();
+        final List<Pit> pits = new ArrayList<>();
+        for (int i = 1; i <= 14; i++) {
+            final boolean isKalah = i == 7 || i == 14;
+            pits.add(new Pit(game, i, isKalah, i <= 7 ? Pit.Part.SOUTH : Pit.Part.NORTH, isKalah ? 0 : i));
+        }
+        game.setPits(pits);
+        gameId = gameRepository.save(game).getId();
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void shouldLoadStatusProjectionWithSingleStatementAndNoManagedEntities() {
+        final List<PitStatusView> pits = gameRepository.findStatusById(gameId);
+        assertEquals(14, pits.size());
+        for (int i = 0; i < pits.size(); i++) {
+            assertEquals(i + 1, pits.get(i).getIndex());
+        }
+        assertEquals(3, pits.get(2).getWeight());
+        assertEquals(0, pits.get(6).getWeight());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    public void shouldExecuteSingleStatementForGameStatusRequest() {
+        final GameStatusDto status = gameService.status(gameId);
+        assertEquals(14, status.getStatus().size());
+        assertEquals("13", status.getStatus().get(13));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void shouldListGameIdsWithSingleStatementAndNoManagedEntities() {
+        assertEquals(1, gameService.listGames("http://localhost:8080/games").size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    public void shouldReturnEmptyStatusProjectionForMissingGame() {
+        assertTrue(gameRepository.findStatusById(gameId + 1000).isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
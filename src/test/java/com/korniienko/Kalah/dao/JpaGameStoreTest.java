@@ -0,0 +1,97 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.dao.journal.NoOpMoveJournal;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameArchiver;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.LegalMoveGenerator;
+import com.korniienko.kalah.service.LegalMovesProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every store call runs in its own transaction, as it does in the application.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JpaGameStoreTest {
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    private JpaGameStore gameStore;
+
+    private GameService gameService;
+
+    private Long gameId;
+
+    @BeforeEach
+    public void setUp() {
+        gameStore = new JpaGameStore(gameRepository);
+        gameService = new GameService(gameStore, Mockito.mock(GameArchiver.class), new NoOpMoveJournal(), event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        final Game game = new Game();
+        game.setTurn(Pit.Part.SOUTH);
+        final List<Pit> pits = new ArrayList<>();
+        for (int i = 1; i <= 14; i++) {
+            final boolean isKalah = i == 7 || i == 14;
+            pits.add(new Pit(game, i, isKalah, i <= 7 ? Pit.Part.SOUTH : Pit.Part.NORTH, isKalah ? 0 : 6));
+        }
+        game.setPits(pits);
+        gameId = gameStore.create(game).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gameRepository.deletePitsByGameIds(Collections.singletonList(gameId));
+        gameRepository.deleteGamesByIds(Collections.singletonList(gameId));
+    }
+
+    @Test
+    public void shouldRejectUpdateOfStaleCopyAfterMoveWhichChangedOnlyThePits() {
+        final Game stale = gameStore.findById(gameId).get();
+        final Long versionBefore = stale.getVersion();
+
+        gameService.makeMove(gameId, 1, () -> null);
+        final Game moved = gameStore.findById(gameId).get();
+        assertEquals(Pit.Part.SOUTH, moved.getTurn());
+        assertTrue(moved.getVersion() > versionBefore);
+
+        stale.getPits().get(1).setWeight(0);
+        stale.getPits().get(6).setWeight(6);
+        assertFalse(gameStore.update(stale));
+        final Game stored = gameStore.findById(gameId).get();
+        assertEquals(0, stored.getPits().get(0).getWeight());
+        assertEquals(7, stored.getPits().get(1).getWeight());
+        assertEquals(moved.getVersion(), stored.getVersion());
+    }
+
+    @Test
+    public void shouldStoreOnlyTheFirstOfTwoStaleCopies() {
+        final Game first = gameStore.findById(gameId).get();
+        final Game second = gameStore.findById(gameId).get();
+        first.getPits().get(0).setWeight(0);
+        first.setMoves(first.getMoves() + 1);
+        second.getPits().get(1).setWeight(0);
+        second.setMoves(second.getMoves() + 1);
+
+        assertTrue(gameStore.update(first));
+        assertFalse(gameStore.update(second));
+        final Game stored = gameStore.findById(gameId).get();
+        assertEquals(0, stored.getPits().get(0).getWeight());
+        assertEquals(6, stored.getPits().get(1).getWeight());
+    }
+}
@@ -0,0 +1,59 @@
+package com.korniienko.kalah.dao;
+
+import com.korniienko.kalah.model.User;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        userRepository.save(new User(null, "admin", "admin", Arrays.asList("ROLE_ADMIN", "ROLE_PLAYER")));
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void shouldLoadUserWithRolesInSingleStatement() {
+        final User user = userRepository.findByUsername("admin").get();
+        assertTrue(Hibernate.isInitialized(user.getRoles()));
+        assertEquals(Arrays.asList("ROLE_ADMIN", "ROLE_PLAYER"), user.getRoles());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void shouldCheckUsernameWithoutLoadingUser() {
+        assertTrue(userRepository.existsByUsername("admin"));
+        assertFalse(userRepository.existsByUsername("player"));
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void shouldRejectDuplicateUsername() {
+        userRepository.save(new User(null, "admin", "other", Collections.singletonList("ROLE_ADMIN")));
+        assertThrows(PersistenceException.class, () -> entityManager.flush());
+    }
+}
@@ -0,0 +1,45 @@
+package com.korniienko.kalah.dao.journal;
+
+import com.korniienko.kalah.dao.GameStore;
+import com.korniienko.kalah.dao.memory.InMemoryGameStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MoveJournalSelectionTest {
+
+    @TempDir
+    Path directory;
+
+    private ApplicationContextRunner contextRunner() {
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(ConfigurationPropertiesAutoConfiguration.class))
+                .withBean(GameStore.class, InMemoryGameStore::new)
+                .withUserConfiguration(WriteAheadLogProperties.class, NoOpMoveJournal.class, WriteAheadLog.class)
+                .withPropertyValues("kalah.wal.directory=" + directory);
+    }
+
+    @Test
+    public void shouldNotJournalJpaStoreEvenWhenLogIsEnabled() {
+        contextRunner().withPropertyValues("kalah.wal.enabled=true")
+                .run(context -> assertThat(context).hasSingleBean(MoveJournal.class).hasSingleBean(NoOpMoveJournal.class));
+    }
+
+    @Test
+    public void shouldJournalInMemoryStoreWhenLogIsEnabled() {
+        contextRunner().withPropertyValues("kalah.wal.enabled=true", "spring.profiles.active=in-memory")
+                .run(context -> assertThat(context).hasSingleBean(MoveJournal.class).hasSingleBean(WriteAheadLog.class));
+    }
+
+    @Test
+    public void shouldNotJournalInMemoryStoreWhenLogIsDisabled() {
+        contextRunner().withPropertyValues("spring.profiles.active=off-heap")
+                .run(context -> assertThat(context).hasSingleBean(MoveJournal.class).hasSingleBean(NoOpMoveJournal.class));
+    }
+}
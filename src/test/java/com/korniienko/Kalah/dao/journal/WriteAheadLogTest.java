@@ -0,0 +1,169 @@
+package com.korniienko.kalah.dao.journal;
+
+import com.korniienko.kalah.dao.PitStatusView;
+import com.korniienko.kalah.dao.memory.InMemoryGameStore;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameArchiver;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.LegalMoveGenerator;
+import com.korniienko.kalah.service.LegalMovesProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogTest {
+
+    private static final String REQUEST_URL = "http://localhost:8080/games";
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLogProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new WriteAheadLogProperties();
+        properties.setDirectory(directory.toString());
+        properties.setFsyncWindowMillis(1);
+    }
+
+    @Test
+    public void shouldReplayGamesAndMovesAfterRestart() throws Exception {
+        final InMemoryGameStore gameStore = new InMemoryGameStore();
+        final WriteAheadLog writeAheadLog = new WriteAheadLog(gameStore, properties);
+        final GameService gameService = new GameService(gameStore, Mockito.mock(GameArchiver.class), writeAheadLog, event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        final List<Long> gameIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final Long gameId = gameService.newGame(REQUEST_URL, 100L + i, 200L + i).getId();
+            gameIds.add(gameId);
+            makeAnyMove(gameService, gameStore, gameId);
+        }
+        writeAheadLog.destroy();
+
+        final InMemoryGameStore recoveredStore = new InMemoryGameStore();
+        final WriteAheadLog recoveredLog = new WriteAheadLog(recoveredStore, properties);
+        for (Long gameId : gameIds) {
+            assertEquals(gameStore.findStatusById(gameId), recoveredStore.findStatusById(gameId));
+            assertEquals(1L, recoveredStore.findById(gameId).get().getVersion());
+            assertEquals(gameStore.findById(gameId).get().getSouthPlayerId(), recoveredStore.findById(gameId).get().getSouthPlayerId());
+            assertEquals(gameStore.findById(gameId).get().getNorthPlayerId(), recoveredStore.findById(gameId).get().getNorthPlayerId());
+        }
+        final GameService recoveredService = new GameService(recoveredStore, Mockito.mock(GameArchiver.class), recoveredLog, event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        assertEquals(6L, recoveredService.newGame(REQUEST_URL).getId());
+        recoveredLog.destroy();
+    }
+
+    @Test
+    public void shouldAcknowledgeConcurrentMovesWithGroupCommit() throws Exception {
+        properties.setMaxBatchRecords(8);
+        final InMemoryGameStore gameStore = new InMemoryGameStore();
+        final WriteAheadLog writeAheadLog = new WriteAheadLog(gameStore, properties);
+        final GameService gameService = new GameService(gameStore, Mockito.mock(GameArchiver.class), writeAheadLog, event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        final ExecutorService players = Executors.newFixedThreadPool(16);
+        final List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            futures.add(players.submit(() -> {
+                final Long gameId = gameService.newGame(REQUEST_URL).getId();
+                makeAnyMove(gameService, gameStore, gameId);
+                return gameId;
+            }));
+        }
+        for (Future<Long> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        players.shutdown();
+        writeAheadLog.destroy();
+
+        assertEquals(WriteAheadLog.HEADER_SIZE + 128L * WriteAheadLog.RECORD_SIZE, Files.size(directory.resolve("wal-0.log")));
+        final InMemoryGameStore recoveredStore = new InMemoryGameStore();
+        new WriteAheadLog(recoveredStore, properties).destroy();
+        assertEquals(gameStore.findAllIds(), recoveredStore.findAllIds());
+    }
+
+    @Test
+    public void shouldSkipTornRecordAtTheEndOfSegment() throws Exception {
+        final InMemoryGameStore gameStore = new InMemoryGameStore();
+        final WriteAheadLog writeAheadLog = new WriteAheadLog(gameStore, properties);
+        final GameService gameService = new GameService(gameStore, Mockito.mock(GameArchiver.class), writeAheadLog, event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        final Long gameId = gameService.newGame(REQUEST_URL).getId();
+        writeAheadLog.destroy();
+        Files.write(directory.resolve("wal-0.log"), new byte[WriteAheadLog.RECORD_SIZE + 5], StandardOpenOption.APPEND);
+
+        final InMemoryGameStore recoveredStore = new InMemoryGameStore();
+        new WriteAheadLog(recoveredStore, properties).destroy();
+        assertEquals(gameStore.findStatusById(gameId), recoveredStore.findStatusById(gameId));
+        assertEquals(1, recoveredStore.findAllIds().size());
+    }
+
+    @Test
+    public void shouldRefuseSegmentOfAnotherFormat() throws Exception {
+        final byte[] record = new byte[WriteAheadLog.RECORD_SIZE];
+        record[0] = 2;
+        Files.write(directory.resolve("wal-0.log"), record);
+
+        final Exception exception = assertThrows(IllegalStateException.class, () -> new WriteAheadLog(new InMemoryGameStore(), properties));
+        assertTrue(exception.getMessage().contains("wal-0.log"));
+    }
+
+    @Test
+    public void shouldCompactSegmentsIntoSnapshot() throws Exception {
+        properties.setSegmentBytes(4L * WriteAheadLog.RECORD_SIZE);
+        properties.setCompactAfterSegments(100);
+        final InMemoryGameStore gameStore = new InMemoryGameStore();
+        final WriteAheadLog writeAheadLog = new WriteAheadLog(gameStore, properties);
+        final GameService gameService = new GameService(gameStore, Mockito.mock(GameArchiver.class), writeAheadLog, event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        for (int i = 0; i < 6; i++) {
+            makeAnyMove(gameService, gameStore, gameService.newGame(REQUEST_URL).getId());
+        }
+        final List<String> segments = files();
+        assertTrue(segments.size() > 2);
+        writeAheadLog.compact(segments.size() - 1);
+        makeAnyMove(gameService, gameStore, 1L);
+        writeAheadLog.destroy();
+
+        final List<String> compacted = files();
+        assertTrue(compacted.contains(String.format("snapshot-%d.log", segments.size() - 1)));
+        assertFalse(compacted.contains("wal-0.log"));
+        final InMemoryGameStore recoveredStore = new InMemoryGameStore();
+        new WriteAheadLog(recoveredStore, properties).destroy();
+        for (Long gameId : gameStore.findAllIds()) {
+            assertEquals(gameStore.findById(gameId).get().getVersion(), recoveredStore.findById(gameId).get().getVersion());
+            assertEquals(gameStore.findStatusById(gameId), recoveredStore.findStatusById(gameId));
+        }
+    }
+
+    private List<String> files() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void makeAnyMove(GameService gameService, InMemoryGameStore gameStore, Long gameId) {
+        final List<PitStatusView> status = gameStore.findStatusById(gameId);
+        final Pit.Part turn = status.get(0).getTurn();
+        final Game game = gameStore.findById(gameId).get();
+        gameService.makeMove(gameId, turn == Pit.Part.SOUTH ? 2 : 9,
+                () -> turn == Pit.Part.SOUTH ? game.getSouthPlayerId() : game.getNorthPlayerId());
+    }
+}
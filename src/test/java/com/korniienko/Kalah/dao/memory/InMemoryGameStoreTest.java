@@ -0,0 +1,165 @@
+package com.korniienko.kalah.dao.memory;
+
+import com.korniienko.kalah.dao.PitStatusView;
+import com.korniienko.kalah.dao.journal.NoOpMoveJournal;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameArchiver;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.LegalMoveGenerator;
+import com.korniienko.kalah.service.LegalMovesProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryGameStoreTest {
+
+    private static final String REQUEST_URL = "http://localhost:8080/games";
+
+    private InMemoryGameStore gameStore;
+
+    private GameService gameService;
+
+    @BeforeEach
+    public void setUp() {
+        gameStore = new InMemoryGameStore();
+        gameService = new GameService(gameStore, Mockito.mock(GameArchiver.class), new NoOpMoveJournal(), event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+    }
+
+    @Test
+    public void shouldStoreAndLoadPackedGame() {
+        final Game game = gameStore.findById(gameService.newGame(REQUEST_URL).getId()).get();
+        game.getPits().get(6).setWeight(72);
+        game.setTurn(Pit.Part.NORTH);
+        game.setWinner(Pit.Part.SOUTH);
+        game.setGameOver(true);
+        final Long gameId = gameStore.create(game).getId();
+        assertEquals(2L, gameId);
+
+        final Game loaded = gameStore.findById(gameId).get();
+        assertEquals(Pit.Part.NORTH, loaded.getTurn());
+        assertEquals(Pit.Part.SOUTH, loaded.getWinner());
+        assertFalse(loaded.isDraw());
+        assertTrue(loaded.isGameOver());
+        assertEquals(14, loaded.getPits().size());
+        assertEquals(72, loaded.getPits().get(6).getWeight());
+        assertTrue(loaded.getPits().get(13).isKalah());
+        assertEquals(Pit.Part.NORTH, loaded.getPits().get(13).getPart());
+        for (int i = 7; i < 13; i++) {
+            assertEquals(6, loaded.getPits().get(i).getWeight());
+        }
+        final List<PitStatusView> status = gameStore.findStatusById(gameId);
+        assertEquals(72, status.get(6).getWeight());
+        assertEquals(Pit.Part.SOUTH, status.get(0).getWinner());
+    }
+
+    @Test
+    public void shouldNotFindUnknownGames() {
+        assertFalse(gameStore.findById(1L).isPresent());
+        assertFalse(gameStore.findById(-1L).isPresent());
+        assertTrue(gameStore.findStatusById(1L).isEmpty());
+        assertTrue(gameStore.findAllIds().isEmpty());
+    }
+
+    @Test
+    public void shouldRejectUpdateOfAStaleGame() {
+        final Long gameId = gameService.newGame(REQUEST_URL).getId();
+        final Game first = gameStore.findById(gameId).get();
+        final Game second = gameStore.findById(gameId).get();
+        first.setGameOver(true);
+        second.setDraw(true);
+
+        assertTrue(gameStore.update(first));
+        assertFalse(gameStore.update(second));
+        final Game loaded = gameStore.findById(gameId).get();
+        assertTrue(loaded.isGameOver());
+        assertFalse(loaded.isDraw());
+        assertEquals(1L, loaded.getVersion());
+    }
+
+    @Test
+    public void shouldListCreatedGames() {
+        for (int i = 0; i < 3; i++) {
+            gameService.newGame(REQUEST_URL);
+        }
+        assertEquals(3, gameService.listGames(REQUEST_URL).size());
+        assertEquals("http://localhost:8080/games/3", gameService.listGames(REQUEST_URL).get(2).getUri());
+    }
+
+    @Test
+    public void shouldNotLoseMovesWhenMovesRaceOnOneGame() throws Exception {
+        final Long gameId = gameService.newGame(REQUEST_URL).getId();
+        final ExecutorService players = Executors.newFixedThreadPool(4);
+        final List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(players.submit(() -> playUntilOver(gameId)));
+        }
+        long moves = 0;
+        for (Future<Long> future : futures) {
+            moves += future.get(30, TimeUnit.SECONDS);
+        }
+        players.shutdown();
+        final Game game = gameStore.findById(gameId).get();
+        assertTrue(game.isGameOver());
+        assertEquals(moves, game.getVersion());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void shouldServeManyMovesPerSecond() throws Exception {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final long durationNanos = TimeUnit.SECONDS.toNanos(5);
+        final ExecutorService players = Executors.newFixedThreadPool(threads);
+        final List<Future<Long>> futures = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            futures.add(players.submit(() -> {
+                long moves = 0;
+                while (System.nanoTime() - start < durationNanos) {
+                    moves += playUntilOver(gameService.newGame(REQUEST_URL).getId());
+                }
+                return moves;
+            }));
+        }
+        long moves = 0;
+        for (Future<Long> future : futures) {
+            moves += future.get();
+        }
+        players.shutdown();
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("In-memory store: %d moves on %d threads, %.0f moves/s%n", moves, threads, moves / seconds);
+        assertTrue(moves > 0);
+    }
+
+    private long playUntilOver(Long gameId) {
+        long moves = 0;
+        while (true) {
+            final List<PitStatusView> status = gameStore.findStatusById(gameId);
+            if (status.get(0).isGameOver()) {
+                return moves;
+            }
+            final Optional<PitStatusView> pit = status.stream()
+                    .filter(p -> p.getIndex() % 7 != 0 && p.getWeight() > 0)
+                    .filter(p -> (p.getIndex() < 7 ? Pit.Part.SOUTH : Pit.Part.NORTH) == p.getTurn())
+                    .findFirst();
+            try {
+                gameService.makeMove(gameId, pit.get().getIndex(), () -> null);
+                moves++;
+            } catch (RuntimeException e) {
+                // another player changed the game in between, the next status tells what is legal now
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.korniienko.kalah.dao.memory;
+
+import com.korniienko.kalah.dao.journal.NoOpMoveJournal;
+import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameArchiver;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.LegalMoveGenerator;
+import com.korniienko.kalah.service.LegalMovesProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapGameStoreTest {
+
+    private static final String REQUEST_URL = "http://localhost:8080/games";
+
+    @TempDir
+    Path directory;
+
+    private OffHeapStoreProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new OffHeapStoreProperties();
+        properties.setDirectory(directory.toString());
+        properties.setGamesPerSegment(4);
+    }
+
+    @Test
+    public void shouldStoreGamesAcrossSegments() {
+        final OffHeapGameStore gameStore = new OffHeapGameStore(properties);
+        final GameService gameService = new GameService(gameStore, Mockito.mock(GameArchiver.class), new NoOpMoveJournal(), event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        for (int i = 0; i < 10; i++) {
+            gameService.newGame(REQUEST_URL);
+        }
+        assertEquals(10, gameStore.findAllIds().size());
+        assertEquals(10L, gameStore.findAllIds().get(9));
+        assertEquals(14, gameStore.findStatusById(9L).size());
+        assertFalse(gameStore.findById(11L).isPresent());
+        assertTrue(directory.resolve("games-00002.dat").toFile().exists());
+    }
+
+    @Test
+    public void shouldRecoverGamesAfterRestart() {
+        final OffHeapGameStore gameStore = new OffHeapGameStore(properties);
+        final GameService gameService = new GameService(gameStore, Mockito.mock(GameArchiver.class), new NoOpMoveJournal(), event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        final Long gameId = gameService.newGame(REQUEST_URL, 11L, 12L).getId();
+        gameService.newGame(REQUEST_URL);
+        final Pit.Part turn = gameStore.findById(gameId).get().getTurn();
+        final GameStatusDto status = gameService.makeMove(gameId, turn == Pit.Part.SOUTH ? 1 : 8, () -> turn == Pit.Part.SOUTH ? 11L : 12L);
+        gameStore.destroy();
+
+        final OffHeapGameStore recovered = new OffHeapGameStore(properties);
+        final GameService recoveredService = new GameService(recovered, Mockito.mock(GameArchiver.class), new NoOpMoveJournal(), event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties()));
+        assertEquals(status, recoveredService.status(gameId));
+        assertEquals(1L, recovered.findById(gameId).get().getVersion());
+        assertEquals(11L, recovered.findById(gameId).get().getSouthPlayerId());
+        assertEquals(12L, recovered.findById(gameId).get().getNorthPlayerId());
+        assertNull(recovered.findById(gameId + 1).get().getSouthPlayerId());
+        assertEquals(3L, recoveredService.newGame(REQUEST_URL).getId());
+    }
+
+    @Test
+    public void shouldFallBackToPreviousVersionWhenLatestRecordIsTorn() throws Exception {
+        final OffHeapGameStore gameStore = new OffHeapGameStore(properties);
+        final Game game = new Game();
+        final Long gameId = gameStore.create(game).getId();
+        final Game loaded = gameStore.findById(gameId).get();
+        loaded.setGameOver(true);
+        assertTrue(gameStore.update(loaded));
+        gameStore.destroy();
+
+        try (RandomAccessFile segment = new RandomAccessFile(directory.resolve("games-00000.dat").toFile(), "rw")) {
+            segment.seek(OffHeapGameStore.HEADER_SIZE + gameId * 2 * OffHeapGameStore.RECORD_SIZE + OffHeapGameStore.RECORD_SIZE);
+            segment.write(new byte[]{1, 2, 3});
+        }
+
+        final Game recovered = new OffHeapGameStore(properties).findById(gameId).get();
+        assertEquals(0L, recovered.getVersion());
+        assertFalse(recovered.isGameOver());
+    }
+
+    @Test
+    public void shouldRefuseSegmentOfAnotherFormat() throws Exception {
+        new OffHeapGameStore(properties).create(new Game());
+        properties.setGamesPerSegment(8);
+        assertThrows(IllegalStateException.class, () -> new OffHeapGameStore(properties));
+
+        try (RandomAccessFile segment = new RandomAccessFile(directory.resolve("games-00000.dat").toFile(), "rw")) {
+            segment.write(new byte[OffHeapGameStore.HEADER_SIZE]);
+        }
+        properties.setGamesPerSegment(4);
+        final Exception exception = assertThrows(IllegalStateException.class, () -> new OffHeapGameStore(properties));
+        assertTrue(exception.getMessage().contains("games-00000.dat"));
+    }
+
+    @Test
+    public void shouldRejectUpdateOfAStaleGame() {
+        final OffHeapGameStore gameStore = new OffHeapGameStore(properties);
+        final Long gameId = gameStore.create(new Game()).getId();
+        final Game first = gameStore.findById(gameId).get();
+        final Game second = gameStore.findById(gameId).get();
+        first.setDraw(true);
+        assertTrue(gameStore.update(first));
+        assertFalse(gameStore.update(second));
+        assertTrue(gameStore.findById(gameId).get().isDraw());
+    }
+}
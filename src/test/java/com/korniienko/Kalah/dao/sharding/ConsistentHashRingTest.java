@@ -0,0 +1,52 @@
+package com.korniienko.kalah.dao.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    public void shouldSpreadSequentialIdsEvenlyAcrossShards() {
+        final ConsistentHashRing ring = new ConsistentHashRing(4, 64);
+        final int[] counts = new int[4];
+        for (long id = 1; id <= KEYS; id++) {
+            counts[ring.shardFor(id)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > KEYS / 4 * 0.7, "Shard is underloaded: " + count);
+            assertTrue(count < KEYS / 4 * 1.3, "Shard is overloaded: " + count);
+        }
+    }
+
+    @Test
+    public void shouldMoveOnlyKeysOfTheNewShardWhenShardIsAdded() {
+        final ConsistentHashRing fourShards = new ConsistentHashRing(4, 64);
+        final ConsistentHashRing fiveShards = new ConsistentHashRing(5, 64);
+        int moved = 0;
+        for (long id = 1; id <= KEYS; id++) {
+            final int before = fourShards.shardFor(id);
+            final int after = fiveShards.shardFor(id);
+            if (before != after) {
+                assertEquals(4, after);
+                moved++;
+            }
+        }
+        assertTrue(moved < KEYS / 5 * 1.3, "Too many keys moved: " + moved);
+    }
+
+    @Test
+    public void shouldAlwaysMapSameIdToSameShard() {
+        final ConsistentHashRing ring = new ConsistentHashRing(3, 16);
+        for (long id = 1; id <= 1000; id++) {
+            assertEquals(ring.shardFor(id), new ConsistentHashRing(3, 16).shardFor(id));
+        }
+    }
+
+    @Test
+    public void shouldFailForNonPositiveShardCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0, 16));
+    }
+}
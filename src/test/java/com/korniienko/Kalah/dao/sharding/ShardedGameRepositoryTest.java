@@ -0,0 +1,71 @@
+package com.korniienko.kalah.dao.sharding;
+
+import com.korniienko.kalah.dto.GameDto;
+import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.service.GameService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "kalah.sharding.shard-count=3")
+@ActiveProfiles("sharding")
+public class ShardedGameRepositoryTest {
+
+    private static final String REQUEST_URL = "http://localhost:8080/games";
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private ShardRoutingDataSource dataSource;
+
+    @Autowired
+    private ConsistentHashRing ring;
+
+    @Test
+    public void shouldStoreEveryGameInTheShardOwningItsId() {
+        final List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            created.add(gameService.newGame(REQUEST_URL).getId());
+        }
+        int shardsWithGames = 0;
+        for (int shard = 0; shard < dataSource.getShards().size(); shard++) {
+            final List<Long> shardGameIds = new JdbcTemplate(dataSource.getShards().get(shard)).queryForList("select id from game", Long.class);
+            for (Long gameId : shardGameIds) {
+                assertEquals(shard, ring.shardFor(gameId));
+            }
+            final Long pitsWithForeignGames = new JdbcTemplate(dataSource.getShards().get(shard))
+                    .queryForObject("select count(*) from pit where game_id not in (select id from game)", Long.class);
+            assertEquals(0L, pitsWithForeignGames);
+            shardsWithGames += shardGameIds.isEmpty() ? 0 : 1;
+        }
+        assertEquals(3, shardsWithGames);
+
+        final List<Long> listed = gameService.listGames(REQUEST_URL).stream().map(GameDto::getId).collect(Collectors.toList());
+        assertTrue(listed.containsAll(created));
+        assertEquals(listed.stream().sorted().collect(Collectors.toList()), listed);
+    }
+
+    @Test
+    public void shouldPlayAndReadGamesOnEveryShard() {
+        for (int i = 0; i < 10; i++) {
+            final Long gameId = gameService.newGame(REQUEST_URL).getId();
+            GameStatusDto afterMove;
+            try {
+                afterMove = gameService.makeMove(gameId, 1, () -> null);
+            } catch (IllegalArgumentException wrongTurn) {
+                afterMove = gameService.makeMove(gameId, 8, () -> null);
+            }
+            assertEquals(afterMove, gameService.status(gameId));
+            assertEquals("1", afterMove.getStatus().get(afterMove.getStatus().get(1).equals("0") ? 7 : 14));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.korniienko.kalah.security.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korniienko.kalah.service.MyUserDetailsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JwtFastPathFilterTest {
+
+    @Mock
+    private MyUserDetailsService userDetailsService;
+
+    private JwtProperties jwtProperties;
+    private JwtTokenProvider jwtTokenProvider;
+    private JwtFastPathFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        jwtProperties = new JwtProperties();
+        jwtTokenProvider = new JwtTokenProvider(jwtProperties, userDetailsService);
+        jwtTokenProvider.init();
+        filter = new JwtFastPathFilter(jwtTokenProvider, new JwtAuthenticationEntryPoint(new ObjectMapper()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void shouldPutUsernameIntoRequestWithoutLoadingUser() throws Exception {
+        final MockHttpServletRequest request = gameRequest(jwtTokenProvider.createToken("bot", Collections.singletonList("ROLE_USER")));
+        final MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertEquals("bot", request.getAttribute(JwtFastPathFilter.USERNAME_ATTRIBUTE));
+        assertSame(request, chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        Mockito.verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    public void shouldRejectRequestWithInvalidToken() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(gameRequest("not-a-token"), response, chain);
+        assertEquals(401, response.getStatus());
+        assertTrue(response.getContentAsString().contains("UNAUTHORIZED"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    public void shouldRejectExpiredToken() throws Exception {
+        jwtProperties.setValidityInMillis(-1000);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(gameRequest(jwtTokenProvider.createToken("bot", Collections.emptyList())), response, chain);
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    public void shouldRejectRequestWithoutToken() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/games"), response, new MockFilterChain());
+        assertEquals(401, response.getStatus());
+    }
+
+    private MockHttpServletRequest gameRequest(String token) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/games/1/pits/1");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,121 @@
+package com.korniienko.kalah.security.password;
+
+import com.korniienko.kalah.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHashingExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PasswordProperties properties;
+
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new PasswordProperties();
+        properties.setHashingThreads(1);
+        properties.setHashingQueueCapacity(1);
+        passwordHashingExecutor = new PasswordHashingExecutor(properties, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        passwordHashingExecutor.destroy();
+    }
+
+    @Test
+    public void shouldRunHashingOnDedicatedThread() {
+        final String threadName = passwordHashingExecutor.execute(() -> Thread.currentThread().getName());
+        assertEquals("password-hashing-1", threadName);
+    }
+
+    @Test
+    public void shouldPropagateAuthenticationFailures() {
+        assertThrows(BadCredentialsException.class, () -> passwordHashingExecutor.execute(() -> {
+            throw new BadCredentialsException("Bad credentials");
+        }));
+    }
+
+    @Test
+    public void shouldShedHashingWhenQueueIsFull() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        final Future<?> running = callers.submit(() -> passwordHashingExecutor.execute(() -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final Future<?> queued = callers.submit(() -> passwordHashingExecutor.execute(() -> true));
+        while (passwordHashingExecutor.queued() == 0) {
+            Thread.yield();
+        }
+
+        final TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> passwordHashingExecutor.execute(() -> true));
+        assertEquals(1, exception.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.counter("kalah.password.hashing.rejected").count());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        callers.shutdown();
+    }
+
+    @Test
+    public void shouldWaitForStartedHashingAfterTimeout() {
+        properties.setHashingTimeoutMillis(10);
+        final String result = passwordHashingExecutor.execute(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return "saved";
+        });
+        assertEquals("saved", result);
+    }
+
+    @Test
+    public void shouldNotRunQueuedHashingAfterTimeout() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newSingleThreadExecutor();
+        final Future<?> running = callers.submit(() -> passwordHashingExecutor.execute(() -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        properties.setHashingTimeoutMillis(10);
+        final AtomicBoolean ran = new AtomicBoolean();
+
+        assertThrows(TooManyRequestsException.class, () -> passwordHashingExecutor.execute(() -> ran.getAndSet(true)));
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals("password-hashing-1", passwordHashingExecutor.execute(() -> Thread.currentThread().getName()));
+        assertFalse(ran.get());
+        callers.shutdown();
+    }
+}
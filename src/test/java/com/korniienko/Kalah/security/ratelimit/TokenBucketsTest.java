@@ -0,0 +1,63 @@
+package com.korniienko.kalah.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketsTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void shouldAdmitBurstAndThenRejectWithWaitTime() {
+        final TokenBuckets buckets = new TokenBuckets(10, 5, 1024);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, buckets.tryAcquire(1, SECOND));
+        }
+        assertEquals(SECOND / 10, buckets.tryAcquire(1, SECOND));
+        assertEquals(0, buckets.tryAcquire(2, SECOND));
+    }
+
+    @Test
+    public void shouldRefillTokensOverTime() {
+        final TokenBuckets buckets = new TokenBuckets(10, 2, 1024);
+        assertEquals(0, buckets.tryAcquire(1, SECOND));
+        assertEquals(0, buckets.tryAcquire(1, SECOND));
+        assertTrue(buckets.tryAcquire(1, SECOND) > 0);
+        assertEquals(0, buckets.tryAcquire(1, SECOND + SECOND / 10));
+        assertTrue(buckets.tryAcquire(1, SECOND + SECOND / 10) > 0);
+        assertEquals(0, buckets.tryAcquire(1, 2 * SECOND));
+        assertEquals(0, buckets.tryAcquire(1, 2 * SECOND));
+    }
+
+    @Test
+    public void shouldNotAdmitMoreThanBurstFromConcurrentCallers() throws Exception {
+        final TokenBuckets buckets = new TokenBuckets(1, 100, 1024);
+        final ExecutorService callers = Executors.newFixedThreadPool(8);
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(callers.submit(() -> {
+                int admitted = 0;
+                for (int j = 0; j < 1000; j++) {
+                    if (buckets.tryAcquire(7, SECOND) == 0) {
+                        admitted++;
+                    }
+                }
+                return admitted;
+            }));
+        }
+        int admitted = 0;
+        for (Future<Integer> future : futures) {
+            admitted += future.get(10, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+        assertEquals(100, admitted);
+    }
+}
@@ -0,0 +1,41 @@
+package com.korniienko.kalah.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserTokenBucketsTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void shouldNotShareBucketsOfUsersWithEqualHashCodes() {
+        final UserTokenBuckets buckets = new UserTokenBuckets(1, 1, 1024, 1);
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(0, buckets.tryAcquire("Aa", SECOND));
+        assertTrue(buckets.tryAcquire("Aa", SECOND) > 0);
+        assertEquals(0, buckets.tryAcquire("BB", SECOND));
+    }
+
+    @Test
+    public void shouldDropIdleBucketsWhenFull() {
+        final UserTokenBuckets buckets = new UserTokenBuckets(10, 1, 2, 1);
+        assertEquals(0, buckets.tryAcquire("alice", SECOND));
+        assertEquals(0, buckets.tryAcquire("bob", SECOND));
+        assertEquals(0, buckets.tryAcquire("carol", 2 * SECOND));
+        assertEquals(1, buckets.trackedUsers());
+        assertTrue(buckets.tryAcquire("carol", 2 * SECOND) > 0);
+    }
+
+    @Test
+    public void shouldShareOverflowBucketsOnlyBeyondTrackedUsers() {
+        final UserTokenBuckets buckets = new UserTokenBuckets(1, 1, 1, 1);
+        assertEquals(0, buckets.tryAcquire("alice", SECOND));
+        assertEquals(0, buckets.tryAcquire("bob", SECOND));
+        assertTrue(buckets.tryAcquire("carol", SECOND) > 0);
+        assertTrue(buckets.tryAcquire("alice", SECOND) > 0);
+        assertEquals(1, buckets.trackedUsers());
+    }
+}
@@ -0,0 +1,100 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.dao.ArchivedGameRepository;
+import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.dao.JpaGameStore;
+import com.korniienko.kalah.dao.journal.NoOpMoveJournal;
+import com.korniienko.kalah.dto.GameDto;
+import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.events.GameEventPublisher;
+import com.korniienko.kalah.service.outbox.EventOutbox;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "kalah.archive.batch-size=2")
+@Import({GameService.class, JpaGameStore.class, NoOpMoveJournal.class, GameArchiver.class, ArchiveProperties.class,
+        LegalMoveGenerator.class, LegalMovesProperties.class})
+public class GameArchiverTest {
+
+    private static final String REQUEST_URL = "http://localhost:8080/games";
+
+    @MockBean
+    private GameEventPublisher gameEventPublisher;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @MockBean
+    private EventOutbox eventOutbox;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameArchiver gameArchiver;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private ArchivedGameRepository archivedGameRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    public void shouldMoveFinishedGamesToArchiveAndKeepServingTheirStatus() {
+        final Long liveGameId = gameService.newGame(REQUEST_URL).getId();
+        final Long firstFinishedId = finishedGame(Pit.Part.SOUTH);
+        final Long secondFinishedId = finishedGame(Pit.Part.NORTH);
+        final Long thirdFinishedId = finishedGame(null);
+        final GameStatusDto finishedStatus = gameService.status(firstFinishedId);
+
+        gameArchiver.archiveFinishedGames();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(3, archivedGameRepository.count());
+        final List<Long> liveGameIds = gameService.listGames(REQUEST_URL).stream().map(GameDto::getId).collect(Collectors.toList());
+        assertEquals(1, liveGameIds.size());
+        assertEquals(liveGameId, liveGameIds.get(0));
+        assertTrue(gameRepository.findStatusById(secondFinishedId).isEmpty());
+        final GameStatusDto archivedStatus = gameService.status(firstFinishedId);
+        assertEquals(finishedStatus.getStatus(), archivedStatus.getStatus());
+        assertEquals(finishedStatus.getVersion(), archivedStatus.getVersion());
+        assertTrue(archivedStatus.isFinished());
+        assertTrue(archivedGameRepository.findById(thirdFinishedId).get().isDraw());
+        assertEquals(Pit.Part.NORTH, archivedGameRepository.findById(secondFinishedId).get().getWinner());
+    }
+
+    @Test
+    public void shouldNotArchiveAnythingWhenNoGameIsFinished() {
+        gameService.newGame(REQUEST_URL);
+        gameArchiver.archiveFinishedGames();
+        assertEquals(0, archivedGameRepository.count());
+        assertEquals(1, gameRepository.count());
+    }
+
+    private Long finishedGame(Pit.Part winner) {
+        final Long gameId = gameService.newGame(REQUEST_URL).getId();
+        final Game game = gameRepository.findById(gameId).get();
+        game.getPits().forEach(pit -> pit.setWeight(pit.isKalah() ? 36 : 0));
+        game.setGameOver(true);
+        game.setWinner(winner);
+        game.setDraw(winner == null);
+        gameRepository.saveAndFlush(game);
+        return gameId;
+    }
+}
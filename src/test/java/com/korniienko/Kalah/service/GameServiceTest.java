@@ -1,24 +1,39 @@
 package com.korniienko.kalah.service;
 
 import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.dao.JpaGameStore;
+import com.korniienko.kalah.dao.PitStatusView;
+import com.korniienko.kalah.dao.journal.MoveJournal;
+import com.korniienko.kalah.dto.GameDeltaDto;
 import com.korniienko.kalah.dto.GameDto;
 import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.dto.LegalMovesDto;
+import com.korniienko.kalah.dto.SimulationDto;
+import com.korniienko.kalah.exceptions.ForbiddenMoveException;
+import com.korniienko.kalah.exceptions.GameBusyException;
 import com.korniienko.kalah.exceptions.GameNotFoundException;
 import com.korniienko.kalah.exceptions.IllegalMoveException;
+import com.korniienko.kalah.exceptions.TooManyRequestsException;
+import com.korniienko.kalah.model.ArchivedGame;
 import com.korniienko.kalah.model.Game;
 import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.events.GameEventPublisher;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.korniienko.kalah.service.GameService.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,25 +45,33 @@ public class GameServiceTest {
     @Mock
     private GameRepository gameRepository;
 
-    @InjectMocks
+    @Mock
+    private GameArchiver gameArchiver;
+
+    @Mock
+    private MoveJournal moveJournal;
+
+    @Mock
+    private GameEventPublisher eventPublisher;
+
+    @Mock
+    private RateLimiter rateLimiter;
+
     private GameService gameService;
 
     private List<Pit> pits = null;
 
     @BeforeEach
     public void setUp() {
+        gameService = new GameService(new JpaGameStore(gameRepository), gameArchiver, moveJournal, eventPublisher,
+                new LegalMoveGenerator(new LegalMovesProperties()), rateLimiter);
+        Mockito.lenient().when(gameRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
         pits = gameService.initPits(new Game());
     }
 
     @Test
     public void shouldListAllGamesByDtoRepresentation() {
-        final Game gameOne = new Game();
-        gameOne.setId(1L);
-        final Game gameTwo = new Game();
-        gameTwo.setId(2L);
-        final Game gameThree = new Game();
-        gameThree.setId(3L);
-        Mockito.when(gameRepository.findAll()).thenReturn(Lists.list(gameOne, gameTwo, gameThree));
+        Mockito.when(gameRepository.findAllIds()).thenReturn(Lists.list(1L, 2L, 3L));
         final String requestUrl = "http://localhost:8080/games";
         final List<GameDto> games = gameService.listGames(requestUrl);
         assertEquals(3, games.size());
@@ -59,20 +82,76 @@ public class GameServiceTest {
 
     @Test
     public void shouldGetGameStatusForAnExistingGame() {
-        final Game gameOne = new Game();
-        gameOne.setId(1L);
-        gameOne.setPits(pits);
-        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(gameOne));
+        final List<PitStatusView> pitViews = pits.stream()
+                .map(p -> new PitStatusView(p.getIndex(), p.getWeight(), Pit.Part.SOUTH, null, false, false, 3L))
+                .collect(Collectors.toList());
+        Mockito.when(gameRepository.findStatusById(1L)).thenReturn(pitViews);
         final GameStatusDto status = gameService.status(1L);
         assertNotNull(status);
+        assertEquals(gameService.pitsToStatusMap(pits), status.getStatus());
+        assertEquals(3L, status.getVersion());
+        assertEquals(6, status.getLegalMoves().size());
+        assertEquals(new LegalMovesDto.Move(1, true, false), status.getLegalMoves().get(0));
+        assertEquals(new LegalMovesDto.Move(2, false, false), status.getLegalMoves().get(1));
+    }
+
+    @Test
+    public void shouldGetLegalMovesOfSideToMove() {
+        pits.get(9).setWeight(0);
+        pits.get(12).setWeight(1);
+        final List<PitStatusView> pitViews = pits.stream()
+                .map(p -> new PitStatusView(p.getIndex(), p.getWeight(), Pit.Part.NORTH, null, false, false, 3L))
+                .collect(Collectors.toList());
+        Mockito.when(gameRepository.findStatusById(1L)).thenReturn(pitViews);
+        final LegalMovesDto legalMoves = gameService.legalMoves(1L);
+        assertEquals(Pit.Part.NORTH, legalMoves.getTurn());
+        assertEquals(Lists.list(8, 9, 11, 12, 13),
+                legalMoves.getMoves().stream().map(LegalMovesDto.Move::getPit).collect(Collectors.toList()));
+        assertEquals(new LegalMovesDto.Move(8, true, false), legalMoves.getMoves().get(0));
+        assertEquals(new LegalMovesDto.Move(13, true, false), legalMoves.getMoves().get(4));
+    }
+
+    @Test
+    public void shouldGetNoLegalMovesForFinishedGame() {
+        Mockito.when(gameRepository.findStatusById(1L)).thenReturn(Collections.emptyList());
+        Mockito.when(gameArchiver.findArchived(1L)).thenReturn(Optional.of(new ArchivedGame(1L, new byte[PITS_SIZE], Pit.Part.NORTH, false, 9L)));
+        final LegalMovesDto legalMoves = gameService.legalMoves(1L);
+        assertNull(legalMoves.getTurn());
+        assertTrue(legalMoves.getMoves().isEmpty());
+        assertTrue(gameService.status(1L).getLegalMoves().isEmpty());
     }
 
     @Test
     public void shouldFailToGetGameStatusForMissingGameId() {
-        Mockito.when(gameRepository.findById(any())).thenReturn(Optional.empty());
+        Mockito.when(gameRepository.findStatusById(any())).thenReturn(Collections.emptyList());
         Exception exception = assertThrows(GameNotFoundException.class, () -> gameService.status(1L));
         String expectedMessage = "Game with id [1] not found on the server.";
         assertEquals(expectedMessage, exception.getMessage());
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void shouldGetGameStatusForAnArchivedGame() {
+        final byte[] board = {0, 0, 0, 0, 0, 0, 40, 0, 0, 0, 0, 0, 0, 32};
+        Mockito.when(gameRepository.findStatusById(1L)).thenReturn(Collections.emptyList());
+        Mockito.when(gameArchiver.findArchived(1L)).thenReturn(Optional.of(new ArchivedGame(1L, board, Pit.Part.SOUTH, false, 9L)));
+        final GameStatusDto archivedStatus = gameService.status(1L);
+        assertEquals(9L, archivedStatus.getVersion());
+        assertTrue(archivedStatus.isFinished());
+        final Map<Integer, String> status = archivedStatus.getStatus();
+        assertEquals(PITS_SIZE, status.size());
+        assertEquals("40", status.get(SOUTH_KALAH_INDEX));
+        assertEquals("32", status.get(NORTH_KALAH_INDEX));
+        assertEquals("0", status.get(INITIAL_SOUTH_INDEX));
+    }
+
+    @Test
+    public void shouldFailToMakeMoveForAnArchivedGame() {
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.empty());
+        Mockito.when(gameArchiver.findArchived(1L)).thenReturn(Optional.of(new ArchivedGame(1L, new byte[PITS_SIZE], Pit.Part.NORTH, false, 9L)));
+        Exception exception = assertThrows(IllegalMoveException.class, () -> gameService.makeMove(1L, 1, () -> null));
+        assertEquals("Game is over, the winner side is [NORTH].", exception.getMessage());
+        assertEquals(0, exception.getStackTrace().length);
     }
 
     @Test
@@ -82,7 +161,7 @@ public class GameServiceTest {
         gameOne.setPits(pits);
         gameOne.setTurn(Pit.Part.SOUTH);
         Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(gameOne));
-        final GameStatusDto status = gameService.makeMove(1L, 1);
+        final GameStatusDto status = gameService.makeMove(1L, 1, () -> null);
         assertNotNull(status);
         final Map<Integer, String> statusMap = status.getStatus();
         assertEquals("0", statusMap.get(1));
@@ -95,19 +174,99 @@ public class GameServiceTest {
         }
         assertEquals("0", statusMap.get(14));
         assertEquals(Pit.Part.SOUTH, gameOne.getTurn());
+        assertEquals(Lists.list(2, 3, 4, 5, 6),
+                status.getLegalMoves().stream().map(LegalMovesDto.Move::getPit).collect(Collectors.toList()));
 
-        final GameStatusDto extraMoveStatus = gameService.makeMove(1L, 2);
+        final GameStatusDto extraMoveStatus = gameService.makeMove(1L, 2, () -> null);
         final Map<Integer, String> extraMoveStatusMap = extraMoveStatus.getStatus();
         assertEquals("0", extraMoveStatusMap.get(1));
         assertEquals("0", extraMoveStatusMap.get(2));
         assertEquals("8", extraMoveStatusMap.get(3));
 
-        Exception exception = assertThrows(IllegalMoveException.class, () -> gameService.makeMove(1L, 1));
+        Exception exception = assertThrows(IllegalMoveException.class, () -> gameService.makeMove(1L, 1, () -> null));
         String expectedMessage = "Wrong turn [SOUTH], the current turn is [NORTH].";
         String actualMessage = exception.getMessage();
         assertEquals(expectedMessage, actualMessage);
     }
 
+    @Test
+    public void shouldSimulateMovesOnCopyOfGame() {
+        final Game gameOne = new Game();
+        gameOne.setId(1L);
+        gameOne.setPits(pits);
+        gameOne.setTurn(Pit.Part.SOUTH);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(gameOne));
+        final SimulationDto simulation = gameService.simulate(1L, Lists.list(1, 2, 8));
+        assertEquals(3, simulation.getSteps().size());
+        final SimulationDto.Step extraTurn = simulation.getSteps().get(0);
+        assertEquals(1, extraTurn.getPit());
+        assertEquals("0", extraTurn.getStatus().get(1));
+        assertEquals("1", extraTurn.getStatus().get(7));
+        assertEquals(Pit.Part.SOUTH, extraTurn.getTurn());
+        assertFalse(extraTurn.isGameOver());
+        assertEquals(Pit.Part.NORTH, simulation.getSteps().get(1).getTurn());
+        final SimulationDto.Step last = simulation.getSteps().get(2);
+        assertEquals("0", last.getStatus().get(8));
+        assertEquals("1", last.getStatus().get(14));
+        assertEquals(Pit.Part.SOUTH, last.getTurn());
+        assertEquals(new LegalMovesDto.Move(1, false, true), last.getLegalMoves().get(0));
+
+        for (Pit pit : gameOne.getPits()) {
+            assertEquals(pit.isKalah() ? 0 : PIT_INITIAL_WEIGHT, pit.getWeight());
+        }
+        assertEquals(Pit.Part.SOUTH, gameOne.getTurn());
+        Mockito.verify(gameRepository, Mockito.never()).save(any());
+        Mockito.verifyNoInteractions(moveJournal, eventPublisher);
+    }
+
+    @Test
+    public void shouldSimulateMovesUntilGameIsOver() {
+        final Game gameOne = new Game();
+        gameOne.setId(1L);
+        gameOne.setPits(pits);
+        gameOne.setTurn(Pit.Part.SOUTH);
+        for (int i = 0; i < 5; i++) {
+            pits.get(i).setWeight(0);
+        }
+        pits.get(5).setWeight(1);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(gameOne));
+        final SimulationDto.Step finished = gameService.simulate(1L, Lists.list(6)).getSteps().get(0);
+        assertTrue(finished.isGameOver());
+        assertNull(finished.getTurn());
+        assertEquals(Pit.Part.NORTH, finished.getWinner());
+        assertTrue(finished.getLegalMoves().isEmpty());
+
+        Exception exception = assertThrows(IllegalMoveException.class, () -> gameService.simulate(1L, Lists.list(6, 8)));
+        assertEquals("Game is over, the winner side is [NORTH].", exception.getMessage());
+        assertFalse(gameOne.isGameOver());
+    }
+
+    @Test
+    public void shouldFailToSimulateIllegalMoves() {
+        final Game gameOne = new Game();
+        gameOne.setId(1L);
+        gameOne.setPits(pits);
+        gameOne.setTurn(Pit.Part.SOUTH);
+        Mockito.lenient().when(gameRepository.findById(1L)).thenReturn(Optional.of(gameOne));
+        Exception exception = assertThrows(IllegalMoveException.class, () -> gameService.simulate(1L, Lists.list(2, 3)));
+        assertEquals("Wrong turn [SOUTH], the current turn is [NORTH].", exception.getMessage());
+        exception = assertThrows(IllegalMoveException.class, () -> gameService.simulate(1L, Lists.list(15)));
+        assertEquals("Cannot make a move, there is no pit with index [15].", exception.getMessage());
+        exception = assertThrows(IllegalMoveException.class, () -> gameService.simulate(1L, Collections.emptyList()));
+        assertEquals("A simulation takes from [1] to [64] pits.", exception.getMessage());
+    }
+
+    @Test
+    public void shouldFailToMakeAMoveFromANonExistingPitWithoutStoringIt() {
+        Exception exception = assertThrows(IllegalMoveException.class, () -> gameService.makeMove(1L, 99, () -> null));
+        assertEquals("Cannot make a move, there is no pit with index [99].", exception.getMessage());
+        exception = assertThrows(IllegalMoveException.class, () -> gameService.makeMove(1L, 0, () -> null));
+        assertEquals("Cannot make a move, there is no pit with index [0].", exception.getMessage());
+        exception = assertThrows(IllegalMoveException.class, () -> gameService.makeMoveDelta(1L, -3, () -> null));
+        assertEquals("Cannot make a move, there is no pit with index [-3].", exception.getMessage());
+        Mockito.verifyNoInteractions(gameRepository, moveJournal, eventPublisher);
+    }
+
     @Test
     public void shouldMakeAMoveAndCaptureOppositePitIfLandInOwnEmptyPit() {
         final Game gameOne = new Game();
@@ -117,12 +276,13 @@ public class GameServiceTest {
         gameOne.setPits(pits);
         gameOne.setTurn(Pit.Part.SOUTH);
         Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(gameOne));
-        final GameStatusDto status = gameService.makeMove(1L, 1);
+        final GameStatusDto status = gameService.makeMove(1L, 1, () -> null);
         final Map<Integer, String> statusMap = status.getStatus();
         assertEquals("0", statusMap.get(1));
         assertEquals("0", statusMap.get(2));
         assertEquals("7", statusMap.get(7));
         assertEquals("0", statusMap.get(12));
+        assertEquals(new LegalMovesDto.Move(8, true, false), status.getLegalMoves().get(0));
     }
 
     @Test
@@ -136,7 +296,7 @@ public class GameServiceTest {
         }
         pits.get(5).setWeight(1);
         Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(gameOne));
-        final GameStatusDto status = gameService.makeMove(1L, 6);
+        final GameStatusDto status = gameService.makeMove(1L, 6, () -> null);
         final Map<Integer, String> statusMap = status.getStatus();
         for (int i = 1; i < 7; i++) {
             assertEquals(String.valueOf(0), statusMap.get(i));
@@ -148,10 +308,184 @@ public class GameServiceTest {
         assertEquals("36", statusMap.get(14));
     }
 
+    @Test
+    public void shouldRetryTheMoveOnAFreshGameWhenTheGameWasChangedConcurrently() {
+        final Game staleGame = new Game();
+        staleGame.setId(1L);
+        staleGame.setPits(gameService.initPits(staleGame));
+        staleGame.setTurn(Pit.Part.SOUTH);
+        final Game freshGame = new Game();
+        freshGame.setId(1L);
+        freshGame.setPits(gameService.initPits(freshGame));
+        freshGame.setTurn(Pit.Part.SOUTH);
+        freshGame.getPits().get(0).setWeight(1);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(staleGame), Optional.of(freshGame));
+        Mockito.when(gameRepository.save(staleGame)).thenThrow(new ObjectOptimisticLockingFailureException(Game.class, 1L));
+        final Map<Integer, String> statusMap = gameService.makeMove(1L, 1, () -> null).getStatus();
+        assertEquals("0", statusMap.get(1));
+        assertEquals("7", statusMap.get(2));
+        assertEquals("6", statusMap.get(3));
+        Mockito.verify(gameRepository).save(freshGame);
+        Mockito.verify(moveJournal).moved(freshGame, 1);
+        Mockito.verify(moveJournal, Mockito.never()).moved(staleGame, 1);
+        Mockito.verify(eventPublisher).publish(any(MoveAppliedEvent.class));
+        Mockito.verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    public void shouldAnswerWithChangedPitsAndTurnOnDeltaMove() {
+        final Game game = new Game();
+        game.setId(1L);
+        game.setVersion(5L);
+        game.setPits(gameService.initPits(game));
+        game.setTurn(Pit.Part.SOUTH);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        final GameDeltaDto delta = gameService.makeMoveDelta(1L, 2, () -> null);
+        assertEquals(5L, delta.getVersion().longValue());
+        assertEquals(7, delta.getChanged().size());
+        assertEquals("0", delta.getChanged().get(2));
+        assertEquals("7", delta.getChanged().get(3));
+        assertEquals("1", delta.getChanged().get(7));
+        assertEquals("7", delta.getChanged().get(8));
+        assertFalse(delta.getChanged().containsKey(1));
+        assertEquals(Pit.Part.NORTH, delta.getTurn());
+        assertNull(delta.getGameOver());
+        assertNull(delta.getWinner());
+    }
+
+    @Test
+    public void shouldOmitUnchangedTurnOnDeltaMove() {
+        final Game game = new Game();
+        game.setId(1L);
+        game.setPits(gameService.initPits(game));
+        game.setTurn(Pit.Part.SOUTH);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        final GameDeltaDto delta = gameService.makeMoveDelta(1L, 1, () -> null);
+        assertEquals(7, delta.getChanged().size());
+        assertEquals("1", delta.getChanged().get(7));
+        assertNull(delta.getTurn());
+    }
+
+    @Test
+    public void shouldPublishGameFinishedEventForTheMoveWhichFinishesTheGame() {
+        final Game game = new Game();
+        game.setId(1L);
+        game.setPits(gameService.initPits(game));
+        game.setTurn(Pit.Part.SOUTH);
+        game.setSouthPlayerId(7L);
+        game.setNorthPlayerId(8L);
+        game.getPits().stream().filter(p -> !p.isKalah() && p.getPart() == Pit.Part.SOUTH).forEach(p -> p.setWeight(0));
+        game.getPits().get(5).setWeight(1);
+        final int[] weights = game.getPits().stream().mapToInt(Pit::getWeight).toArray();
+        final long position = ZobristHash.of(weights, Pit.Part.SOUTH);
+        final long mirroredPosition = ZobristHash.mirroredOf(weights, Pit.Part.SOUTH);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        gameService.makeMove(1L, 6, () -> 7L);
+        assertTrue(game.isGameOver());
+        final InOrder inOrder = Mockito.inOrder(eventPublisher);
+        inOrder.verify(eventPublisher).publish(new MoveAppliedEvent(1L, 6, Pit.Part.SOUTH, null, position, mirroredPosition));
+        inOrder.verify(eventPublisher).publish(new GameFinishedEvent(1L, Pit.Part.NORTH, false, 7L, 8L, true));
+    }
+
+    @Test
+    public void shouldNotRateTheGameWithoutPlayersOnBothSides() {
+        final Game game = new Game();
+        game.setId(1L);
+        game.setPits(gameService.initPits(game));
+        game.setTurn(Pit.Part.SOUTH);
+        game.setSouthPlayerId(7L);
+        game.getPits().stream().filter(p -> !p.isKalah() && p.getPart() == Pit.Part.SOUTH).forEach(p -> p.setWeight(0));
+        game.getPits().get(5).setWeight(1);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        gameService.makeMove(1L, 6, () -> 7L);
+        Mockito.verify(eventPublisher).publish(new GameFinishedEvent(1L, Pit.Part.NORTH, false, 7L, null, false));
+    }
+
+    @Test
+    public void shouldFinishTheGameForfeitedByTheSideToMove() {
+        final Game game = new Game();
+        game.setId(1L);
+        game.setVersion(5L);
+        game.setPits(gameService.initPits(game));
+        game.setTurn(Pit.Part.SOUTH);
+        game.setSouthPlayerId(7L);
+        game.setNorthPlayerId(8L);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        assertEquals(Pit.Part.SOUTH, gameService.forfeit(1L, 5L));
+        assertTrue(game.isGameOver());
+        assertEquals(Pit.Part.NORTH, game.getWinner());
+        Mockito.verify(gameRepository).save(game);
+        Mockito.verify(moveJournal).moved(game, 0);
+        Mockito.verify(eventPublisher).publish(new GameFinishedEvent(1L, Pit.Part.NORTH, false, 7L, 8L, true));
+    }
+
+    @Test
+    public void shouldNotForfeitTheGameChangedSinceTheVersion() {
+        final Game game = new Game();
+        game.setId(1L);
+        game.setVersion(6L);
+        game.setPits(gameService.initPits(game));
+        game.setTurn(Pit.Part.SOUTH);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        assertNull(gameService.forfeit(1L, 5L));
+        assertFalse(game.isGameOver());
+        Mockito.verify(gameRepository, Mockito.never()).save(any());
+        Mockito.verifyNoInteractions(moveJournal, eventPublisher);
+    }
+
+    @Test
+    public void shouldRejectMoveOfThePlayerWhoseTurnItIsNot() {
+        final Game game = new Game();
+        game.setId(1L);
+        game.setPits(gameService.initPits(game));
+        game.setTurn(Pit.Part.SOUTH);
+        game.setSouthPlayerId(7L);
+        game.setNorthPlayerId(8L);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        Exception exception = assertThrows(ForbiddenMoveException.class, () -> gameService.makeMove(1L, 1, () -> 8L));
+        assertEquals("Player [8] does not play the [SOUTH] side of the game [1].", exception.getMessage());
+        assertThrows(ForbiddenMoveException.class, () -> gameService.makeMove(1L, 1, () -> null));
+        assertEquals(6, game.getPits().get(0).getWeight());
+        Mockito.verify(gameRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verifyNoInteractions(eventPublisher, rateLimiter);
+    }
+
+    @Test
+    public void shouldRejectMoveOfThePlayerOverTheMoveLimitOfTheGame() {
+        final Game game = new Game();
+        game.setId(1L);
+        game.setPits(gameService.initPits(game));
+        game.setTurn(Pit.Part.SOUTH);
+        game.setSouthPlayerId(7L);
+        game.setNorthPlayerId(8L);
+        Mockito.when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        Mockito.when(rateLimiter.acquireForGame(1L)).thenReturn(1_500_000_000L);
+        final TooManyRequestsException exception = assertThrows(TooManyRequestsException.class, () -> gameService.makeMove(1L, 1, () -> 7L));
+        assertEquals("Too many moves in the game with id [1].", exception.getMessage());
+        assertEquals(2, exception.getRetryAfterSeconds());
+        Mockito.verify(gameRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void shouldFailToMakeMoveWhenTheGameIsChangedConcurrentlyOnEveryAttempt() {
+        Mockito.when(gameRepository.findById(1L)).thenAnswer(invocation -> {
+            final Game game = new Game();
+            game.setId(1L);
+            game.setPits(gameService.initPits(game));
+            game.setTurn(Pit.Part.SOUTH);
+            return Optional.of(game);
+        });
+        Mockito.when(gameRepository.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(Game.class, 1L));
+        Exception exception = assertThrows(GameBusyException.class, () -> gameService.makeMove(1L, 1, () -> null));
+        assertEquals("The game with id [1] is changed concurrently, try again later.", exception.getMessage());
+        Mockito.verify(gameRepository, Mockito.times(MAX_MOVE_ATTEMPTS)).save(any());
+    }
+
     @Test
     public void shouldFailToMakeMoveForMissingGameId() {
         Mockito.when(gameRepository.findById(any())).thenReturn(Optional.empty());
-        Exception exception = assertThrows(GameNotFoundException.class, () -> gameService.makeMove(1L, 1));
+        Exception exception = assertThrows(GameNotFoundException.class, () -> gameService.makeMove(1L, 1, () -> null));
         String expectedMessage = "Game with id [1] not found on the server.";
         assertEquals(expectedMessage, exception.getMessage());
     }
@@ -165,6 +499,8 @@ public class GameServiceTest {
         final GameDto gameDto = gameService.newGame(requestUrl);
         assertEquals(1L, gameDto.getId());
         assertEquals("http://localhost:8080/games/1", gameDto.getUri());
+        Mockito.verify(moveJournal).created(game);
+        Mockito.verify(eventPublisher).publish(new GameCreatedEvent(1L, null, null));
     }
 
     @Test
@@ -296,6 +632,7 @@ public class GameServiceTest {
         final Pit pit = pits.get(0);
         final Pit samePit = gameService.nextPit(pits, pit, PITS_SIZE);
         assertEquals(samePit, pit);
+        assertEquals(pit, gameService.nextPit(pits, pit, 3 * PITS_SIZE));
     }
 
     @Test
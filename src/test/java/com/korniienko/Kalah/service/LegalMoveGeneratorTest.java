@@ -0,0 +1,129 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.dto.LegalMovesDto;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LegalMoveGeneratorTest {
+
+    private final GameService gameService = new GameService(null, null, null, null, null);
+
+    private final LegalMoveGenerator generator = new LegalMoveGenerator(new LegalMovesProperties());
+
+    @Test
+    public void shouldFindExtraTurnWhenLastStoneLandsInOwnKalah() {
+        final int[] weights = {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0};
+        final List<LegalMovesDto.Move> moves = LegalMoveGenerator.generate(weights, Pit.Part.SOUTH);
+        assertEquals(6, moves.size());
+        assertEquals(new LegalMovesDto.Move(1, true, false), moves.get(0));
+        for (int i = 1; i < moves.size(); i++) {
+            assertEquals(new LegalMovesDto.Move(i + 1, false, false), moves.get(i));
+        }
+    }
+
+    @Test
+    public void shouldFindCaptureWhenLastStoneLandsInOwnEmptyPit() {
+        final int[] weights = {1, 0, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0};
+        final List<LegalMovesDto.Move> moves = LegalMoveGenerator.generate(weights, Pit.Part.SOUTH);
+        assertEquals(new LegalMovesDto.Move(1, false, true), moves.get(0));
+        assertEquals(new LegalMovesDto.Move(3, false, false), moves.get(1));
+    }
+
+    @Test
+    public void shouldSkipEmptyPitsAndPitsOfOtherSide() {
+        final int[] weights = {6, 6, 6, 6, 6, 6, 0, 0, 0, 3, 0, 0, 2, 0};
+        final List<LegalMovesDto.Move> moves = LegalMoveGenerator.generate(weights, Pit.Part.NORTH);
+        assertEquals(2, moves.size());
+        assertEquals(new LegalMovesDto.Move(10, false, false), moves.get(0));
+        assertEquals(new LegalMovesDto.Move(13, false, false), moves.get(1));
+    }
+
+    @Test
+    public void shouldAgreeWithGameRulesDuringRandomGames() {
+        final Random random = new Random(5);
+        for (int round = 0; round < 500; round++) {
+            final Game game = new Game();
+            game.setPits(gameService.initPits(game));
+            while (!game.isGameOver()) {
+                final int[] weights = game.getPits().stream().mapToInt(Pit::getWeight).toArray();
+                final Pit.Part side = game.getTurn();
+                final List<LegalMovesDto.Move> moves = LegalMoveGenerator.generate(weights, side);
+                for (Pit pit : game.getPits()) {
+                    final boolean legal = moves.stream().anyMatch(move -> move.getPit() == pit.getIndex());
+                    assertEquals(!pit.isKalah() && pit.getPart() == side && pit.getWeight() > 0, legal);
+                }
+                final LegalMovesDto.Move move = moves.get(random.nextInt(moves.size()));
+                gameService.validateAndMove(game, move.getPit());
+                if (!game.isGameOver()) {
+                    assertEquals(move.isExtraTurn(), game.getTurn() == side, Arrays.toString(weights) + " " + move);
+                    final int landing = (move.getPit() + weights[move.getPit() - 1] - 1) % GameService.PITS_SIZE + 1;
+                    final boolean emptiedOwnHouse = landing != GameService.SOUTH_KALAH_INDEX && landing != GameService.NORTH_KALAH_INDEX
+                            && (landing <= GameService.SOUTH_KALAH_INDEX) == (side == Pit.Part.SOUTH)
+                            && game.getPits().get(landing - 1).getWeight() == 0;
+                    assertEquals(move.isCapture(), emptiedOwnHouse, Arrays.toString(weights) + " " + move);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldCacheMovesByPosition() {
+        final int[] weights = {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0};
+        final long position = ZobristHash.of(weights, Pit.Part.SOUTH);
+        final List<LegalMovesDto.Move> moves = generator.legalMoves(position, weights, Pit.Part.SOUTH);
+        assertSame(moves, generator.legalMoves(position, weights.clone(), Pit.Part.SOUTH));
+    }
+
+    @Test
+    public void shouldNotServeCachedMovesOfAnotherBoardWithSameHash() {
+        final int[] weights = {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0};
+        final int[] other = {0, 7, 7, 7, 7, 7, 1, 6, 6, 6, 6, 6, 6, 0};
+        generator.legalMoves(1L, weights, Pit.Part.SOUTH);
+        assertEquals(5, generator.legalMoves(1L, other, Pit.Part.SOUTH).size());
+    }
+
+    @Test
+    public void shouldGenerateMovesWithoutCache() {
+        final LegalMovesProperties properties = new LegalMovesProperties();
+        properties.setCacheSize(0);
+        final int[] weights = {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0};
+        assertEquals(6, new LegalMoveGenerator(properties).legalMoves(1L, weights, Pit.Part.SOUTH).size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void shouldGenerateMovesInFewHundredNanoseconds() {
+        final Random random = new Random(3);
+        final int[][] boards = new int[1024][];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new int[GameService.PITS_SIZE];
+            for (int stone = 0; stone < 72; stone++) {
+                boards[i][random.nextInt(GameService.PITS_SIZE)]++;
+            }
+        }
+        final int rounds = 5_000_000;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            int moves = 0;
+            for (int i = 0; i < rounds; i++) {
+                moves += LegalMoveGenerator.generate(boards[i & 1023], Pit.Part.SOUTH).size();
+            }
+            final double generated = (System.nanoTime() - start) / (double) rounds;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                final int[] board = boards[i & 1023];
+                moves += generator.legalMoves(ZobristHash.of(board, Pit.Part.SOUTH), board, Pit.Part.SOUTH).size();
+            }
+            final double cached = (System.nanoTime() - start) / (double) rounds;
+            System.out.printf("Legal moves: generated in %.0f ns, cached in %.0f ns (%d)%n", generated, cached, moves);
+        }
+    }
+}
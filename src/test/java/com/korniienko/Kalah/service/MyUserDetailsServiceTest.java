@@ -4,12 +4,13 @@ import com.korniienko.kalah.dao.UserRepository;
 import com.korniienko.kalah.dto.UserCredentialsDto;
 import com.korniienko.kalah.model.User;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -33,9 +34,13 @@ public class MyUserDetailsServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
-    @InjectMocks
     private MyUserDetailsService myUserDetailsService;
 
+    @BeforeEach
+    public void setUp() {
+        myUserDetailsService = new MyUserDetailsService(userRepository, passwordEncoder, new UserCache(new UserCacheProperties()));
+    }
+
     @Test
     public void shouldFindUserByUsernameWhenUserExist() {
         final User user = new User(1L, "admin", "admin", new ArrayList<>());
@@ -56,7 +61,7 @@ public class MyUserDetailsServiceTest {
     public void shouldAddUserWhenUsernameIsUnique() {
         final User user = new User(1L, "admin", UUID.randomUUID().toString(), new ArrayList<>());
         Mockito.when(userRepository.save(any())).thenReturn(user);
-        Mockito.when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
+        Mockito.when(userRepository.existsByUsername("admin")).thenReturn(false);
         Mockito.when(passwordEncoder.encode("admin")).thenReturn("4DM1N");
         final User addedUser = myUserDetailsService.addUser(new UserCredentialsDto("admin", "admin"));
         Assertions.assertEquals(user, addedUser);
@@ -64,11 +69,37 @@ public class MyUserDetailsServiceTest {
 
     @Test
     public void shouldFailToAddUserWhenUsernameIsNotUnique() {
-        final User user = new User(1L, "admin", "admin", new ArrayList<>());
-        Mockito.when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(user));
+        Mockito.when(userRepository.existsByUsername("admin")).thenReturn(true);
         Exception exception = assertThrows(BadCredentialsException.class, () -> myUserDetailsService.addUser(new UserCredentialsDto("admin", "admin")));
         String expectedMessage = "User with name [admin] already exist, please use another username.";
         assertEquals(expectedMessage, exception.getMessage());
     }
 
+    @Test
+    public void shouldServeRepeatedLookupsFromCache() {
+        final User user = new User(1L, "admin", "admin", new ArrayList<>());
+        Mockito.when(userRepository.findByUsername("admin")).thenReturn(Optional.of(user));
+        myUserDetailsService.loadUserByUsername("admin");
+        final UserDetails cachedUser = myUserDetailsService.loadUserByUsername("admin");
+        assertEquals(user, cachedUser);
+        Mockito.verify(userRepository, Mockito.times(1)).findByUsername("admin");
+    }
+
+    @Test
+    public void shouldCacheUserOnSignup() {
+        final User user = new User(1L, "admin", "4DM1N", new ArrayList<>());
+        Mockito.when(userRepository.existsByUsername("admin")).thenReturn(false);
+        Mockito.when(userRepository.save(any())).thenReturn(user);
+        myUserDetailsService.addUser(new UserCredentialsDto("admin", "admin"));
+        assertEquals(user, myUserDetailsService.loadUserByUsername("admin"));
+        Mockito.verify(userRepository, Mockito.never()).findByUsername(anyString());
+    }
+
+    @Test
+    public void shouldFailToAddUserWhenUniqueUsernameIsTakenConcurrently() {
+        Mockito.when(userRepository.existsByUsername("admin")).thenReturn(false);
+        Mockito.when(userRepository.save(any())).thenThrow(new DataIntegrityViolationException("uk_user_username"));
+        Exception exception = assertThrows(BadCredentialsException.class, () -> myUserDetailsService.addUser(new UserCredentialsDto("admin", "admin")));
+        assertEquals("User with name [admin] already exist, please use another username.", exception.getMessage());
+    }
 }
@@ -0,0 +1,92 @@
+package com.korniienko.kalah.service;
+
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZobristHashTest {
+
+    private final GameService gameService = new GameService(null, null, null, null, null);
+
+    @Test
+    public void shouldKeepHashEqualToFullHashDuringRandomGames() {
+        final Random random = new Random(11);
+        for (int round = 0; round < 500; round++) {
+            final Game game = newGame(random.nextBoolean() ? Pit.Part.SOUTH : Pit.Part.NORTH);
+            assertEquals(ZobristHash.of(weightsOf(game), game.getTurn()), ZobristHash.of(game));
+            while (!game.isGameOver()) {
+                final List<Pit> movable = game.getPits().stream()
+                        .filter(pit -> !pit.isKalah() && pit.getPart() == game.getTurn() && pit.getWeight() > 0)
+                        .collect(Collectors.toList());
+                gameService.validateAndMove(game, movable.get(random.nextInt(movable.size())).getIndex());
+                final int[] weights = weightsOf(game);
+                assertEquals(ZobristHash.of(weights, game.getTurn()), game.getPositionHash());
+                assertEquals(ZobristHash.mirroredOf(weights, game.getTurn()), game.getMirroredPositionHash());
+            }
+        }
+    }
+
+    @Test
+    public void shouldHashSideToMove() {
+        final int[] weights = {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0};
+        assertNotEquals(ZobristHash.of(weights, Pit.Part.SOUTH), ZobristHash.of(weights, Pit.Part.NORTH));
+        assertEquals(ZobristHash.of(weights, Pit.Part.SOUTH), ZobristHash.mirroredOf(weights, Pit.Part.NORTH));
+    }
+
+    @Test
+    public void shouldGiveSameCanonicalHashToMirroredPositions() {
+        final int[] weights = {0, 7, 7, 7, 7, 7, 1, 6, 6, 6, 6, 6, 6, 0};
+        final int[] mirrored = {6, 6, 6, 6, 6, 6, 0, 0, 7, 7, 7, 7, 7, 1};
+        final long hash = ZobristHash.of(weights, Pit.Part.NORTH);
+        final long mirroredHash = ZobristHash.of(mirrored, Pit.Part.SOUTH);
+        assertNotEquals(hash, mirroredHash);
+        assertEquals(mirroredHash, ZobristHash.mirroredOf(weights, Pit.Part.NORTH));
+        assertEquals(ZobristHash.canonical(hash, mirroredHash),
+                ZobristHash.canonical(mirroredHash, ZobristHash.mirroredOf(mirrored, Pit.Part.SOUTH)));
+        assertNotEquals(ZobristHash.isMirrored(hash, mirroredHash),
+                ZobristHash.isMirrored(mirroredHash, ZobristHash.mirroredOf(mirrored, Pit.Part.SOUTH)));
+    }
+
+    @Test
+    public void shouldMirrorPitIndexes() {
+        assertEquals(8, ZobristHash.mirror(1));
+        assertEquals(14, ZobristHash.mirror(7));
+        assertEquals(1, ZobristHash.mirror(8));
+        assertEquals(7, ZobristHash.mirror(14));
+    }
+
+    @Test
+    public void shouldHashWeightsAboveTable() {
+        final int[] weights = {100, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        final int[] heavier = {101, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        assertEquals(ZobristHash.of(weights, Pit.Part.SOUTH), ZobristHash.of(weights.clone(), Pit.Part.SOUTH));
+        assertNotEquals(ZobristHash.of(weights, Pit.Part.SOUTH), ZobristHash.of(heavier, Pit.Part.SOUTH));
+    }
+
+    @Test
+    public void shouldNotRehashGameWithKnownHash() {
+        final Game game = Mockito.spy(newGame(Pit.Part.SOUTH));
+        final long hash = ZobristHash.of(game);
+        Mockito.clearInvocations(game);
+        assertEquals(hash, ZobristHash.of(game));
+        Mockito.verify(game, Mockito.never()).getPits();
+    }
+
+    private Game newGame(Pit.Part turn) {
+        final Game game = new Game();
+        game.setTurn(turn);
+        game.setPits(gameService.initPits(game));
+        return game;
+    }
+
+    private int[] weightsOf(Game game) {
+        return game.getPits().stream().mapToInt(Pit::getWeight).toArray();
+    }
+}
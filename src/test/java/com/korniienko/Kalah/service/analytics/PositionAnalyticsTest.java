@@ -0,0 +1,184 @@
+package com.korniienko.kalah.service.analytics;
+
+import com.korniienko.kalah.dto.PositionStatsDto;
+import com.korniienko.kalah.exceptions.IllegalPositionException;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.ZobristHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionAnalyticsTest {
+
+    private static final int[] OPENING = {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0};
+
+    @TempDir
+    Path directory;
+
+    private AnalyticsProperties properties;
+    private PositionAnalytics analytics;
+    private Game opening;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new AnalyticsProperties();
+        properties.setSnapshotFile(directory.resolve("positions.bin").toString());
+        analytics = new PositionAnalytics(properties);
+        opening = game(OPENING, Pit.Part.SOUTH);
+    }
+
+    @Test
+    public void shouldCountPlayedMovesAndOutcomesOfFinishedGames() {
+        analytics.moved(1L, moveOf(opening, 1), Pit.Part.SOUTH);
+        analytics.moved(2L, moveOf(opening, 1), Pit.Part.SOUTH);
+        analytics.moved(3L, moveOf(opening, 1), Pit.Part.SOUTH);
+        analytics.moved(4L, moveOf(opening, 3), Pit.Part.SOUTH);
+        analytics.finished(1L, Pit.Part.SOUTH, false);
+        analytics.finished(2L, Pit.Part.NORTH, false);
+        analytics.finished(4L, null, true);
+
+        final PositionStatsDto stats = analytics.stats(OPENING, Pit.Part.SOUTH);
+        assertEquals(2, stats.getMoves().size());
+        assertEquals(new PositionStatsDto.MoveStats(1, 3, 1, 0, 1), stats.getMoves().get(0));
+        assertEquals(new PositionStatsDto.MoveStats(3, 1, 0, 1, 0), stats.getMoves().get(1));
+        assertEquals(new PositionStatsDto.MoveStats(8, 3, 1, 0, 1), analytics.stats(OPENING, Pit.Part.NORTH).getMoves().get(0));
+    }
+
+    @Test
+    public void shouldCountOutcomeForTheSideWhichMadeTheMove() {
+        final int[] afterFirstMove = {0, 7, 7, 7, 7, 7, 1, 6, 6, 6, 6, 6, 6, 0};
+        analytics.moved(1L, moveOf(opening, 1), Pit.Part.SOUTH);
+        analytics.moved(1L, moveOf(game(afterFirstMove, Pit.Part.SOUTH), 2), Pit.Part.SOUTH);
+        analytics.finished(1L, Pit.Part.NORTH, false);
+        assertEquals(new PositionStatsDto.MoveStats(2, 1, 0, 0, 1), analytics.stats(afterFirstMove, Pit.Part.SOUTH).getMoves().get(0));
+    }
+
+    @Test
+    public void shouldSumCountersOfAllThreads() throws Exception {
+        final ExecutorService threads = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            final long firstGame = thread * 1000L;
+            futures.add(threads.submit(() -> {
+                for (long gameId = firstGame; gameId < firstGame + 1000; gameId++) {
+                    analytics.moved(gameId, moveOf(opening, 6), Pit.Part.SOUTH);
+                    analytics.finished(gameId, Pit.Part.SOUTH, false);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        threads.shutdown();
+        assertEquals(new PositionStatsDto.MoveStats(6, 8000, 8000, 0, 0), analytics.stats(OPENING, Pit.Part.SOUTH).getMoves().get(0));
+    }
+
+    @Test
+    public void shouldLoadCountersWrittenBySnapshot() {
+        analytics.moved(1L, moveOf(opening, 2), Pit.Part.SOUTH);
+        analytics.finished(1L, Pit.Part.SOUTH, false);
+        analytics.flush();
+        assertTrue(Files.exists(directory.resolve("positions.bin")));
+
+        final PositionAnalytics restarted = new PositionAnalytics(properties);
+        assertEquals(new PositionStatsDto.MoveStats(2, 1, 1, 0, 0), restarted.stats(OPENING, Pit.Part.SOUTH).getMoves().get(0));
+    }
+
+    @Test
+    public void shouldStopTrackingOutcomesOfAbandonedGames() {
+        properties.setTrailTtlMillis(0);
+        analytics.moved(1L, moveOf(opening, 1), Pit.Part.SOUTH);
+        analytics.flush();
+        analytics.finished(1L, Pit.Part.SOUTH, false);
+        assertEquals(new PositionStatsDto.MoveStats(1, 1, 0, 0, 0), analytics.stats(OPENING, Pit.Part.SOUTH).getMoves().get(0));
+    }
+
+    @Test
+    public void shouldLimitTrackedGames() {
+        properties.setMaxTrackedGames(1);
+        analytics.moved(1L, moveOf(opening, 1), Pit.Part.SOUTH);
+        analytics.moved(2L, moveOf(opening, 1), Pit.Part.SOUTH);
+        analytics.finished(1L, Pit.Part.SOUTH, false);
+        analytics.finished(2L, Pit.Part.SOUTH, false);
+        assertEquals(new PositionStatsDto.MoveStats(1, 2, 1, 0, 0), analytics.stats(OPENING, Pit.Part.SOUTH).getMoves().get(0));
+    }
+
+    @Test
+    public void shouldDoNothingWhenDisabled() {
+        properties.setEnabled(false);
+        final PositionAnalytics disabled = new PositionAnalytics(properties);
+        disabled.moved(1L, 1L, Pit.Part.SOUTH);
+        disabled.flush();
+        assertTrue(disabled.stats(OPENING, Pit.Part.SOUTH).getMoves().isEmpty());
+        assertFalse(Files.exists(directory.resolve("positions.bin")));
+    }
+
+    @Test
+    public void shouldShareCountersOfMirroredPositions() {
+        final int[] board = {0, 7, 7, 7, 7, 7, 1, 6, 6, 6, 6, 6, 6, 0};
+        final int[] mirrored = {6, 6, 6, 6, 6, 6, 0, 0, 7, 7, 7, 7, 7, 1};
+        analytics.moved(1L, moveOf(game(board, Pit.Part.NORTH), 9), Pit.Part.NORTH);
+        analytics.finished(1L, Pit.Part.NORTH, false);
+        analytics.moved(2L, moveOf(game(mirrored, Pit.Part.SOUTH), 2), Pit.Part.SOUTH);
+
+        final PositionStatsDto stats = analytics.stats(board, Pit.Part.NORTH);
+        assertEquals(new PositionStatsDto.MoveStats(9, 2, 1, 0, 0), stats.getMoves().get(0));
+        final PositionStatsDto mirroredStats = analytics.stats(mirrored, Pit.Part.SOUTH);
+        assertEquals(new PositionStatsDto.MoveStats(2, 2, 1, 0, 0), mirroredStats.getMoves().get(0));
+        assertEquals(stats.getPosition(), mirroredStats.getPosition());
+    }
+
+    @Test
+    public void shouldRejectIncompletePosition() {
+        final IllegalPositionException exception = assertThrows(IllegalPositionException.class,
+                () -> analytics.stats(new int[]{6, 6}, Pit.Part.SOUTH));
+        assertEquals("A position needs [14] non-negative pit weights and the side to move.", exception.getMessage());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void shouldAddFewHundredNanosecondsPerMove() {
+        final Game game = game(OPENING, Pit.Part.SOUTH);
+        final int moves = 5_000_000;
+        for (int round = 0; round < 2; round++) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < moves; i++) {
+                final long gameId = i / 40;
+                game.getPits().get(i % 6).setWeight(i & 7);
+                game.setPositionHash(0);
+                analytics.moved(gameId, moveOf(game, i % 6 + 1), Pit.Part.SOUTH);
+                if (i % 40 == 39) {
+                    analytics.finished(gameId, Pit.Part.NORTH, false);
+                }
+            }
+            System.out.printf("Position analytics: %.0f ns per move%n", (System.nanoTime() - start) / (double) moves);
+        }
+    }
+
+    private long moveOf(Game game, Integer pitIndex) {
+        return PositionAnalytics.keyOf(ZobristHash.of(game), game.getMirroredPositionHash(), pitIndex);
+    }
+
+    private Game game(int[] weights, Pit.Part turn) {
+        final Game game = new Game();
+        game.setTurn(turn);
+        for (int i = 0; i < weights.length; i++) {
+            final boolean kalah = i == 6 || i == 13;
+            game.getPits().add(new Pit(game, i + 1, kalah, i < 7 ? Pit.Part.SOUTH : Pit.Part.NORTH, weights[i]));
+        }
+        return game;
+    }
+}
@@ -0,0 +1,45 @@
+package com.korniienko.kalah.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static com.korniienko.kalah.service.analytics.PositionCounters.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionCountersTest {
+
+    @Test
+    public void shouldKeepEveryLoadedKeyUpToTheCapacity() {
+        final PositionCounters counters = new PositionCounters(1 << 17);
+        final long[] counts = new long[STRIDE];
+        for (long key = 1; key <= 100_000; key++) {
+            counts[PLAYED] = key;
+            counts[WON] = 1;
+            counters.load(key * 0x9E3779B97F4A7C15L, counts);
+        }
+        for (long key = 1; key <= 100_000; key++) {
+            final long[] loaded = counters.get(key * 0x9E3779B97F4A7C15L);
+            assertEquals(key, loaded[PLAYED]);
+            assertEquals(1, loaded[WON]);
+        }
+    }
+
+    @Test
+    public void shouldEvictTheLeastPlayedKeyWhenTheTableIsFull() {
+        final PositionCounters counters = new PositionCounters(16);
+        for (int i = 0; i < 5; i++) {
+            counters.increment(1, PLAYED);
+        }
+        for (long key = 2; key <= 40; key++) {
+            counters.increment(key, PLAYED);
+        }
+        counters.increment(41, PLAYED);
+        counters.increment(41, WON);
+
+        assertEquals(5, counters.get(1)[PLAYED]);
+        assertEquals(1, counters.get(41)[PLAYED]);
+        assertEquals(1, counters.get(41)[WON]);
+        final int[] keys = new int[1];
+        assertDoesNotThrow(() -> counters.forEach((key, counts) -> keys[0]++));
+        assertEquals(16, keys[0]);
+    }
+}
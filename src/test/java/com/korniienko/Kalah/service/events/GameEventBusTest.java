@@ -0,0 +1,274 @@
+package com.korniienko.kalah.service.events;
+
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameCreatedEvent;
+import com.korniienko.kalah.service.GameFinishedEvent;
+import com.korniienko.kalah.service.MoveAppliedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameEventBusTest {
+
+    private EventBusProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private GameEventBus bus;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new EventBusProperties();
+        properties.setIdleWaitMicros(10);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (bus != null) {
+            bus.destroy();
+        }
+    }
+
+    @Test
+    public void shouldDeliverEveryEventToEveryConsumerInPublishingOrder() throws Exception {
+        final Recorder first = new Recorder("first");
+        final Recorder second = new Recorder("second");
+        start(first, second);
+        final ExecutorService publishers = Executors.newFixedThreadPool(4);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (long publisher = 0; publisher < 4; publisher++) {
+            final long firstGame = publisher * 10_000;
+            futures.add(publishers.submit(() -> {
+                for (long gameId = firstGame; gameId < firstGame + 10_000; gameId++) {
+                    bus.publish(new GameCreatedEvent(gameId, null, null));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        publishers.shutdown();
+        awaitLag("first", 0);
+        awaitLag("second", 0);
+        assertEquals(40_000, first.events.size());
+        assertEquals(first.events, second.events);
+        final Map<Long, Long> lastByPublisher = new HashMap<>();
+        for (GameEvent event : first.events) {
+            final Long previous = lastByPublisher.put(event.getGameId() / 10_000, event.getGameId());
+            assertTrue(previous == null || previous < event.getGameId());
+        }
+        assertEquals(0, meterRegistry.counter("kalah.events.dropped").count());
+    }
+
+    @Test
+    public void shouldDeliverNextEventsAfterConsumerFailure() throws Exception {
+        final Recorder recorder = new Recorder("failing") {
+            @Override
+            public void onEvent(GameEvent event) {
+                if (event.getGameId() == 1L) {
+                    throw new IllegalStateException("Cannot handle the event.");
+                }
+                super.onEvent(event);
+            }
+        };
+        start(recorder);
+        bus.publish(new GameCreatedEvent(1L, null, null));
+        bus.publish(new GameCreatedEvent(2L, null, null));
+        awaitLag("failing", 0);
+        assertEquals(Collections.singletonList(new GameCreatedEvent(2L, null, null)), recorder.events);
+        assertEquals(1, meterRegistry.counter("kalah.events.failed", "consumer", "failing").count());
+    }
+
+    @Test
+    public void shouldDropEventsWhenSlowestConsumerIsBufferBehind() throws Exception {
+        properties.setBufferSize(4);
+        properties.setOverflow(EventBusProperties.Overflow.DROP);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Recorder blocked = new Recorder("blocked", release);
+        final Recorder fast = new Recorder("fast");
+        start(blocked, fast);
+        for (long gameId = 1; gameId <= 10; gameId++) {
+            bus.publish(new GameCreatedEvent(gameId, null, null));
+        }
+        assertEquals(6, meterRegistry.counter("kalah.events.dropped").count());
+        awaitLag("fast", 0);
+        assertEquals(4, meterRegistry.get("kalah.events.lag").tag("consumer", "blocked").gauge().value());
+        release.countDown();
+        awaitLag("blocked", 0);
+        assertEquals(4, blocked.events.size());
+        assertEquals(4, fast.events.size());
+
+        bus.publish(new GameCreatedEvent(11L, null, null));
+        awaitLag("blocked", 0);
+        assertEquals(11L, blocked.events.get(4).getGameId());
+    }
+
+    @Test
+    public void shouldWaitForSlowConsumerWhenBlocking() throws Exception {
+        properties.setBufferSize(2);
+        properties.setOverflow(EventBusProperties.Overflow.BLOCK);
+        properties.setBlockTimeoutMillis(10_000);
+        final Recorder slow = new Recorder("slow") {
+            @Override
+            public void onEvent(GameEvent event) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                super.onEvent(event);
+            }
+        };
+        start(slow);
+        for (long gameId = 1; gameId <= 50; gameId++) {
+            bus.publish(new GameCreatedEvent(gameId, null, null));
+        }
+        awaitLag("slow", 0);
+        assertEquals(50, slow.events.size());
+        assertEquals(0, meterRegistry.counter("kalah.events.dropped").count());
+    }
+
+    @Test
+    public void shouldDropEventWhenBlockingTimesOut() throws Exception {
+        properties.setBufferSize(1);
+        properties.setOverflow(EventBusProperties.Overflow.BLOCK);
+        properties.setBlockTimeoutMillis(10);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Recorder blocked = new Recorder("blocked", release);
+        start(blocked);
+        bus.publish(new GameCreatedEvent(1L, null, null));
+        final long start = System.nanoTime();
+        bus.publish(new GameCreatedEvent(2L, null, null));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(1, meterRegistry.counter("kalah.events.dropped").count());
+        release.countDown();
+        awaitLag("blocked", 0);
+        assertEquals(1, blocked.events.size());
+    }
+
+    @Test
+    public void shouldNeverDropGameFinishedEvent() throws Exception {
+        properties.setBufferSize(1);
+        properties.setOverflow(EventBusProperties.Overflow.DROP);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Recorder blocked = new Recorder("blocked", release);
+        start(blocked);
+        bus.publish(new GameCreatedEvent(1L, null, null));
+        bus.publish(new GameCreatedEvent(2L, null, null));
+        final GameFinishedEvent finished = new GameFinishedEvent(1L, Pit.Part.SOUTH, false, 1L, 2L, true);
+        final Thread publisher = new Thread(() -> bus.publish(finished));
+        publisher.start();
+        publisher.join(100);
+        assertTrue(publisher.isAlive());
+        release.countDown();
+        publisher.join(10_000);
+        assertFalse(publisher.isAlive());
+        awaitLag("blocked", 0);
+        assertEquals(Arrays.asList(new GameCreatedEvent(1L, null, null), finished), blocked.events);
+        assertEquals(1, meterRegistry.counter("kalah.events.dropped").count());
+    }
+
+    @Test
+    public void shouldKeepEventsPublishedBeforeConsumersAreStarted() throws Exception {
+        bus = new GameEventBus(properties, null, meterRegistry);
+        bus.publish(new GameCreatedEvent(1L, null, null));
+        bus.publish(new MoveAppliedEvent(1L, 3, Pit.Part.SOUTH, 1L, 5L, 6L));
+        final Recorder late = new Recorder("late");
+        bus.start(Collections.singletonList(late));
+        awaitLag("late", 0);
+        assertEquals(2, late.events.size());
+    }
+
+    @Test
+    public void shouldDeliverOnPublishingThreadWhenDisabled() {
+        properties.setEnabled(false);
+        final Recorder recorder = new Recorder("direct");
+        start(recorder);
+        final GameFinishedEvent event = new GameFinishedEvent(1L, null, true, null, null, false);
+        bus.publish(event);
+        assertEquals(Collections.singletonList(event), recorder.events);
+        assertEquals(Thread.currentThread(), recorder.thread);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void shouldPublishWithoutWaitingForConsumers() throws Exception {
+        final Recorder[] consumers = {new Recorder("metrics", true), new Recorder("ratings", true), new Recorder("analytics", true)};
+        start(consumers);
+        final int events = 10_000_000;
+        final GameEvent event = new GameCreatedEvent(1L, null, null);
+        for (int round = 0; round < 3; round++) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                bus.publish(event);
+            }
+            final double nanos = (System.nanoTime() - start) / (double) events;
+            awaitLag("metrics", 0);
+            awaitLag("ratings", 0);
+            awaitLag("analytics", 0);
+            System.out.printf("Event bus: %.0f ns per publish, %.0f dropped%n", nanos, meterRegistry.counter("kalah.events.dropped").count());
+        }
+    }
+
+    private void start(Recorder... consumers) {
+        bus = new GameEventBus(properties, null, meterRegistry);
+        bus.start(Arrays.asList(consumers));
+    }
+
+    private void awaitLag(String consumerName, long lag) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (bus.lag(consumerName) != lag) {
+            assertTrue(System.nanoTime() < deadline, "Consumer " + consumerName + " is " + bus.lag(consumerName) + " events behind.");
+            Thread.sleep(1);
+        }
+    }
+
+    private static class Recorder implements GameEventConsumer {
+        private final String name;
+        private final CountDownLatch release;
+        private final boolean discard;
+        final List<GameEvent> events = new CopyOnWriteArrayList<>();
+        volatile Thread thread;
+
+        Recorder(String name) {
+            this(name, null, false);
+        }
+
+        Recorder(String name, CountDownLatch release) {
+            this(name, release, false);
+        }
+
+        Recorder(String name, boolean discard) {
+            this(name, null, discard);
+        }
+
+        private Recorder(String name, CountDownLatch release, boolean discard) {
+            this.name = name;
+            this.release = release;
+            this.discard = discard;
+        }
+
+        @Override
+        public void onEvent(GameEvent event) {
+            thread = Thread.currentThread();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (!discard) {
+                events.add(event);
+            }
+        }
+
+        @Override
+        public String consumerName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.korniienko.kalah.service.export;
+
+import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.dao.JpaGameStore;
+import com.korniienko.kalah.dao.journal.NoOpMoveJournal;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.ArchiveProperties;
+import com.korniienko.kalah.service.GameArchiver;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.LegalMoveGenerator;
+import com.korniienko.kalah.service.LegalMovesProperties;
+import com.korniienko.kalah.service.events.GameEventPublisher;
+import com.korniienko.kalah.service.outbox.EventOutbox;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "kalah.export.chunk-size=2")
+@Import({GameService.class, JpaGameStore.class, NoOpMoveJournal.class, GameArchiver.class, ArchiveProperties.class,
+        LegalMoveGenerator.class, LegalMovesProperties.class, GameExportService.class, ExportProperties.class})
+public class GameExportServiceTest {
+
+    private static final String REQUEST_URL = "http://localhost:8080/games";
+
+    @MockBean
+    private GameEventPublisher gameEventPublisher;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @MockBean
+    private EventOutbox eventOutbox;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameArchiver gameArchiver;
+
+    @Autowired
+    private GameExportService gameExportService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    public void shouldExportLiveAndArchivedGamesInChunks() throws IOException {
+        final Long firstLiveId = gameService.newGame(REQUEST_URL, 11L, 12L).getId();
+        final Long secondLiveId = gameService.newGame(REQUEST_URL).getId();
+        final Long thirdLiveId = gameService.newGame(REQUEST_URL).getId();
+        final Long archivedId = finishedGame(Pit.Part.NORTH);
+        final Long drawId = finishedGame(null);
+        gameArchiver.archiveFinishedGames();
+        entityManager.flush();
+        entityManager.clear();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(5, gameExportService.export(out, true));
+        final List<ExportedGame> games = read(out.toByteArray());
+
+        assertEquals(5, games.size());
+        final ExportedGame firstLive = games.get(0);
+        assertEquals(firstLiveId.longValue(), firstLive.getId());
+        assertEquals(11L, firstLive.getSouthPlayerId());
+        assertEquals(12L, firstLive.getNorthPlayerId());
+        assertFalse(firstLive.isGameOver());
+        assertFalse(firstLive.isArchived());
+        assertArrayEquals(new byte[]{6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0}, firstLive.getBoard());
+        assertEquals(secondLiveId.longValue(), games.get(1).getId());
+        assertNull(games.get(1).getSouthPlayerId());
+        assertEquals(thirdLiveId.longValue(), games.get(2).getId());
+        final ExportedGame archived = games.get(3);
+        assertEquals(archivedId.longValue(), archived.getId());
+        assertTrue(archived.isArchived());
+        assertTrue(archived.isGameOver());
+        assertEquals(Pit.Part.NORTH, archived.getWinner());
+        assertEquals(36, archived.getBoard()[6]);
+        assertEquals(drawId.longValue(), games.get(4).getId());
+        assertTrue(games.get(4).isDraw());
+    }
+
+    @Test
+    public void shouldExportNothingWithoutGames() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, gameExportService.export(out, false));
+        assertTrue(read(out.toByteArray()).isEmpty());
+    }
+
+    private Long finishedGame(Pit.Part winner) {
+        final Long gameId = gameService.newGame(REQUEST_URL).getId();
+        final Game game = gameRepository.findById(gameId).get();
+        game.getPits().forEach(pit -> pit.setWeight(pit.isKalah() ? 36 : 0));
+        game.setGameOver(true);
+        game.setWinner(winner);
+        game.setDraw(winner == null);
+        gameRepository.saveAndFlush(game);
+        return gameId;
+    }
+
+    private List<ExportedGame> read(byte[] file) throws IOException {
+        final List<ExportedGame> games = new ArrayList<>();
+        try (GameExportReader reader = new GameExportReader(new ByteArrayInputStream(file))) {
+            ExportedGame game;
+            while ((game = reader.read()) != null) {
+                games.add(game);
+            }
+        }
+        return games;
+    }
+}
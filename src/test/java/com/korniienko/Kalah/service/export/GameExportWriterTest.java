@@ -0,0 +1,94 @@
+package com.korniienko.kalah.service.export;
+
+import com.korniienko.kalah.model.Pit;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameExportWriterTest {
+
+    @Test
+    public void shouldReadBackGamesWrittenInSeveralBlocks() throws IOException {
+        final List<ExportedGame> games = games(10);
+        final byte[] file = write(games, false, 4);
+        assertEquals(games, read(file));
+        assertEquals(7 + 3 * 4 + 10 * (8 + 14 + 1 + 8 + 8) + 4, file.length);
+    }
+
+    @Test
+    public void shouldReadBackCompressedGames() throws IOException {
+        final List<ExportedGame> games = games(1000);
+        final byte[] compressed = write(games, true, 256);
+        assertEquals(games, read(compressed));
+        assertTrue(compressed.length < write(games, false, 256).length / 2);
+    }
+
+    @Test
+    public void shouldWriteEmptyExport() throws IOException {
+        assertTrue(read(write(new ArrayList<>(), true, 16)).isEmpty());
+    }
+
+    @Test
+    public void shouldRejectFileWithUnknownMagic() {
+        final IOException exception = assertThrows(IOException.class,
+                () -> new GameExportReader(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 0, 1, 0})));
+        assertEquals("Not a game export file.", exception.getMessage());
+    }
+
+    @Test
+    public void shouldNotCloseTargetStream() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                throw new IllegalStateException("closed");
+            }
+        };
+        final GameExportWriter writer = new GameExportWriter(out, true, 16);
+        writer.write(games(1).get(0));
+        writer.close();
+        assertEquals(1, writer.getWritten());
+    }
+
+    private List<ExportedGame> games(int count) {
+        final List<ExportedGame> games = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            final byte[] board = new byte[14];
+            for (int pit = 0; pit < board.length; pit++) {
+                board[pit] = (byte) ((i + pit) % 7);
+            }
+            final boolean finished = i % 3 == 0;
+            final Pit.Part winner = finished && i % 2 == 0 ? Pit.Part.NORTH : finished ? Pit.Part.SOUTH : null;
+            games.add(new ExportedGame(i, board, winner, i % 9 == 0, finished, i % 5 == 0,
+                    i % 4 == 0 ? null : (long) i * 2, i % 4 == 0 ? null : (long) i * 2 + 1));
+        }
+        return games;
+    }
+
+    private byte[] write(List<ExportedGame> games, boolean compressed, int blockSize) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final GameExportWriter writer = new GameExportWriter(out, compressed, blockSize);
+        for (ExportedGame game : games) {
+            writer.write(game);
+        }
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private List<ExportedGame> read(byte[] file) throws IOException {
+        final List<ExportedGame> games = new ArrayList<>();
+        try (GameExportReader reader = new GameExportReader(new ByteArrayInputStream(file))) {
+            ExportedGame game;
+            while ((game = reader.read()) != null) {
+                games.add(game);
+            }
+            assertNull(reader.read());
+        }
+        return games;
+    }
+}
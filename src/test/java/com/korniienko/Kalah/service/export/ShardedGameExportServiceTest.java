@@ -0,0 +1,56 @@
+package com.korniienko.kalah.service.export;
+
+import com.korniienko.kalah.dao.ArchivedGameRepository;
+import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.service.GameService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "kalah.sharding.shard-count=3")
+@ActiveProfiles("sharding")
+public class ShardedGameExportServiceTest {
+
+    private static final String REQUEST_URL = "http://localhost:8080/games";
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private ArchivedGameRepository archivedGameRepository;
+
+    @Test
+    public void shouldExportEveryGameOfEveryShardOnce() throws IOException {
+        final List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            created.add(gameService.newGame(REQUEST_URL).getId());
+        }
+
+        final ExportProperties exportProperties = new ExportProperties();
+        exportProperties.setChunkSize(4);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GameExportService(gameRepository, archivedGameRepository, exportProperties).export(out, false);
+        final List<Long> exported = new ArrayList<>();
+        try (GameExportReader reader = new GameExportReader(new ByteArrayInputStream(out.toByteArray()))) {
+            ExportedGame game;
+            while ((game = reader.read()) != null) {
+                exported.add(game.getId());
+            }
+        }
+
+        assertTrue(exported.containsAll(created));
+        assertEquals(exported.stream().distinct().count(), exported.size());
+    }
+}
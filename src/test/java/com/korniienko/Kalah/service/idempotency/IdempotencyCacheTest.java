@@ -0,0 +1,164 @@
+package com.korniienko.kalah.service.idempotency;
+
+import com.korniienko.kalah.exceptions.GameBusyException;
+import com.korniienko.kalah.exceptions.IdempotencyKeyException;
+import com.korniienko.kalah.service.mailbox.GameMailboxes;
+import com.korniienko.kalah.service.mailbox.MailboxProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyCacheTest {
+
+    private IdempotencyProperties properties;
+    private IdempotencyCache idempotencyCache;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new IdempotencyProperties();
+        idempotencyCache = new IdempotencyCache(properties);
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    public void shouldReplayResponseOfTheFirstRequest() {
+        assertEquals(1, idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet));
+        assertEquals(1, idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void shouldExecuteRequestsWithoutKeyOrWithKeyOfAnotherGame() {
+        idempotencyCache.execute(1L, null, "move 1", executions::incrementAndGet);
+        idempotencyCache.execute(1L, null, "move 1", executions::incrementAndGet);
+        idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet);
+        idempotencyCache.execute(2L, "key", "move 1", executions::incrementAndGet);
+        assertEquals(4, executions.get());
+    }
+
+    @Test
+    public void shouldRejectKeyReusedForAnotherRequest() {
+        idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet);
+        assertThrows(IdempotencyKeyException.class, () -> idempotencyCache.execute(1L, "key", "move 2", executions::incrementAndGet));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void shouldRejectTooLongKey() {
+        properties.setMaxKeyLength(4);
+        assertThrows(IdempotencyKeyException.class, () -> idempotencyCache.execute(1L, "12345", "move 1", executions::incrementAndGet));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    public void shouldExecuteRetryOfFailedRequest() {
+        assertThrows(GameBusyException.class, () -> idempotencyCache.execute(1L, "key", "move 1", () -> {
+            throw new GameBusyException("busy");
+        }));
+        assertEquals(1, idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet));
+    }
+
+    @Test
+    public void shouldReplayFailureWhenTheMoveMayBeApplied() {
+        final IllegalStateException failure = assertThrows(IllegalStateException.class, () -> idempotencyCache.execute(1L, "key", "move 1", () -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("Connection reset after commit.");
+        }));
+        assertSame(failure, assertThrows(IllegalStateException.class,
+                () -> idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet)));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void shouldReplayMoveWhichCommittedAfterMailboxTimeout() throws Exception {
+        final MailboxProperties mailboxProperties = new MailboxProperties();
+        mailboxProperties.setEnabled(true);
+        mailboxProperties.setStripes(1);
+        mailboxProperties.setTimeoutMillis(10);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final GameMailboxes gameMailboxes = new GameMailboxes(mailboxProperties, meterRegistry);
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> idempotencyCache.execute(1L, "key", "move 1",
+                    () -> gameMailboxes.execute(1L, () -> {
+                        started.countDown();
+                        sleep(200);
+                        return executions.incrementAndGet();
+                    })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            final CompletableFuture<Integer> retry = CompletableFuture.supplyAsync(() -> idempotencyCache.execute(1L, "key", "move 1",
+                    () -> gameMailboxes.execute(1L, executions::incrementAndGet)));
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, retry.get(5, TimeUnit.SECONDS));
+            assertEquals(1, meterRegistry.counter("kalah.mailbox.timeouts").count());
+            assertEquals(1, idempotencyCache.execute(1L, "key", "move 1", () -> gameMailboxes.execute(1L, executions::incrementAndGet)));
+            assertEquals(1, executions.get());
+        } finally {
+            gameMailboxes.destroy();
+        }
+    }
+
+    @Test
+    public void shouldExecuteAgainAfterKeyExpired() throws InterruptedException {
+        properties.setTtlMillis(1);
+        idempotencyCache = new IdempotencyCache(properties);
+        idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet);
+        Thread.sleep(5);
+        assertEquals(2, idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet));
+    }
+
+    @Test
+    public void shouldEvictOldestKeysOverMaxKeys() {
+        properties.setMaxKeys(2);
+        for (int i = 0; i < 5; i++) {
+            idempotencyCache.execute(1L, "key-" + i, "move 1", executions::incrementAndGet);
+        }
+        assertEquals(2, idempotencyCache.size());
+        assertEquals(5, idempotencyCache.execute(1L, "key-4", "move 1", executions::incrementAndGet));
+        assertEquals(6, idempotencyCache.execute(1L, "key-0", "move 1", executions::incrementAndGet));
+    }
+
+    @Test
+    public void shouldMakeConcurrentRequestWaitForTheFirstOne() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> idempotencyCache.execute(1L, "key", "move 1", () -> {
+            started.countDown();
+            await(release);
+            return executions.incrementAndGet();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<Integer> hedged = CompletableFuture.supplyAsync(() ->
+                idempotencyCache.execute(1L, "key", "move 1", executions::incrementAndGet));
+        Thread.sleep(50);
+        assertFalse(hedged.isDone());
+        release.countDown();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, hedged.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
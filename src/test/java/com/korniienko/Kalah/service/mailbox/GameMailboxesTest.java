@@ -0,0 +1,151 @@
+package com.korniienko.kalah.service.mailbox;
+
+import com.korniienko.kalah.exceptions.GameBusyException;
+import com.korniienko.kalah.exceptions.IllegalMoveException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameMailboxesTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private GameMailboxes gameMailboxes;
+
+    @AfterEach
+    public void tearDown() {
+        gameMailboxes.destroy();
+    }
+
+    @Test
+    public void shouldRunCommandsOnCallingThreadWhenDisabled() {
+        gameMailboxes = new GameMailboxes(properties(false, 4, 16), meterRegistry);
+        final Thread caller = Thread.currentThread();
+        assertSame(caller, gameMailboxes.execute(1L, Thread::currentThread));
+    }
+
+    @Test
+    public void shouldSerializeCommandsOfOneGame() throws Exception {
+        gameMailboxes = new GameMailboxes(properties(true, 4, 10_000), meterRegistry);
+        final int[] moves = new int[1];
+        final ExecutorService callers = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(callers.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    gameMailboxes.execute(42L, () -> moves[0]++);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+        assertEquals(8000, gameMailboxes.execute(42L, () -> moves[0]));
+    }
+
+    @Test
+    public void shouldRejectCommandsWhenMailboxIsFull() throws Exception {
+        gameMailboxes = new GameMailboxes(properties(true, 1, 1), meterRegistry);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        final Future<?> running = callers.submit(() -> gameMailboxes.execute(1L, () -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final Future<?> queued = callers.submit(() -> gameMailboxes.execute(2L, () -> null));
+        while (gameMailboxes.queued() == 0) {
+            Thread.yield();
+        }
+
+        assertThrows(GameBusyException.class, () -> gameMailboxes.execute(3L, () -> null));
+        assertEquals(1, meterRegistry.counter("kalah.mailbox.rejected").count());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        callers.shutdown();
+    }
+
+    @Test
+    public void shouldNeverRunQueuedCommandWhichTimedOut() throws Exception {
+        final MailboxProperties properties = properties(true, 1, 16);
+        properties.setTimeoutMillis(50);
+        gameMailboxes = new GameMailboxes(properties, meterRegistry);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newSingleThreadExecutor();
+        final Future<?> running = callers.submit(() -> gameMailboxes.execute(1L, () -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final int[] moves = new int[1];
+        assertThrows(GameBusyException.class, () -> gameMailboxes.execute(2L, () -> moves[0]++));
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals(0, (int) gameMailboxes.execute(2L, () -> moves[0]));
+        assertTrue(meterRegistry.counter("kalah.mailbox.timeouts").count() >= 1);
+        callers.shutdown();
+    }
+
+    @Test
+    public void shouldWaitForStartedCommandAfterTimeout() {
+        final MailboxProperties properties = properties(true, 1, 16);
+        properties.setTimeoutMillis(10);
+        gameMailboxes = new GameMailboxes(properties, meterRegistry);
+        assertEquals("applied", gameMailboxes.execute(1L, () -> {
+            sleep(100);
+            return "applied";
+        }));
+        assertEquals(1, meterRegistry.counter("kalah.mailbox.timeouts").count());
+    }
+
+    @Test
+    public void shouldPropagateCommandExceptions() {
+        gameMailboxes = new GameMailboxes(properties(true, 2, 16), meterRegistry);
+        final IllegalMoveException exception = assertThrows(IllegalMoveException.class,
+                () -> gameMailboxes.execute(1L, () -> {
+                    throw new IllegalMoveException("Wrong turn [SOUTH], the current turn is [NORTH].");
+                }));
+        assertEquals("Wrong turn [SOUTH], the current turn is [NORTH].", exception.getMessage());
+    }
+
+    private static MailboxProperties properties(boolean enabled, int stripes, int queueCapacity) {
+        final MailboxProperties properties = new MailboxProperties();
+        properties.setEnabled(enabled);
+        properties.setStripes(stripes);
+        properties.setQueueCapacity(queueCapacity);
+        return properties;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.korniienko.kalah.service.matchmaking;
+
+import com.korniienko.kalah.dao.journal.NoOpMoveJournal;
+import com.korniienko.kalah.dao.memory.InMemoryGameStore;
+import com.korniienko.kalah.dto.MatchmakingDto;
+import com.korniienko.kalah.exceptions.GameBusyException;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameArchiver;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.LegalMoveGenerator;
+import com.korniienko.kalah.service.LegalMovesProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+
+public class MatchmakingServiceTest {
+
+    private static final String GAMES_URL = "http://localhost:8080/games";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Long, Integer> ratings = new ConcurrentHashMap<>();
+    private InMemoryGameStore gameStore;
+    private MatchmakingProperties properties;
+    private MatchmakingService matchmakingService;
+
+    @BeforeEach
+    public void setUp() {
+        gameStore = new InMemoryGameStore();
+        properties = new MatchmakingProperties();
+        matchmakingService = matchmakingService(new GameService(gameStore, Mockito.mock(GameArchiver.class), new NoOpMoveJournal(), event -> { },
+                new LegalMoveGenerator(new LegalMovesProperties())));
+    }
+
+    @Test
+    public void shouldPairPlayersWithCloseRatingsIntoOneGame() {
+        ratings.put(1L, 1500);
+        ratings.put(2L, 1540);
+        assertEquals("WAITING", matchmakingService.join(1L, GAMES_URL).getStatus());
+        final MatchmakingDto second = matchmakingService.join(2L, GAMES_URL);
+        final MatchmakingDto first = matchmakingService.status(1L);
+        assertEquals("MATCHED", second.getStatus());
+        assertEquals("MATCHED", first.getStatus());
+        assertEquals(first.getGame(), second.getGame());
+        assertNotEquals(first.getSide(), second.getSide());
+        final Game game = gameStore.findById(first.getGame().getId()).get();
+        assertEquals(first.getSide() == Pit.Part.SOUTH ? 1L : 2L, game.getSouthPlayerId());
+        assertEquals(first.getSide() == Pit.Part.NORTH ? 1L : 2L, game.getNorthPlayerId());
+    }
+
+    @Test
+    public void shouldWidenTheRangeWithWaitingTime() {
+        ratings.put(1L, 1500);
+        ratings.put(2L, 1800);
+        matchmakingService.join(1L, GAMES_URL);
+        matchmakingService.join(2L, GAMES_URL);
+        matchmakingService.widenAndPair();
+        assertEquals("WAITING", matchmakingService.status(1L).getStatus());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(4 * properties.getWidenIntervalMillis()));
+        matchmakingService.widenAndPair();
+        assertEquals("WAITING", matchmakingService.status(2L).getStatus());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getWidenIntervalMillis()));
+        matchmakingService.widenAndPair();
+        assertEquals("MATCHED", matchmakingService.status(1L).getStatus());
+        assertEquals(matchmakingService.status(1L).getGame(), matchmakingService.status(2L).getGame());
+        assertEquals(5000L, matchmakingService.status(2L).getWaitedMillis());
+    }
+
+    @Test
+    public void shouldKeepOneTicketPerPlayer() {
+        ratings.put(1L, 1500);
+        matchmakingService.join(1L, GAMES_URL);
+        assertEquals("WAITING", matchmakingService.join(1L, GAMES_URL).getStatus());
+        matchmakingService.widenAndPair();
+        assertEquals("WAITING", matchmakingService.status(1L).getStatus());
+        assertEquals(1, matchmakingService.waiting());
+    }
+
+    @Test
+    public void shouldNotPairPlayersWhoLeft() {
+        ratings.put(1L, 1500);
+        ratings.put(2L, 1500);
+        matchmakingService.join(1L, GAMES_URL);
+        assertEquals("IDLE", matchmakingService.leave(1L).getStatus());
+        assertEquals("WAITING", matchmakingService.join(2L, GAMES_URL).getStatus());
+        assertEquals("IDLE", matchmakingService.status(1L).getStatus());
+    }
+
+    @Test
+    public void shouldQueueTheOpponentAgainWhenTheGameCannotBeCreated() {
+        final GameService gameService = Mockito.mock(GameService.class);
+        Mockito.when(gameService.newGame(anyString(), anyLong(), anyLong())).thenThrow(new GameBusyException("The store is full."));
+        final MatchmakingService failing = matchmakingService(gameService);
+        ratings.put(1L, 1500);
+        ratings.put(2L, 1500);
+        failing.join(1L, GAMES_URL);
+        assertThrows(GameBusyException.class, () -> failing.join(2L, GAMES_URL));
+        assertEquals("WAITING", failing.status(1L).getStatus());
+        assertEquals("IDLE", failing.status(2L).getStatus());
+        assertEquals(1, failing.waiting());
+    }
+
+    @Test
+    public void shouldForgetMatchedTicketsAfterTtl() {
+        ratings.put(1L, 1500);
+        ratings.put(2L, 1500);
+        matchmakingService.join(1L, GAMES_URL);
+        matchmakingService.join(2L, GAMES_URL);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getMatchedTtlMillis() + 1));
+        matchmakingService.widenAndPair();
+        assertEquals("IDLE", matchmakingService.status(1L).getStatus());
+        assertEquals("WAITING", matchmakingService.join(1L, GAMES_URL).getStatus());
+    }
+
+    @Test
+    public void shouldPairEveryPlayerExactlyOnceUnderConcurrentJoins() throws Exception {
+        final int players = 20000;
+        final Random random = new Random(7);
+        for (long userId = 1; userId <= players; userId++) {
+            ratings.put(userId, 1000 + random.nextInt(1000));
+        }
+        properties.setMaxRangeBuckets(Integer.MAX_VALUE);
+        joinConcurrently(players, 8);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        matchmakingService.widenAndPair();
+        final Map<Long, Set<Long>> playersByGame = new HashMap<>();
+        for (long userId = 1; userId <= players; userId++) {
+            final MatchmakingDto status = matchmakingService.status(userId);
+            assertEquals("MATCHED", status.getStatus());
+            playersByGame.computeIfAbsent(status.getGame().getId(), gameId -> new HashSet<>()).add(userId);
+        }
+        assertEquals(players / 2, playersByGame.size());
+        playersByGame.forEach((gameId, gamePlayers) -> {
+            final Game game = gameStore.findById(gameId).get();
+            assertEquals(gamePlayers, new HashSet<>(Arrays.asList(game.getSouthPlayerId(), game.getNorthPlayerId())));
+        });
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void shouldSustainManyJoinsPerSecond() throws Exception {
+        final int players = 1_000_000;
+        final Random random = new Random(7);
+        for (long userId = 1; userId <= players; userId++) {
+            ratings.put(userId, 1000 + random.nextInt(1000));
+        }
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final long start = System.nanoTime();
+        joinConcurrently(players, threads);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Matchmaking: %d joins on %d threads, %.0f joins/s, %d waiting%n",
+                players, threads, players / seconds, matchmakingService.waiting());
+        assertTrue(matchmakingService.waiting() < players);
+    }
+
+    private void joinConcurrently(int players, int threads) throws Exception {
+        final ExecutorService joiners = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            final long first = thread + 1;
+            futures.add(joiners.submit(() -> {
+                for (long userId = first; userId <= players; userId += threads) {
+                    matchmakingService.join(userId, GAMES_URL);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        joiners.shutdown();
+    }
+
+    private MatchmakingService matchmakingService(GameService gameService) {
+        return new MatchmakingService(gameService, ratings::get, properties, new SimpleMeterRegistry(), clock::get);
+    }
+}
@@ -0,0 +1,30 @@
+package com.korniienko.kalah.service.outbox;
+
+import com.korniienko.kalah.model.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local sink for tests, keeps every acknowledged batch. Fails the next batches while {@link #failures} is positive.
+ */
+public class InMemoryOutboxPublisher implements OutboxPublisher {
+
+    final List<List<OutboxEvent>> batches = new ArrayList<>();
+    int failures;
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        if (failures > 0) {
+            failures--;
+            throw new IllegalStateException("Broker is not available.");
+        }
+        batches.add(new ArrayList<>(events));
+    }
+
+    synchronized List<OutboxEvent> events() {
+        final List<OutboxEvent> events = new ArrayList<>();
+        batches.forEach(events::addAll);
+        return events;
+    }
+}
@@ -0,0 +1,156 @@
+package com.korniienko.kalah.service.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korniienko.kalah.dao.GameRepository;
+import com.korniienko.kalah.dao.JpaGameStore;
+import com.korniienko.kalah.dao.OutboxRepository;
+import com.korniienko.kalah.dao.journal.NoOpMoveJournal;
+import com.korniienko.kalah.dto.LegalMovesDto;
+import com.korniienko.kalah.model.Game;
+import com.korniienko.kalah.model.OutboxEvent;
+import com.korniienko.kalah.security.ratelimit.RateLimiter;
+import com.korniienko.kalah.service.ArchiveProperties;
+import com.korniienko.kalah.service.GameArchiver;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.LegalMoveGenerator;
+import com.korniienko.kalah.service.LegalMovesProperties;
+import com.korniienko.kalah.service.MoveAppliedEvent;
+import com.korniienko.kalah.service.events.GameEvent;
+import com.korniienko.kalah.service.events.GameEventPublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction, every store call commits like in production.
+ */
+@DataJpaTest(properties = {"kalah.outbox.batch-size=2", "kalah.outbox.interval-millis=3600000"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({GameService.class, JpaGameStore.class, NoOpMoveJournal.class, GameArchiver.class, ArchiveProperties.class,
+        LegalMoveGenerator.class, LegalMovesProperties.class, EventOutbox.class, OutboxProperties.class, OutboxRelay.class})
+public class OutboxRelayTest {
+
+    private static final String REQUEST_URL = "http://localhost:8080/games";
+
+    @TestConfiguration
+    static class Sink {
+        @Bean
+        InMemoryOutboxPublisher outboxPublisher() {
+            return new InMemoryOutboxPublisher();
+        }
+    }
+
+    @MockBean
+    private GameEventPublisher gameEventPublisher;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private JpaGameStore jpaGameStore;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private InMemoryOutboxPublisher outboxPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    public void tearDown() {
+        outboxPublisher.batches.clear();
+        outboxPublisher.failures = 0;
+        outboxRepository.deleteAll();
+        final List<Long> gameIds = gameRepository.findAllIds();
+        gameRepository.deletePitsByGameIds(gameIds);
+        gameRepository.deleteGamesByIds(gameIds);
+    }
+
+    @Test
+    public void shouldWriteEventsToOutboxWithTheGame() throws Exception {
+        final Long gameId = gameService.newGame(REQUEST_URL).getId();
+        final LegalMovesDto legalMoves = gameService.legalMoves(gameId);
+        gameService.makeMove(gameId, legalMoves.getMoves().get(0).getPit(), () -> null);
+        final List<OutboxEvent> events = outboxRepository.findAll();
+        assertEquals(Arrays.asList("GameCreatedEvent", "MoveAppliedEvent"),
+                events.stream().map(OutboxEvent::getType).collect(Collectors.toList()));
+        assertTrue(events.stream().allMatch(event -> event.getGameId().equals(gameId)));
+        final JsonNode moveApplied = objectMapper.readTree(events.get(1).getPayload());
+        assertEquals(legalMoves.getMoves().get(0).getPit(), moveApplied.get("pit").asInt());
+        assertEquals(gameRepository.findById(gameId).get().getVersion().longValue(), moveApplied.get("version").asLong());
+    }
+
+    @Test
+    public void shouldNotWriteEventsOfRejectedUpdate() {
+        final Long gameId = gameService.newGame(REQUEST_URL).getId();
+        final Game stale = gameRepository.findById(gameId).get();
+        final Game fresh = gameRepository.findById(gameId).get();
+        fresh.setGameOver(true);
+        assertTrue(jpaGameStore.update(fresh, game -> eventsOf(game, 1)));
+        assertFalse(jpaGameStore.update(stale, game -> eventsOf(game, 2)));
+        final List<OutboxEvent> events = outboxRepository.findAll();
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).getPayload().contains("\"pit\":1"));
+        assertEquals(1L, gameRepository.findById(gameId).get().getVersion());
+    }
+
+    @Test
+    public void shouldRelayOutboxInOrderedBatchesAndDeleteThem() {
+        final Long gameId = gameService.newGame(REQUEST_URL).getId();
+        for (int i = 0; i < 4; i++) {
+            final LegalMovesDto legalMoves = gameService.legalMoves(gameId);
+            gameService.makeMove(gameId, legalMoves.getMoves().get(0).getPit(), () -> null);
+        }
+        final List<Long> ids = outboxRepository.findAll().stream().map(OutboxEvent::getId).sorted().collect(Collectors.toList());
+        assertEquals(5, ids.size());
+        outboxRelay.relayOutbox();
+        assertEquals(3, outboxPublisher.batches.size());
+        assertEquals(ids, outboxPublisher.events().stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    public void shouldKeepEventsWhichWereNotAcknowledged() {
+        gameService.newGame(REQUEST_URL);
+        outboxPublisher.failures = 1;
+        outboxRelay.relayOutbox();
+        assertTrue(outboxPublisher.events().isEmpty());
+        assertEquals(1, outboxRepository.count());
+        outboxRelay.relayOutbox();
+        assertEquals(1, outboxPublisher.events().size());
+        assertEquals(0, outboxRepository.count());
+    }
+
+    private static List<GameEvent> eventsOf(Game game, int pit) {
+        return Collections.singletonList(new MoveAppliedEvent(game.getId(), pit, game.getTurn(), game.getVersion(), 0L, 0L));
+    }
+}
@@ -0,0 +1,147 @@
+package com.korniienko.kalah.service.rating;
+
+import com.korniienko.kalah.dto.LeaderboardDto;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.service.GameFinishedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RatingServiceTest {
+
+    private RatingProperties properties;
+    private RatingService ratingService;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new RatingProperties();
+        ratingService = new RatingService(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void shouldGiveInitialRatingToUnratedPlayers() {
+        assertEquals(1500, ratingService.ratingOf(1L));
+        assertEquals(0, ratingService.leaderboard(10).getPlayers());
+    }
+
+    @Test
+    public void shouldApplyQueuedResultsOnlyInBatch() {
+        ratingService.onGameFinished(new GameFinishedEvent(1L, Pit.Part.SOUTH, false, 1L, 2L, true));
+        assertEquals(1500, ratingService.ratingOf(1L));
+        ratingService.applyPendingResults();
+        assertEquals(1516, ratingService.ratingOf(1L));
+        assertEquals(1484, ratingService.ratingOf(2L));
+    }
+
+    @Test
+    public void shouldNotChangeEqualRatingsOnDraw() {
+        ratingService.onGameFinished(new GameFinishedEvent(1L, null, true, 1L, 2L, true));
+        ratingService.applyPendingResults();
+        assertEquals(1500, ratingService.ratingOf(1L));
+        assertEquals(1500, ratingService.ratingOf(2L));
+        assertEquals(2, ratingService.leaderboard(10).getPlayers());
+    }
+
+    @Test
+    public void shouldRateAllGamesOfWindowAgainstRatingsBeforeWindow() {
+        ratingService.onGameFinished(new GameFinishedEvent(1L, Pit.Part.SOUTH, false, 1L, 2L, true));
+        ratingService.onGameFinished(new GameFinishedEvent(2L, Pit.Part.NORTH, false, 2L, 1L, true));
+        ratingService.onGameFinished(new GameFinishedEvent(3L, Pit.Part.SOUTH, false, 3L, 1L, true));
+        ratingService.applyPendingResults();
+        assertEquals(1516, ratingService.ratingOf(1L));
+        assertEquals(1468, ratingService.ratingOf(2L));
+        assertEquals(1516, ratingService.ratingOf(3L));
+    }
+
+    @Test
+    public void shouldIgnoreGamesWithoutTwoPlayers() {
+        ratingService.onGameFinished(new GameFinishedEvent(1L, Pit.Part.SOUTH, false, null, null, false));
+        ratingService.onGameFinished(new GameFinishedEvent(2L, Pit.Part.SOUTH, false, 1L, 1L, false));
+        ratingService.applyPendingResults();
+        assertEquals(0, ratingService.leaderboard(10).getPlayers());
+    }
+
+    @Test
+    public void shouldIgnoreGamesWhichAreNotRated() {
+        ratingService.onGameFinished(new GameFinishedEvent(1L, Pit.Part.SOUTH, false, 1L, 2L, false));
+        ratingService.applyPendingResults();
+        assertEquals(0, ratingService.leaderboard(10).getPlayers());
+    }
+
+    @Test
+    public void shouldWaitForRoomWhenQueueIsFull() throws Exception {
+        properties.setQueueCapacity(1);
+        ratingService = new RatingService(properties, new SimpleMeterRegistry());
+        ratingService.onGameFinished(new GameFinishedEvent(1L, Pit.Part.SOUTH, false, 1L, 2L, true));
+        final Thread consumer = new Thread(() -> ratingService.onGameFinished(new GameFinishedEvent(2L, Pit.Part.SOUTH, false, 3L, 4L, true)));
+        consumer.start();
+        consumer.join(100);
+        assertTrue(consumer.isAlive());
+        ratingService.applyPendingResults();
+        consumer.join(10_000);
+        assertFalse(consumer.isAlive());
+        ratingService.applyPendingResults();
+        assertEquals(4, ratingService.leaderboard(10).getPlayers());
+    }
+
+    @Test
+    public void shouldKeepLeaderboardSortedAsRatingsChange() {
+        ratingService.onGameFinished(new GameFinishedEvent(1L, Pit.Part.SOUTH, false, 1L, 2L, true));
+        ratingService.onGameFinished(new GameFinishedEvent(2L, null, true, 3L, 4L, true));
+        ratingService.applyPendingResults();
+        ratingService.onGameFinished(new GameFinishedEvent(3L, Pit.Part.SOUTH, false, 2L, 1L, true));
+        ratingService.onGameFinished(new GameFinishedEvent(4L, Pit.Part.SOUTH, false, 2L, 3L, true));
+        ratingService.applyPendingResults();
+        final LeaderboardDto leaderboard = ratingService.leaderboard(10);
+        assertEquals(4, leaderboard.getPlayers());
+        assertEquals(4, leaderboard.getEntries().size());
+        for (int i = 0; i < leaderboard.getEntries().size(); i++) {
+            final LeaderboardDto.Entry entry = leaderboard.getEntries().get(i);
+            assertEquals(i + 1, entry.getRank());
+            assertEquals(ratingService.ratingOf(entry.getUserId()), entry.getRating());
+            if (i > 0) {
+                assertTrue(leaderboard.getEntries().get(i - 1).getRating() >= entry.getRating());
+            }
+        }
+        assertEquals(2L, leaderboard.getEntries().get(0).getUserId());
+    }
+
+    @Test
+    public void shouldLimitLeaderboardSize() {
+        properties.setMaxLeaderboardSize(2);
+        ratingService.onGameFinished(new GameFinishedEvent(1L, Pit.Part.SOUTH, false, 1L, 2L, true));
+        ratingService.onGameFinished(new GameFinishedEvent(2L, Pit.Part.SOUTH, false, 3L, 4L, true));
+        ratingService.applyPendingResults();
+        assertEquals(2, ratingService.leaderboard(100).getEntries().size());
+        assertEquals(1, ratingService.leaderboard(0).getEntries().size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void shouldReadLeaderboardInMicrosecondsWithMillionPlayers() {
+        final int players = 1_000_000;
+        final Random random = new Random(7);
+        for (long game = 1; game <= players / 2; game++) {
+            ratingService.onGameFinished(new GameFinishedEvent(game, random.nextBoolean() ? Pit.Part.SOUTH : Pit.Part.NORTH,
+                    false, 2 * game - 1, 2 * game, true));
+        }
+        ratingService.applyPendingResults();
+        for (int i = 0; i < 10_000; i++) {
+            ratingService.leaderboard(100);
+        }
+        final int reads = 100_000;
+        final long start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            ratingService.leaderboard(100);
+        }
+        final double micros = (System.nanoTime() - start) / 1e3 / reads;
+        System.out.printf("Leaderboard: top 100 of %d players in %.1f us%n", ratingService.leaderboard(1).getPlayers(), micros);
+        assertEquals(players, ratingService.leaderboard(1).getPlayers());
+        assertTrue(micros < 1000);
+    }
+}
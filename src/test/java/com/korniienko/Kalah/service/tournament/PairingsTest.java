@@ -0,0 +1,54 @@
+package com.korniienko.kalah.service.tournament;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PairingsTest {
+
+    @Test
+    public void shouldPairEveryPlayerWithEveryOtherOnceInRoundRobin() {
+        for (int players = 2; players <= 9; players++) {
+            final Set<Long> pairs = new HashSet<>();
+            int byes = 0;
+            for (int round = 0; round < Pairings.roundRobinRounds(players); round++) {
+                final Set<Integer> seen = new HashSet<>();
+                for (int[] pair : Pairings.roundRobin(players, round)) {
+                    if (pair[0] == Pairings.BYE || pair[1] == Pairings.BYE) {
+                        byes++;
+                        assertTrue(seen.add(pair[0] == Pairings.BYE ? pair[1] : pair[0]));
+                    } else {
+                        assertTrue(seen.add(pair[0]) && seen.add(pair[1]));
+                        assertTrue(pairs.add(Pairings.pairKey(pair[0], pair[1])));
+                    }
+                }
+                assertEquals(players, seen.size());
+            }
+            assertEquals(players * (players - 1) / 2, pairs.size());
+            assertEquals(players % 2 == 0 ? 0 : players, byes);
+        }
+    }
+
+    @Test
+    public void shouldPairSwissByScoreAndAvoidRematches() {
+        final int[] scores = {0, 2, 2, 0};
+        final Set<Long> played = new HashSet<>();
+        played.add(Pairings.pairKey(1, 2));
+        final List<int[]> pairs = Pairings.swiss(scores, new boolean[4], played);
+        assertEquals(2, pairs.size());
+        assertEquals(Pairings.pairKey(0, 1), Pairings.pairKey(pairs.get(0)[0], pairs.get(0)[1]));
+        assertEquals(Pairings.pairKey(2, 3), Pairings.pairKey(pairs.get(1)[0], pairs.get(1)[1]));
+    }
+
+    @Test
+    public void shouldGiveSwissByeToLowestRankedPlayerWithoutBye() {
+        final int[] scores = {4, 2, 0};
+        final List<int[]> pairs = Pairings.swiss(scores, new boolean[]{false, false, true}, new HashSet<>());
+        assertArrayEquals(new int[]{1, Pairings.BYE}, pairs.get(0));
+        assertEquals(Pairings.pairKey(0, 2), Pairings.pairKey(pairs.get(1)[0], pairs.get(1)[1]));
+    }
+}
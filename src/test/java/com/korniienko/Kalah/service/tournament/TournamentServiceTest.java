@@ -0,0 +1,240 @@
+package com.korniienko.kalah.service.tournament;
+
+import com.korniienko.kalah.dto.GameDto;
+import com.korniienko.kalah.dto.GameStatusDto;
+import com.korniienko.kalah.dto.TournamentDto;
+import com.korniienko.kalah.dto.TournamentRequestDto;
+import com.korniienko.kalah.exceptions.IllegalTournamentException;
+import com.korniienko.kalah.exceptions.TournamentNotFoundException;
+import com.korniienko.kalah.model.Pit;
+import com.korniienko.kalah.model.User;
+import com.korniienko.kalah.service.GameFinishedEvent;
+import com.korniienko.kalah.service.GameService;
+import com.korniienko.kalah.service.MoveAppliedEvent;
+import com.korniienko.kalah.service.MyUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+
+@ExtendWith(MockitoExtension.class)
+public class TournamentServiceTest {
+
+    private static final String GAMES_URL = "http://localhost:8080/games";
+
+    @Mock
+    private GameService gameService;
+
+    @Mock
+    private MyUserDetailsService userDetailsService;
+
+    private final AtomicLong gameIds = new AtomicLong();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private TournamentService tournamentService;
+
+    @BeforeEach
+    public void setUp() {
+        Mockito.lenient().when(gameService.newGame(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            final long gameId = gameIds.incrementAndGet();
+            return new GameDto(gameId, invocation.getArgument(0) + "/" + gameId);
+        });
+        Mockito.lenient().when(userDetailsService.loadUserByUsername(anyString())).thenAnswer(invocation -> {
+            final String username = invocation.getArgument(0);
+            if (!username.startsWith("player")) {
+                throw new UsernameNotFoundException(username);
+            }
+            return new User(Long.parseLong(username.substring("player".length())), username, username, new ArrayList<>());
+        });
+        tournamentService = new TournamentService(gameService, userDetailsService, new TournamentProperties(), Runnable::run, clock::get);
+    }
+
+    @Test
+    public void shouldPlayEveryPairOnceInRoundRobin() {
+        TournamentDto tournament = tournamentService.create(new TournamentRequestDto(TournamentFormat.ROUND_ROBIN, players(4), null), GAMES_URL);
+        assertEquals(3, tournament.getRounds());
+        assertEquals(GAMES_URL + "/1", tournamentService.progress(tournament.getId()).getGames().get(0).getUri());
+        final TournamentDto.Match first = tournament.getGames().get(0);
+        Mockito.verify(gameService).newGame(GAMES_URL, Long.parseLong(first.getSouth().substring("player".length())),
+                Long.parseLong(first.getNorth().substring("player".length())));
+        final Set<Set<String>> pairs = new HashSet<>();
+        while (!"FINISHED".equals(tournament.getStatus())) {
+            tournament.getGames().forEach(game -> assertTrue(pairs.add(new HashSet<>(Arrays.asList(game.getSouth(), game.getNorth())))));
+            tournament = finishRound(tournament, Pit.Part.SOUTH, false);
+        }
+        assertEquals(6, pairs.size());
+        assertEquals(6, tournament.getFinishedGames());
+        assertEquals(6.0, totalPoints(tournament));
+    }
+
+    @Test
+    public void shouldGiveEveryPlayerOneByeInRoundRobinWithOddPlayers() {
+        TournamentDto tournament = tournamentService.create(new TournamentRequestDto(TournamentFormat.ROUND_ROBIN, players(5), null), GAMES_URL);
+        assertEquals(5, tournament.getRounds());
+        while (!"FINISHED".equals(tournament.getStatus())) {
+            assertEquals(2, tournament.getGames().size());
+            tournament = finishRound(tournament, null, true);
+        }
+        assertEquals(10, tournament.getFinishedGames());
+        tournament.getStandings().forEach(standing -> {
+            assertEquals(4, standing.getDraws());
+            assertEquals(3.0, standing.getPoints());
+        });
+    }
+
+    @Test
+    public void shouldPairSwissRoundsWithoutRematchesAndRankByPoints() {
+        TournamentDto tournament = tournamentService.create(new TournamentRequestDto(TournamentFormat.SWISS, players(8), null), GAMES_URL);
+        assertEquals(3, tournament.getRounds());
+        final Set<Set<String>> pairs = new HashSet<>();
+        while (!"FINISHED".equals(tournament.getStatus())) {
+            assertEquals(4, tournament.getGames().size());
+            tournament.getGames().forEach(game -> assertTrue(pairs.add(new HashSet<>(Arrays.asList(game.getSouth(), game.getNorth())))));
+            tournament = finishRound(tournament, Pit.Part.NORTH, false);
+        }
+        assertEquals(12.0, totalPoints(tournament));
+        final List<Double> points = tournament.getStandings().stream().map(TournamentDto.Standing::getPoints).collect(Collectors.toList());
+        final List<Double> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.reverseOrder());
+        assertEquals(sorted, points);
+    }
+
+    @Test
+    public void shouldIgnoreGamesOutsideOfTournaments() {
+        final TournamentDto tournament = tournamentService.create(new TournamentRequestDto(TournamentFormat.SWISS, players(2), null), GAMES_URL);
+        tournamentService.onGameFinished(new GameFinishedEvent(1000L, Pit.Part.SOUTH, false, null, null, false));
+        final TournamentDto progress = tournamentService.progress(tournament.getId());
+        assertEquals("RUNNING", progress.getStatus());
+        assertEquals(0, progress.getFinishedGames());
+    }
+
+    @Test
+    public void shouldRejectInvalidTournaments() {
+        assertThrows(IllegalTournamentException.class, () -> tournamentService.create(new TournamentRequestDto(null, players(4), null), GAMES_URL));
+        assertThrows(IllegalTournamentException.class, () -> tournamentService.create(new TournamentRequestDto(TournamentFormat.SWISS, players(1), null), GAMES_URL));
+        assertThrows(IllegalTournamentException.class, () -> tournamentService.create(
+                new TournamentRequestDto(TournamentFormat.SWISS, Arrays.asList("bot", "bot"), null), GAMES_URL));
+        final Exception exception = assertThrows(IllegalTournamentException.class, () -> tournamentService.create(
+                new TournamentRequestDto(TournamentFormat.ROUND_ROBIN, players(4), 4), GAMES_URL));
+        assertEquals("Tournament of [4] players has from 1 to [3] rounds.", exception.getMessage());
+        final Exception unknown = assertThrows(IllegalTournamentException.class, () -> tournamentService.create(
+                new TournamentRequestDto(TournamentFormat.SWISS, Arrays.asList("player1", "bot"), null), GAMES_URL));
+        assertEquals("Tournament player [bot] is not a registered user.", unknown.getMessage());
+        Mockito.verifyNoInteractions(gameService);
+    }
+
+    @Test
+    public void shouldForfeitTheGameOfThePlayerWhoDoesNotMove() {
+        final TournamentProperties properties = new TournamentProperties();
+        final TournamentDto created = tournamentService.create(new TournamentRequestDto(TournamentFormat.ROUND_ROBIN, players(2), null), GAMES_URL);
+        final Long gameId = created.getGames().get(0).getGameId();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getForfeitAfterMillis()) - 1);
+        tournamentService.onEvent(new MoveAppliedEvent(gameId, 1, Pit.Part.SOUTH, 1L, 0L, 0L));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getForfeitAfterMillis()));
+        tournamentService.forfeitAndEvict();
+        assertEquals(0, tournamentService.progress(created.getId()).getFinishedGames());
+
+        Mockito.when(gameService.status(gameId)).thenReturn(new GameStatusDto(Collections.emptyMap(), Collections.emptyList(), 1L, false));
+        Mockito.when(gameService.forfeit(gameId, 1L)).thenReturn(Pit.Part.NORTH);
+        clock.addAndGet(2);
+        tournamentService.forfeitAndEvict();
+        final TournamentDto tournament = tournamentService.progress(created.getId());
+        assertEquals("FINISHED", tournament.getStatus());
+        assertEquals(created.getGames().get(0).getSouth(), tournament.getStandings().get(0).getPlayer());
+        assertEquals(1, tournament.getStandings().get(0).getWins());
+
+        tournamentService.onGameFinished(new GameFinishedEvent(gameId, Pit.Part.NORTH, false, 1L, 2L, true));
+        assertEquals(1, tournamentService.progress(created.getId()).getStandings().get(0).getWins());
+    }
+
+    @Test
+    public void shouldWaitAgainForTheGameChangedByMovesWithoutEvents() {
+        final TournamentProperties properties = new TournamentProperties();
+        final TournamentDto created = tournamentService.create(new TournamentRequestDto(TournamentFormat.ROUND_ROBIN, players(2), null), GAMES_URL);
+        final Long gameId = created.getGames().get(0).getGameId();
+        Mockito.when(gameService.status(gameId)).thenReturn(new GameStatusDto(Collections.emptyMap(), Collections.emptyList(), 3L, false));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getForfeitAfterMillis()) + 1);
+        tournamentService.forfeitAndEvict();
+        Mockito.verify(gameService, Mockito.never()).forfeit(anyLong(), anyLong());
+        assertEquals("RUNNING", tournamentService.progress(created.getId()).getStatus());
+
+        Mockito.when(gameService.forfeit(gameId, 3L)).thenReturn(Pit.Part.SOUTH);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getForfeitAfterMillis()) + 1);
+        tournamentService.forfeitAndEvict();
+        final TournamentDto tournament = tournamentService.progress(created.getId());
+        assertEquals("FINISHED", tournament.getStatus());
+        assertEquals(created.getGames().get(0).getNorth(), tournament.getStandings().get(0).getPlayer());
+    }
+
+    @Test
+    public void shouldForgetTournamentsWhichAreOverAfterRetention() {
+        final TournamentProperties properties = new TournamentProperties();
+        final TournamentDto created = tournamentService.create(new TournamentRequestDto(TournamentFormat.ROUND_ROBIN, players(2), null), GAMES_URL);
+        finishRound(created, Pit.Part.SOUTH, false);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getRetentionMillis()));
+        tournamentService.forfeitAndEvict();
+        assertEquals("FINISHED", tournamentService.progress(created.getId()).getStatus());
+        clock.incrementAndGet();
+        tournamentService.forfeitAndEvict();
+        assertThrows(TournamentNotFoundException.class, () -> tournamentService.progress(created.getId()));
+    }
+
+    @Test
+    public void shouldFailToGetMissingTournament() {
+        final Exception exception = assertThrows(TournamentNotFoundException.class, () -> tournamentService.progress(1L));
+        assertEquals("Tournament with id [1] not found on the server.", exception.getMessage());
+    }
+
+    @Test
+    public void shouldRunTenThousandConcurrentGamesOnWorkerPool() throws Exception {
+        final TournamentProperties properties = new TournamentProperties();
+        properties.setWorkerThreads(4);
+        final TournamentService pooledService = new TournamentService(gameService, userDetailsService, properties);
+        try {
+            final TournamentDto created = pooledService.create(new TournamentRequestDto(TournamentFormat.ROUND_ROBIN, players(20000), 1), GAMES_URL);
+            TournamentDto tournament = created;
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (tournament.getGames().size() < 10000 || tournament.getGames().stream().anyMatch(game -> game.getGameId() == null)) {
+                assertTrue(System.currentTimeMillis() < deadline, "Games were not created in time.");
+                Thread.sleep(10);
+                tournament = pooledService.progress(created.getId());
+            }
+            tournament.getGames().parallelStream()
+                    .forEach(game -> pooledService.onGameFinished(new GameFinishedEvent(game.getGameId(), Pit.Part.SOUTH, false, null, null, false)));
+            final TournamentDto finished = pooledService.progress(created.getId());
+            assertEquals("FINISHED", finished.getStatus());
+            assertEquals(10000, finished.getFinishedGames());
+            assertEquals(10000.0, totalPoints(finished));
+            Mockito.verify(gameService, Mockito.times(10000)).newGame(Mockito.eq(GAMES_URL), anyLong(), anyLong());
+        } finally {
+            pooledService.destroy();
+        }
+    }
+
+    private TournamentDto finishRound(TournamentDto tournament, Pit.Part winner, boolean draw) {
+        tournament.getGames().forEach(game -> tournamentService.onGameFinished(new GameFinishedEvent(game.getGameId(), winner, draw, null, null, false)));
+        return tournamentService.progress(tournament.getId());
+    }
+
+    private double totalPoints(TournamentDto tournament) {
+        return tournament.getStandings().stream().mapToDouble(TournamentDto.Standing::getPoints).sum();
+    }
+
+    private List<String> players(int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> "player" + i).collect(Collectors.toList());
+    }
+}